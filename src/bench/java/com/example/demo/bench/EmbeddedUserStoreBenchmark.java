@@ -0,0 +1,117 @@
+package com.example.demo.bench;
+
+import com.example.demo.model.User;
+import com.example.demo.model.UserCredentials;
+import com.example.demo.repository.EmbeddedUserStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * EmbeddedUserStore lookups on the auth path (the DynamoDB engine pays a network round trip here)
+ * and the cost of one appended record, with and without forcing it to disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EmbeddedUserStoreBenchmark {
+
+    @Param({"100000"})
+    public int users;
+
+    @Param({"false", "true"})
+    public boolean syncWrites;
+
+    private Path dir;
+    private EmbeddedUserStore store;
+    private UserCredentials writeTarget;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("embedded-user-store");
+        String path = dir.resolve("users.log").toString();
+        // Load without forcing each record, then reopen (replaying the log) with the mode under test
+        EmbeddedUserStore loader = new EmbeddedUserStore(path, 64, false, 0, 0.5, 1);
+        for (int i = 0; i < users; i++) {
+            loader.create(user(i));
+        }
+        loader.close();
+        store = new EmbeddedUserStore(path, 64, syncWrites, 0, 0.5, 1);
+        writeTarget = store.findCredentialsByEmail(email(0)).orElseThrow();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Optional<UserCredentials> findCredentialsByEmail() {
+        return store.findCredentialsByEmail(email(ThreadLocalRandom.current().nextInt(users)));
+    }
+
+    @Benchmark
+    public Optional<User> findByEmail() {
+        return store.findByEmail(email(ThreadLocalRandom.current().nextInt(users)));
+    }
+
+    @Benchmark
+    public boolean existsByUsername() {
+        return store.existsByUsername("user" + ThreadLocalRandom.current().nextInt(users));
+    }
+
+    // Rewrites the same user each time; the version check always passes
+    @Benchmark
+    public void updatePasswordHash() {
+        store.updatePasswordHash(writeTarget, writeTarget.getPasswordHash());
+        writeTarget = store.findCredentialsByEmail(email(0)).orElseThrow();
+    }
+
+    private static String email(int i) {
+        return "user" + i + "@example.com";
+    }
+
+    private static User user(int i) {
+        User user = new User();
+        user.setUserId("00000000-0000-0000-0000-" + String.format("%012d", i));
+        user.setEmail(email(i));
+        user.setUsername("user" + i);
+        user.setPasswordHash("{bcrypt}$2a$12$R9h/cIPz0gi.URNNX3kh2OPST9/PgBkqquzi.Ss7KIUgO2t0jWMUW");
+        user.setFirstName("Jane");
+        user.setLastName("Doe");
+        user.setPhone("+15550100");
+        user.setDateOfBirth("1990-04-01");
+        user.setRiskAppetite("MEDIUM");
+        user.setExperience("INTERMEDIATE");
+        user.setInvestmentGoal("RETIREMENT");
+        user.setCreatedAt("2024-01-01T00:00:00Z");
+        user.setUpdatedAt("2024-01-01T00:00:00Z");
+        user.setVersion(1);
+        return user;
+    }
+}
@@ -0,0 +1,811 @@
+package com.example.demo.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Minimal in-process DynamoDB stand-in speaking the real JSON wire protocol, so the app's SDK clients
+ * (marshalling, retries, interceptors) run unchanged against aws.dynamodb.endpoint=http://127.0.0.1:port.
+ * - Operations: CreateTable, DescribeTable, UpdateTimeToLive, PutItem, GetItem, DeleteItem, UpdateItem,
+ *   Query (hash-key equality, table or GSI), Scan (Segment/TotalSegments, paging), TransactWriteItems,
+ *   BatchGetItem, BatchWriteItem.
+ * - Expressions: conditions with AND/OR/NOT, comparisons, attribute_exists / attribute_not_exists /
+ *   begins_with; updates with SET (incl. a + b, if_not_exists), REMOVE and ADD.
+ * - Writes share one lock (transactions are trivially atomic); reads are lock-free. No TTL expiry,
+ *   capacity accounting or nested attribute paths. Not a substitute for DynamoDB Local in correctness tests.
+ *
+ * Standalone: mvn -Pbench test-compile exec:java -Dbench.main=com.example.demo.bench.InMemoryDynamoDbServer -Dport=8000
+ */
+public class InMemoryDynamoDbServer implements AutoCloseable {
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+    private static final String ERROR_PREFIX = "com.amazonaws.dynamodb.v20120810#";
+
+    static {
+        // Without TCP_NODELAY every request whose body the SDK sends as a separate write stalls ~40ms
+        // (Nagle vs. delayed ACK), which dwarfs the latency being measured. Read once by the JDK server.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final Map<String, Table> tables = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final HttpServer server;
+
+    public InMemoryDynamoDbServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public static void main(String[] args) throws Exception {
+        try (InMemoryDynamoDbServer server = new InMemoryDynamoDbServer(Integer.getInteger("port", 8000))) {
+            System.out.println("In-memory DynamoDB listening on " + server.endpoint());
+            new CountDownLatch(1).await();
+        }
+    }
+
+    public String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    // ---------- HTTP ----------
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int status = 200;
+        JsonNode response;
+        try {
+            String target = exchange.getRequestHeaders().getFirst("X-Amz-Target");
+            String operation = target == null ? "" : target.substring(target.indexOf('.') + 1);
+            JsonNode request = JSON.readTree(exchange.getRequestBody().readAllBytes());
+            response = dispatch(operation, request);
+        } catch (DynamoException e) {
+            status = 400;
+            response = e.toJson();
+        } catch (Exception e) {
+            status = 500;
+            response = NODES.objectNode()
+                    .put("__type", ERROR_PREFIX + "InternalServerError")
+                    .put("message", String.valueOf(e.getMessage()));
+        }
+        byte[] body = JSON.writeValueAsBytes(response);
+        exchange.getResponseHeaders().set("Content-Type", "application/x-amz-json-1.0");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private JsonNode dispatch(String operation, JsonNode request) {
+        return switch (operation) {
+            case "CreateTable" -> createTable(request);
+            case "DescribeTable" -> describeTable(request);
+            case "UpdateTimeToLive" -> NODES.objectNode()
+                    .set("TimeToLiveSpecification", request.path("TimeToLiveSpecification"));
+            case "PutItem" -> putItem(request);
+            case "GetItem" -> getItem(request);
+            case "DeleteItem" -> deleteItem(request);
+            case "UpdateItem" -> updateItem(request);
+            case "Query" -> query(request);
+            case "Scan" -> scan(request);
+            case "TransactWriteItems" -> transactWriteItems(request);
+            case "BatchGetItem" -> batchGetItem(request);
+            case "BatchWriteItem" -> batchWriteItem(request);
+            default -> throw new DynamoException("UnknownOperationException", "Unsupported operation " + operation);
+        };
+    }
+
+    // ---------- tables ----------
+
+    private JsonNode createTable(JsonNode request) {
+        String name = request.path("TableName").asText();
+        Table table = new Table(name, keySchema(request.path("KeySchema")));
+        for (JsonNode gsi : request.path("GlobalSecondaryIndexes")) {
+            table.indexes.put(gsi.path("IndexName").asText(), keySchema(gsi.path("KeySchema")));
+        }
+        if (tables.putIfAbsent(name, table) != null) {
+            throw new DynamoException("ResourceInUseException", "Table already exists: " + name);
+        }
+        ObjectNode response = NODES.objectNode();
+        response.set("TableDescription", table.describe());
+        return response;
+    }
+
+    private JsonNode describeTable(JsonNode request) {
+        ObjectNode response = NODES.objectNode();
+        response.set("Table", table(request).describe());
+        return response;
+    }
+
+    private Table table(JsonNode request) {
+        return table(request.path("TableName").asText());
+    }
+
+    private Table table(String name) {
+        Table table = tables.get(name);
+        if (table == null) {
+            throw new DynamoException("ResourceNotFoundException", "Requested resource not found: " + name);
+        }
+        return table;
+    }
+
+    private static String[] keySchema(JsonNode keySchema) {
+        String[] keys = new String[2];
+        for (JsonNode key : keySchema) {
+            keys["HASH".equals(key.path("KeyType").asText()) ? 0 : 1] = key.path("AttributeName").asText();
+        }
+        return keys;
+    }
+
+    // ---------- single-item operations ----------
+
+    private JsonNode putItem(JsonNode request) {
+        Table table = table(request);
+        ObjectNode item = (ObjectNode) request.path("Item");
+        writeLock.lock();
+        try {
+            ObjectNode existing = table.items.get(table.key(item));
+            checkCondition(request, existing);
+            table.put(table.key(item), item);
+            return returnOld(request, existing);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private JsonNode getItem(JsonNode request) {
+        Table table = table(request);
+        ObjectNode item = table.items.get(table.key(request.path("Key")));
+        ObjectNode response = NODES.objectNode();
+        if (item != null) {
+            response.set("Item", project(item, request));
+        }
+        return response;
+    }
+
+    private JsonNode deleteItem(JsonNode request) {
+        Table table = table(request);
+        String key = table.key(request.path("Key"));
+        writeLock.lock();
+        try {
+            ObjectNode existing = table.items.get(key);
+            checkCondition(request, existing);
+            table.remove(key);
+            return returnOld(request, existing);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private JsonNode updateItem(JsonNode request) {
+        Table table = table(request);
+        String key = table.key(request.path("Key"));
+        writeLock.lock();
+        try {
+            ObjectNode existing = table.items.get(key);
+            checkCondition(request, existing);
+            ObjectNode updated = existing != null ? existing.deepCopy() : ((ObjectNode) request.path("Key")).deepCopy();
+            new Expression(request.path("UpdateExpression").asText(), request).applyUpdate(updated);
+            table.put(key, updated);
+
+            ObjectNode response = NODES.objectNode();
+            switch (request.path("ReturnValues").asText("NONE")) {
+                case "ALL_NEW", "UPDATED_NEW" -> response.set("Attributes", updated);
+                case "ALL_OLD", "UPDATED_OLD" -> {
+                    if (existing != null) {
+                        response.set("Attributes", existing);
+                    }
+                }
+                default -> { }
+            }
+            return response;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static JsonNode returnOld(JsonNode request, ObjectNode existing) {
+        ObjectNode response = NODES.objectNode();
+        if (existing != null && "ALL_OLD".equals(request.path("ReturnValues").asText())) {
+            response.set("Attributes", existing);
+        }
+        return response;
+    }
+
+    private static void checkCondition(JsonNode request, ObjectNode existing) {
+        String condition = request.path("ConditionExpression").asText("");
+        if (!condition.isEmpty() && !new Expression(condition, request).evaluate(existing)) {
+            DynamoException e = new DynamoException("ConditionalCheckFailedException", "The conditional request failed");
+            if (existing != null && "ALL_OLD".equals(request.path("ReturnValuesOnConditionCheckFailure").asText())) {
+                e.item = existing;
+            }
+            throw e;
+        }
+    }
+
+    // ---------- reads over many items ----------
+
+    private JsonNode query(JsonNode request) {
+        Table table = table(request);
+        String indexName = request.path("IndexName").asText("");
+        String[] keys = indexName.isEmpty() ? table.keys : table.indexes.get(indexName);
+        if (keys == null) {
+            throw new DynamoException("ValidationException", "Unknown index " + indexName);
+        }
+        // "<hash> = :value" picks the candidates; the full key condition (range part) is then evaluated per item
+        Expression keyCondition = new Expression(request.path("KeyConditionExpression").asText(), request);
+        JsonNode hashValue = keyCondition.equalityValue(keys[0]);
+        if (hashValue == null) {
+            throw new DynamoException("ValidationException", "Query needs an equality condition on " + keys[0]);
+        }
+        Expression filter = filter(request);
+        int limit = request.path("Limit").asInt(Integer.MAX_VALUE);
+
+        List<ObjectNode> matches = new ArrayList<>();
+        int scanned = 0;
+        for (ObjectNode item : table.candidates(indexName, hashValue)) {
+            if (!keyCondition.evaluate(item)) {
+                continue;
+            }
+            scanned++;
+            if (filter == null || filter.evaluate(item)) {
+                matches.add(item);
+            }
+            if (scanned >= limit) {
+                break;
+            }
+        }
+        return itemsResponse(request, matches, scanned, null);
+    }
+
+    private JsonNode scan(JsonNode request) {
+        Table table = table(request);
+        Expression filter = filter(request);
+        int limit = request.path("Limit").asInt(Integer.MAX_VALUE);
+        int segment = request.path("Segment").asInt(0);
+        int totalSegments = request.path("TotalSegments").asInt(1);
+        String startKey = request.has("ExclusiveStartKey") ? table.key(request.path("ExclusiveStartKey")) : null;
+
+        Map<String, ObjectNode> view = startKey == null ? table.items : table.items.tailMap(startKey, false);
+        List<ObjectNode> matches = new ArrayList<>();
+        int scanned = 0;
+        String lastKey = null;
+        for (Map.Entry<String, ObjectNode> entry : view.entrySet()) {
+            if (Math.floorMod(entry.getKey().hashCode(), totalSegments) != segment) {
+                continue;
+            }
+            scanned++;
+            if (filter == null || filter.evaluate(entry.getValue())) {
+                matches.add(entry.getValue());
+            }
+            if (scanned >= limit) {
+                lastKey = entry.getKey();
+                break;
+            }
+        }
+        JsonNode lastEvaluatedKey = lastKey != null ? table.keyOf(table.items.get(lastKey)) : null;
+        return itemsResponse(request, matches, scanned, lastEvaluatedKey);
+    }
+
+    private static Expression filter(JsonNode request) {
+        String filter = request.path("FilterExpression").asText("");
+        return filter.isEmpty() ? null : new Expression(filter, request);
+    }
+
+    private static JsonNode itemsResponse(JsonNode request, List<ObjectNode> matches, int scanned, JsonNode lastKey) {
+        ObjectNode response = NODES.objectNode();
+        response.put("Count", matches.size());
+        response.put("ScannedCount", scanned);
+        if (!"COUNT".equals(request.path("Select").asText())) {
+            ArrayNode items = response.putArray("Items");
+            for (ObjectNode item : matches) {
+                items.add(project(item, request));
+            }
+        }
+        if (lastKey != null) {
+            response.set("LastEvaluatedKey", lastKey);
+        }
+        return response;
+    }
+
+    private static ObjectNode project(ObjectNode item, JsonNode request) {
+        String projection = request.path("ProjectionExpression").asText("");
+        if (projection.isEmpty()) {
+            return item;
+        }
+        ObjectNode projected = NODES.objectNode();
+        for (String path : projection.split(",")) {
+            String name = Expression.resolveName(path.trim(), request);
+            if (item.has(name)) {
+                projected.set(name, item.get(name));
+            }
+        }
+        return projected;
+    }
+
+    // ---------- transactions and batches ----------
+
+    private JsonNode transactWriteItems(JsonNode request) {
+        writeLock.lock();
+        try {
+            List<String> reasons = new ArrayList<>();
+            boolean failed = false;
+            for (JsonNode action : request.path("TransactItems")) {
+                Map.Entry<String, JsonNode> op = action.fields().next();
+                JsonNode body = op.getValue();
+                Table table = table(body);
+                JsonNode key = "Put".equals(op.getKey()) ? body.path("Item") : body.path("Key");
+                ObjectNode existing = table.items.get(table.key(key));
+                String condition = body.path("ConditionExpression").asText("");
+                boolean ok = condition.isEmpty() || new Expression(condition, body).evaluate(existing);
+                reasons.add(ok ? "None" : "ConditionalCheckFailed");
+                failed |= !ok;
+            }
+            if (failed) {
+                throw new DynamoException("TransactionCanceledException",
+                        "Transaction cancelled, please refer cancellation reasons for specific reasons " + reasons,
+                        reasons);
+            }
+            for (JsonNode action : request.path("TransactItems")) {
+                Map.Entry<String, JsonNode> op = action.fields().next();
+                JsonNode body = op.getValue();
+                Table table = table(body);
+                switch (op.getKey()) {
+                    case "Put" -> table.put(table.key(body.path("Item")), (ObjectNode) body.path("Item"));
+                    case "Delete" -> table.remove(table.key(body.path("Key")));
+                    case "Update" -> {
+                        String key = table.key(body.path("Key"));
+                        ObjectNode existing = table.items.get(key);
+                        ObjectNode updated = existing != null ? existing.deepCopy() : ((ObjectNode) body.path("Key")).deepCopy();
+                        new Expression(body.path("UpdateExpression").asText(), body).applyUpdate(updated);
+                        table.put(key, updated);
+                    }
+                    default -> { } // ConditionCheck
+                }
+            }
+            return NODES.objectNode();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private JsonNode batchGetItem(JsonNode request) {
+        ObjectNode response = NODES.objectNode();
+        ObjectNode responses = response.putObject("Responses");
+        for (Iterator<Map.Entry<String, JsonNode>> it = request.path("RequestItems").fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            Table table = table(entry.getKey());
+            ArrayNode items = responses.putArray(entry.getKey());
+            for (JsonNode key : entry.getValue().path("Keys")) {
+                ObjectNode item = table.items.get(table.key(key));
+                if (item != null) {
+                    items.add(project(item, entry.getValue()));
+                }
+            }
+        }
+        response.putObject("UnprocessedKeys");
+        return response;
+    }
+
+    private JsonNode batchWriteItem(JsonNode request) {
+        writeLock.lock();
+        try {
+            for (Iterator<Map.Entry<String, JsonNode>> it = request.path("RequestItems").fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> entry = it.next();
+                Table table = table(entry.getKey());
+                for (JsonNode write : entry.getValue()) {
+                    if (write.has("PutRequest")) {
+                        ObjectNode item = (ObjectNode) write.path("PutRequest").path("Item");
+                        table.put(table.key(item), item);
+                    } else {
+                        table.remove(table.key(write.path("DeleteRequest").path("Key")));
+                    }
+                }
+            }
+            ObjectNode response = NODES.objectNode();
+            response.putObject("UnprocessedItems");
+            return response;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // ---------- model ----------
+
+    private static final class Table {
+        final String name;
+        final String[] keys;
+        final Map<String, String[]> indexes = new LinkedHashMap<>();
+        // Sorted so Scan pages are stable across ExclusiveStartKey calls
+        final ConcurrentSkipListMap<String, ObjectNode> items = new ConcurrentSkipListMap<>();
+        // indexName -> GSI hash value -> primary keys, maintained by put/remove under the write lock
+        final Map<String, Map<String, Set<String>>> indexEntries = new ConcurrentHashMap<>();
+
+        Table(String name, String[] keys) {
+            this.name = name;
+            this.keys = keys;
+        }
+
+        void put(String key, ObjectNode item) {
+            ObjectNode previous = items.put(key, item);
+            for (Map.Entry<String, String[]> index : indexes.entrySet()) {
+                Map<String, Set<String>> entries = indexEntries.computeIfAbsent(index.getKey(), k -> new ConcurrentHashMap<>());
+                String attribute = index.getValue()[0];
+                if (previous != null && previous.has(attribute)) {
+                    Set<String> keysForValue = entries.get(previous.get(attribute).toString());
+                    if (keysForValue != null) {
+                        keysForValue.remove(key);
+                    }
+                }
+                if (item.has(attribute)) {
+                    entries.computeIfAbsent(item.get(attribute).toString(), k -> ConcurrentHashMap.newKeySet()).add(key);
+                }
+            }
+        }
+
+        void remove(String key) {
+            ObjectNode previous = items.remove(key);
+            if (previous == null) {
+                return;
+            }
+            for (Map.Entry<String, String[]> index : indexes.entrySet()) {
+                String attribute = index.getValue()[0];
+                Map<String, Set<String>> entries = indexEntries.get(index.getKey());
+                if (entries != null && previous.has(attribute)) {
+                    Set<String> keysForValue = entries.get(previous.get(attribute).toString());
+                    if (keysForValue != null) {
+                        keysForValue.remove(key);
+                    }
+                }
+            }
+        }
+
+        List<ObjectNode> candidates(String indexName, JsonNode hashValue) {
+            List<ObjectNode> result = new ArrayList<>();
+            if (indexName.isEmpty()) {
+                String hash = hashValue.toString();
+                if (keys[1] == null) {
+                    ObjectNode item = items.get(hash);
+                    if (item != null) {
+                        result.add(item);
+                    }
+                } else {
+                    result.addAll(items.subMap(hash + "|", hash + "|\uffff").values());
+                }
+                return result;
+            }
+            Set<String> primaryKeys = indexEntries.getOrDefault(indexName, Map.of()).get(hashValue.toString());
+            if (primaryKeys != null) {
+                for (String key : primaryKeys) {
+                    ObjectNode item = items.get(key);
+                    if (item != null) {
+                        result.add(item);
+                    }
+                }
+            }
+            return result;
+        }
+
+        String key(JsonNode item) {
+            String hash = item.path(keys[0]).toString();
+            return keys[1] == null ? hash : hash + "|" + item.path(keys[1]).toString();
+        }
+
+        ObjectNode keyOf(ObjectNode item) {
+            ObjectNode key = NODES.objectNode();
+            key.set(keys[0], item.get(keys[0]));
+            if (keys[1] != null) {
+                key.set(keys[1], item.get(keys[1]));
+            }
+            return key;
+        }
+
+        ObjectNode describe() {
+            ObjectNode description = NODES.objectNode();
+            description.put("TableName", name);
+            description.put("TableStatus", "ACTIVE");
+            description.put("ItemCount", items.size());
+            ArrayNode keySchema = description.putArray("KeySchema");
+            keySchema.addObject().put("AttributeName", keys[0]).put("KeyType", "HASH");
+            if (keys[1] != null) {
+                keySchema.addObject().put("AttributeName", keys[1]).put("KeyType", "RANGE");
+            }
+            return description;
+        }
+    }
+
+    private static final class DynamoException extends RuntimeException {
+        final String type;
+        final List<String> cancellationReasons;
+        ObjectNode item;
+
+        DynamoException(String type, String message) {
+            this(type, message, null);
+        }
+
+        DynamoException(String type, String message, List<String> cancellationReasons) {
+            super(message);
+            this.type = type;
+            this.cancellationReasons = cancellationReasons;
+        }
+
+        JsonNode toJson() {
+            ObjectNode json = NODES.objectNode();
+            json.put("__type", ERROR_PREFIX + type);
+            json.put("message", getMessage());
+            if (cancellationReasons != null) {
+                ArrayNode reasons = json.putArray("CancellationReasons");
+                for (String code : cancellationReasons) {
+                    reasons.addObject().put("Code", code);
+                }
+            }
+            if (item != null) {
+                json.set("Item", item);
+            }
+            return json;
+        }
+    }
+
+    /**
+     * Tiny recursive-descent evaluator for the expression subset this app uses.
+     * Names (#n) and values (:v) are resolved against the request's ExpressionAttributeNames/Values.
+     */
+    private static final class Expression {
+        private final List<String> tokens = new ArrayList<>();
+        private final JsonNode request;
+        private int pos;
+
+        Expression(String text, JsonNode request) {
+            this.request = request;
+            tokenize(text);
+        }
+
+        static String resolveName(String token, JsonNode request) {
+            return token.startsWith("#") ? request.path("ExpressionAttributeNames").path(token).asText() : token;
+        }
+
+        private void tokenize(String text) {
+            int i = 0;
+            while (i < text.length()) {
+                char c = text.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if ("(),+-".indexOf(c) >= 0) {
+                    tokens.add(String.valueOf(c));
+                    i++;
+                } else if ("=<>".indexOf(c) >= 0) {
+                    int end = i + 1;
+                    if (end < text.length() && (text.charAt(end) == '=' || text.charAt(end) == '>')) {
+                        end++;
+                    }
+                    tokens.add(text.substring(i, end));
+                    i = end;
+                } else {
+                    int end = i;
+                    while (end < text.length() && !Character.isWhitespace(text.charAt(end))
+                            && "(),+-=<>".indexOf(text.charAt(end)) < 0) {
+                        end++;
+                    }
+                    tokens.add(text.substring(i, end));
+                    i = end;
+                }
+            }
+        }
+
+        // Value of the first "<attribute> = :value" term, used to pick Query candidates
+        JsonNode equalityValue(String attribute) {
+            for (int i = 0; i + 2 < tokens.size(); i++) {
+                if (resolveName(tokens.get(i), request).equals(attribute) && tokens.get(i + 1).equals("=")
+                        && tokens.get(i + 2).startsWith(":")) {
+                    return request.path("ExpressionAttributeValues").get(tokens.get(i + 2));
+                }
+            }
+            return null;
+        }
+
+        // ----- conditions -----
+
+        boolean evaluate(ObjectNode item) {
+            pos = 0;
+            return or(item);
+        }
+
+        private boolean or(ObjectNode item) {
+            boolean result = and(item);
+            while (acceptKeyword("OR")) {
+                result |= and(item);
+            }
+            return result;
+        }
+
+        private boolean and(ObjectNode item) {
+            boolean result = not(item);
+            while (acceptKeyword("AND")) {
+                result &= not(item);
+            }
+            return result;
+        }
+
+        private boolean not(ObjectNode item) {
+            if (acceptKeyword("NOT")) {
+                return !not(item);
+            }
+            return primary(item);
+        }
+
+        private boolean primary(ObjectNode item) {
+            if (accept("(")) {
+                boolean result = or(item);
+                expect(")");
+                return result;
+            }
+            String token = next();
+            switch (token) {
+                case "attribute_exists", "attribute_not_exists" -> {
+                    expect("(");
+                    String name = resolveName(next(), request);
+                    expect(")");
+                    boolean exists = item != null && item.has(name);
+                    return token.equals("attribute_exists") == exists;
+                }
+                case "begins_with" -> {
+                    expect("(");
+                    JsonNode value = operand(next(), item);
+                    expect(",");
+                    JsonNode prefix = operand(next(), item);
+                    expect(")");
+                    return value != null && prefix != null
+                            && value.path("S").asText().startsWith(prefix.path("S").asText());
+                }
+                default -> {
+                    JsonNode left = operand(token, item);
+                    String op = next();
+                    JsonNode right = operand(next(), item);
+                    return compare(left, op, right);
+                }
+            }
+        }
+
+        private JsonNode operand(String token, ObjectNode item) {
+            if (token.startsWith(":")) {
+                return request.path("ExpressionAttributeValues").get(token);
+            }
+            return item == null ? null : item.get(resolveName(token, request));
+        }
+
+        private static boolean compare(JsonNode left, String op, JsonNode right) {
+            if (left == null || right == null) {
+                return op.equals("<>") && (left != null || right != null);
+            }
+            int cmp;
+            if (left.has("N") && right.has("N")) {
+                cmp = new BigDecimal(left.get("N").asText()).compareTo(new BigDecimal(right.get("N").asText()));
+            } else if (left.has("S") && right.has("S")) {
+                cmp = left.get("S").asText().compareTo(right.get("S").asText());
+            } else {
+                cmp = left.equals(right) ? 0 : 1;
+            }
+            return switch (op) {
+                case "=" -> cmp == 0;
+                case "<>" -> cmp != 0;
+                case "<" -> cmp < 0;
+                case "<=" -> cmp <= 0;
+                case ">" -> cmp > 0;
+                case ">=" -> cmp >= 0;
+                default -> throw new DynamoException("ValidationException", "Unsupported operator " + op);
+            };
+        }
+
+        // ----- updates -----
+
+        void applyUpdate(ObjectNode item) {
+            pos = 0;
+            while (pos < tokens.size()) {
+                String clause = next().toUpperCase();
+                do {
+                    String name = resolveName(next(), request);
+                    switch (clause) {
+                        case "SET" -> {
+                            expect("=");
+                            JsonNode value = value(item);
+                            if (accept("+")) {
+                                value = number(numeric(value).add(numeric(value(item))));
+                            } else if (accept("-")) {
+                                value = number(numeric(value).subtract(numeric(value(item))));
+                            }
+                            item.set(name, value);
+                        }
+                        case "REMOVE" -> item.remove(name);
+                        case "ADD" -> {
+                            JsonNode delta = operand(next(), item);
+                            JsonNode current = item.get(name);
+                            item.set(name, current == null ? delta : number(numeric(current).add(numeric(delta))));
+                        }
+                        default -> throw new DynamoException("ValidationException", "Unsupported update clause " + clause);
+                    }
+                } while (accept(","));
+            }
+        }
+
+        private JsonNode value(ObjectNode item) {
+            String token = next();
+            if (token.equals("if_not_exists")) {
+                expect("(");
+                JsonNode existing = operand(next(), item);
+                expect(",");
+                JsonNode fallback = operand(next(), item);
+                expect(")");
+                return existing != null ? existing : fallback;
+            }
+            return operand(token, item);
+        }
+
+        private static BigDecimal numeric(JsonNode value) {
+            return value == null ? BigDecimal.ZERO : new BigDecimal(value.path("N").asText("0"));
+        }
+
+        private static JsonNode number(BigDecimal value) {
+            return NODES.objectNode().put("N", value.toPlainString());
+        }
+
+        // ----- tokens -----
+
+        private String next() {
+            if (pos >= tokens.size()) {
+                throw new DynamoException("ValidationException", "Unexpected end of expression " + tokens);
+            }
+            return tokens.get(pos++);
+        }
+
+        private boolean accept(String token) {
+            if (pos < tokens.size() && tokens.get(pos).equals(token)) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean acceptKeyword(String keyword) {
+            if (pos < tokens.size() && tokens.get(pos).equalsIgnoreCase(keyword)) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String token) {
+            if (!accept(token)) {
+                throw new DynamoException("ValidationException", "Expected '" + token + "' in " + tokens);
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.demo.bench;
+
+import com.example.demo.repository.InMemorySigningKeyStore;
+import com.example.demo.security.JwtUtils;
+import com.example.demo.security.SigningKeyRing;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JwtUtils sign / verify with HS256 (jwt.secret) and ES256 (SigningKeyRing). verifiedCacheSize=0 measures
+ * the full signature check on every call, 1024 the steady state where AuthTokenFilter sees the same token repeatedly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    @Param({"HS256", "ES256"})
+    public String algorithm;
+
+    @Param({"0", "1024"})
+    public int verifiedCacheSize;
+
+    private SigningKeyRing keyRing;
+    private JwtUtils jwtUtils;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        String secret = "bench-secret-bench-secret-bench-secret-bench-secret-0123456789";
+        keyRing = new SigningKeyRing(new InMemorySigningKeyStore(), new ObjectMapper(), secret, algorithm,
+                86_400_000L, 168, 60, 3600);
+        jwtUtils = new JwtUtils(secret, 86_400_000L, keyRing, true, verifiedCacheSize, 300, new SimpleMeterRegistry());
+        token = jwtUtils.generateJwtToken("jane@example.com", "0b6f7c1e-2f1d-4c55-9d0e-7d7e5c1a2b3c", "USER");
+    }
+
+    @TearDown
+    public void tearDown() {
+        keyRing.shutdown();
+    }
+
+    @Benchmark
+    public String generateJwtToken() {
+        return jwtUtils.generateJwtToken("jane@example.com", "0b6f7c1e-2f1d-4c55-9d0e-7d7e5c1a2b3c", "USER");
+    }
+
+    @Benchmark
+    public boolean validateJwtToken() {
+        return jwtUtils.validateJwtToken(token);
+    }
+
+    @Benchmark
+    public String getUserNameFromJwtToken() {
+        return jwtUtils.getUserNameFromJwtToken(token);
+    }
+}
@@ -0,0 +1,460 @@
+package com.example.demo.bench;
+
+import com.example.demo.RegisterBackendApplication;
+import com.example.demo.model.User;
+import com.example.demo.repository.UserItemMapper;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.security.JwtUtils;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * End-to-end load test: boots the app in-process against a local DynamoDB, seeds users and drives
+ * mixed register / login / refresh / dashboard / forgot-password traffic from a closed loop of clients.
+ * Reports throughput, HdrHistogram percentiles and status codes per operation, then the app's own
+ * breaker / degraded-mode / hasher / Tomcat metrics from /actuator/prometheus.
+ *
+ * - backend=memory (default) starts InMemoryDynamoDbServer; backend=local uses DynamoDB Local at endpoint.
+ * - faultLatencyMs, faultJitterMs, faultThrottleRate, faultOperations switch on
+ *   aws.dynamodb.fault-injection.* so the repository sees a slow / throttling backend.
+ * - Any app property can be overridden with -D (e.g. -Dserver.tomcat.threads.max=50).
+ * - refresh (off in the default mix) renews with refresh tokens handed out by earlier logins,
+ *   e.g. -Dmix=login=10,refresh=30,dashboard=45,register=5,forgot=10.
+ *
+ * - Other benchmarks reuse it through new LoadTest(appOverrides).run(), which returns the overall summary.
+ *
+ * Run: mvn -Pbench test-compile exec:java -Dbench.main=com.example.demo.bench.LoadTest -Dconcurrency=64
+ * Tunables: backend, endpoint, users, concurrency, warmupSeconds, durationSeconds, mix, bcryptStrength,
+ * requestTimeoutSeconds, fault*
+ */
+public class LoadTest {
+
+    private static final String BACKEND = System.getProperty("backend", "memory");
+    private static final String ENDPOINT = System.getProperty("endpoint", "http://localhost:8000");
+    private static final int USERS = Integer.getInteger("users", 1000);
+    private static final int CONCURRENCY = Integer.getInteger("concurrency", 64);
+    private static final int WARMUP_SECONDS = Integer.getInteger("warmupSeconds", 5);
+    private static final int DURATION_SECONDS = Integer.getInteger("durationSeconds", 30);
+    private static final String MIX = System.getProperty("mix", "login=40,dashboard=45,register=5,forgot=10");
+    private static final int BCRYPT_STRENGTH = Integer.getInteger("bcryptStrength", 10);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(Integer.getInteger("requestTimeoutSeconds", 30));
+    private static final String PASSWORD = "LoadTest#Passw0rd";
+    private static final String USER_TABLE = "loadtest-user";
+    private static final String OTP_TABLE = "loadtest-otp";
+    private static final String REVOCATION_TABLE = "loadtest-revocation";
+    private static final String REFRESH_TOKEN_TABLE = "loadtest-refresh-token";
+    private static final String SIGNING_KEY_TABLE = "loadtest-signing-key";
+    private static final String METRICS_SCRAPE_TOKEN = "load-test-scrape-token";
+
+    private static final String[] OPERATIONS = {"login", "refresh", "dashboard", "register", "forgot"};
+    private static final Pattern REFRESH_TOKEN = Pattern.compile("\"refreshToken\":\"([^\"]+)\"");
+
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final Map<String, Histogram> latencies = new ConcurrentHashMap<>();
+    private final Map<String, Map<Integer, LongAdder>> statuses = new ConcurrentHashMap<>();
+    private final Map<String, String> appOverrides;
+    private final AtomicLong registrations = new AtomicLong();
+    private final List<String> tokens = new ArrayList<>();
+    // Current refresh token of each session opened by a login; refresh takes one and puts back its successor
+    private final ConcurrentLinkedQueue<String> refreshTokens = new ConcurrentLinkedQueue<>();
+    private String baseUrl;
+
+    /** Measured phase across all operations; latencies in nanoseconds. */
+    public record Summary(long requests, double seconds, Histogram latencies) {
+        public double throughput() {
+            return requests / seconds;
+        }
+    }
+
+    /** @param appOverrides app properties set for this run regardless of -D (e.g. the thread model under test) */
+    public LoadTest(Map<String, String> appOverrides) {
+        this.appOverrides = appOverrides;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadTest(Map.of()).run();
+        System.exit(0);
+    }
+
+    public Summary run() throws Exception {
+        InMemoryDynamoDbServer memory = "memory".equals(BACKEND) ? new InMemoryDynamoDbServer(0) : null;
+        String endpoint = memory != null ? memory.endpoint() : ENDPOINT;
+        System.out.printf("backend=%s endpoint=%s users=%d concurrency=%d warmup=%ds duration=%ds mix=%s%n",
+                BACKEND, endpoint, USERS, CONCURRENCY, WARMUP_SECONDS, DURATION_SECONDS, MIX);
+
+        try (DynamoDbClient client = DynamoDbClient.builder()
+                .endpointOverride(URI.create(endpoint))
+                .region(Region.US_EAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("bench", "bench")))
+                .build()) {
+            createTables(client);
+            seedUsers(client);
+        }
+
+        ConfigurableApplicationContext app = SpringApplication.run(RegisterBackendApplication.class, appArgs(endpoint));
+        try {
+            baseUrl = "http://127.0.0.1:" + ((WebServerApplicationContext) app).getWebServer().getPort();
+            mintTokens(app.getBean(JwtUtils.class), Math.min(USERS, 100));
+
+            drive(WARMUP_SECONDS, "warmup");
+            latencies.clear();
+            statuses.clear();
+            long elapsedNanos = drive(DURATION_SECONDS, "measure");
+            Summary summary = report(elapsedNanos);
+            printAppMetrics();
+            return summary;
+        } finally {
+            app.close();
+            if (memory != null) {
+                memory.close();
+            }
+        }
+    }
+
+    // Command-line args outrank application.properties; -D system properties still win over these defaults
+    private String[] appArgs(String endpoint) {
+        Map<String, String> props = new TreeMap<>();
+        props.put("server.port", "0");
+        props.put("server.tomcat.mbeanregistry.enabled", "true");
+        props.put("aws.dynamodb.endpoint", endpoint);
+        props.put("aws.region", "us-east-1");
+        props.put("aws.access-key-id", "bench");
+        props.put("aws.secret-access-key", "bench");
+        props.put("aws.dynamodb.user-table-name", USER_TABLE);
+        props.put("aws.dynamodb.otp-table-name", OTP_TABLE);
+        props.put("aws.dynamodb.revocation-table-name", REVOCATION_TABLE);
+        props.put("aws.dynamodb.refresh-token-table-name", REFRESH_TOKEN_TABLE);
+        props.put("aws.dynamodb.signing-key-table-name", SIGNING_KEY_TABLE);
+        props.put("app.password.bcrypt-strength", Integer.toString(BCRYPT_STRENGTH));
+        props.put("app.rate-limit.enabled", "false"); // every client shares 127.0.0.1
+        props.put("spring.mail.host", "127.0.0.1");
+        props.put("spring.mail.port", "1"); // nothing listens: OTP mails fail fast in the outbox
+        props.put("app.mail.outbox.max-attempts", "1");
+        props.put("jwt.secret", "load-test-secret-load-test-secret-load-test-secret-0123456789");
+        props.put("app.metrics.scrape-token", METRICS_SCRAPE_TOKEN);
+
+        String latency = System.getProperty("faultLatencyMs", "0");
+        String jitter = System.getProperty("faultJitterMs", "0");
+        String throttle = System.getProperty("faultThrottleRate", "0");
+        boolean faults = !"0".equals(latency) || !"0".equals(jitter) || !"0".equals(throttle);
+        props.put("aws.dynamodb.fault-injection.enabled", Boolean.toString(faults));
+        props.put("aws.dynamodb.fault-injection.latency-ms", latency);
+        props.put("aws.dynamodb.fault-injection.jitter-ms", jitter);
+        props.put("aws.dynamodb.fault-injection.throttle-rate", throttle);
+        props.put("aws.dynamodb.fault-injection.operations", System.getProperty("faultOperations", ""));
+
+        props.keySet().removeIf(key -> System.getProperty(key) != null);
+        props.putAll(appOverrides);
+        return props.entrySet().stream()
+                .map(e -> "--" + e.getKey() + "=" + e.getValue())
+                .toArray(String[]::new);
+    }
+
+    // ---------- setup ----------
+
+    private static void createTables(DynamoDbClient client) {
+        createTable(client, CreateTableRequest.builder()
+                .tableName(USER_TABLE)
+                .billingMode(BillingMode.PAY_PER_REQUEST)
+                .attributeDefinitions(
+                        AttributeDefinition.builder().attributeName("userId").attributeType(ScalarAttributeType.S).build(),
+                        AttributeDefinition.builder().attributeName("email").attributeType(ScalarAttributeType.S).build())
+                .keySchema(KeySchemaElement.builder().attributeName("userId").keyType(KeyType.HASH).build())
+                .globalSecondaryIndexes(GlobalSecondaryIndex.builder()
+                        .indexName("EmailIndex")
+                        .keySchema(KeySchemaElement.builder().attributeName("email").keyType(KeyType.HASH).build())
+                        .projection(Projection.builder().projectionType(ProjectionType.ALL).build())
+                        .build())
+                .build());
+        createTable(client, CreateTableRequest.builder()
+                .tableName(OTP_TABLE)
+                .billingMode(BillingMode.PAY_PER_REQUEST)
+                .attributeDefinitions(
+                        AttributeDefinition.builder().attributeName("email").attributeType(ScalarAttributeType.S).build())
+                .keySchema(KeySchemaElement.builder().attributeName("email").keyType(KeyType.HASH).build())
+                .build());
+        createTable(client, CreateTableRequest.builder()
+                .tableName(REVOCATION_TABLE)
+                .billingMode(BillingMode.PAY_PER_REQUEST)
+                .attributeDefinitions(
+                        AttributeDefinition.builder().attributeName("bucket").attributeType(ScalarAttributeType.S).build(),
+                        AttributeDefinition.builder().attributeName("sk").attributeType(ScalarAttributeType.S).build())
+                .keySchema(
+                        KeySchemaElement.builder().attributeName("bucket").keyType(KeyType.HASH).build(),
+                        KeySchemaElement.builder().attributeName("sk").keyType(KeyType.RANGE).build())
+                .build());
+        createTable(client, CreateTableRequest.builder()
+                .tableName(REFRESH_TOKEN_TABLE)
+                .billingMode(BillingMode.PAY_PER_REQUEST)
+                .attributeDefinitions(
+                        AttributeDefinition.builder().attributeName("familyId").attributeType(ScalarAttributeType.S).build())
+                .keySchema(KeySchemaElement.builder().attributeName("familyId").keyType(KeyType.HASH).build())
+                .build());
+        createTable(client, CreateTableRequest.builder()
+                .tableName(SIGNING_KEY_TABLE)
+                .billingMode(BillingMode.PAY_PER_REQUEST)
+                .attributeDefinitions(
+                        AttributeDefinition.builder().attributeName("kid").attributeType(ScalarAttributeType.S).build())
+                .keySchema(KeySchemaElement.builder().attributeName("kid").keyType(KeyType.HASH).build())
+                .build());
+    }
+
+    private static void createTable(DynamoDbClient client, CreateTableRequest request) {
+        try {
+            client.createTable(request);
+        } catch (ResourceInUseException e) {
+            // already there from a previous run against DynamoDB Local
+        }
+    }
+
+    // Written straight to the table (one shared hash) so seeding costs neither BCrypt per user nor app traffic
+    private void seedUsers(DynamoDbClient client) {
+        long start = System.nanoTime();
+        String hash = "{bcrypt}" + new BCryptPasswordEncoder(BCRYPT_STRENGTH).encode(PASSWORD);
+        String now = Instant.now().toString();
+        List<WriteRequest> batch = new ArrayList<>(25);
+        for (int i = 0; i < USERS; i++) {
+            User user = new User();
+            user.setUserId(runId + "-" + i);
+            user.setEmail(seededEmail(i));
+            user.setUsername("lt_" + runId + "_" + i);
+            user.setPasswordHash(hash);
+            user.setFirstName("Load");
+            user.setLastName("Test");
+            user.setPhone("+15550100");
+            user.setDateOfBirth("1990-01-01");
+            user.setRiskAppetite("MEDIUM");
+            user.setExperience("INTERMEDIATE");
+            user.setInvestmentGoal("GROWTH");
+            user.setCreatedAt(now);
+            user.setUpdatedAt(now);
+            user.setVersion(1);
+            for (Map<String, AttributeValue> item : List.of(
+                    UserItemMapper.toItem(user),
+                    UserRepository.emailSentinelItem(user.getEmail(), user.getUserId()),
+                    UserRepository.usernameSentinelItem(user.getUsername(), user.getUserId()))) {
+                batch.add(WriteRequest.builder().putRequest(PutRequest.builder().item(item).build()).build());
+                if (batch.size() == 25) {
+                    writeBatch(client, batch);
+                }
+            }
+        }
+        writeBatch(client, batch);
+        System.out.printf("seeded %d users in %d ms%n", USERS, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private static void writeBatch(DynamoDbClient client, List<WriteRequest> batch) {
+        Map<String, List<WriteRequest>> pending = Map.of(USER_TABLE, new ArrayList<>(batch));
+        while (!pending.isEmpty()) {
+            pending = client.batchWriteItem(BatchWriteItemRequest.builder().requestItems(pending).build())
+                    .unprocessedItems();
+        }
+        batch.clear();
+    }
+
+    private String seededEmail(int i) {
+        return "lt-" + runId + "-" + i + "@example.com";
+    }
+
+    // Signed by the app's own JwtUtils, so dashboard traffic does not depend on logins surviving injected faults
+    private void mintTokens(JwtUtils jwtUtils, int count) {
+        for (int i = 0; i < count; i++) {
+            tokens.add(jwtUtils.generateJwtToken(seededEmail(i), runId + "-" + i, "USER"));
+        }
+    }
+
+    // ---------- traffic ----------
+
+    private long drive(int seconds, String phase) throws InterruptedException {
+        int[] weights = parseMix();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        LongAdder completed = new LongAdder();
+        ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor();
+        for (int c = 0; c < CONCURRENCY; c++) {
+            clients.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    String operation = pick(weights);
+                    long t0 = System.nanoTime();
+                    int status;
+                    try {
+                        status = execute(operation).statusCode();
+                    } catch (Exception e) {
+                        status = -1; // client-side timeout or connection failure
+                    }
+                    record(operation, status, System.nanoTime() - t0);
+                    completed.increment();
+                }
+            });
+        }
+        clients.shutdown();
+        while (!clients.awaitTermination(5, TimeUnit.SECONDS)) {
+            System.out.printf("  [%s] %d requests so far%n", phase, completed.sum());
+        }
+        return System.nanoTime() - start;
+    }
+
+    private HttpResponse<String> execute(String operation) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return switch (operation) {
+            case "login" -> keepRefreshToken(post("/api/auth/login",
+                    "{\"email\":\"" + seededEmail(random.nextInt(USERS)) + "\",\"password\":\"" + PASSWORD + "\"}"));
+            case "refresh" -> {
+                String refreshToken = refreshTokens.poll();
+                yield refreshToken == null
+                        ? execute("login") // no session to renew yet
+                        : keepRefreshToken(post("/api/auth/refresh", "{\"refreshToken\":\"" + refreshToken + "\"}"));
+            }
+            case "dashboard" -> http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/dashboard"))
+                    .header("Authorization", "Bearer " + tokens.get(random.nextInt(tokens.size())))
+                    .timeout(REQUEST_TIMEOUT)
+                    .GET().build(), HttpResponse.BodyHandlers.ofString());
+            case "register" -> {
+                long n = registrations.incrementAndGet();
+                yield post("/api/auth/register", """
+                        {"personalInfo":{"firstName":"New","lastName":"User","email":"lt-new-%1$s-%2$d@example.com",
+                         "phone":"+15550101","dateOfBirth":"1991-02-03"},
+                         "account":{"username":"lt_new_%1$s_%2$d","password":"%3$s"},
+                         "investmentProfile":{"riskAppetite":"LOW","experience":"BEGINNER","investmentGoal":"INCOME"}}
+                        """.formatted(runId, n, PASSWORD));
+            }
+            default -> post("/api/auth/forgot-password",
+                    "{\"email\":\"" + seededEmail(random.nextInt(USERS)) + "\"}");
+        };
+    }
+
+    private HttpResponse<String> keepRefreshToken(HttpResponse<String> response) {
+        if (response.statusCode() == 200) {
+            Matcher matcher = REFRESH_TOKEN.matcher(response.body());
+            if (matcher.find()) {
+                refreshTokens.add(matcher.group(1));
+            }
+        }
+        return response;
+    }
+
+    private HttpResponse<String> post(String path, String json) throws Exception {
+        return http.send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .timeout(REQUEST_TIMEOUT)
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void record(String operation, int status, long nanos) {
+        latencies.computeIfAbsent(operation, k -> new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(1), 3))
+                .recordValue(Math.min(nanos, TimeUnit.MINUTES.toNanos(1)));
+        statuses.computeIfAbsent(operation, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(status, k -> new LongAdder())
+                .increment();
+    }
+
+    private static int[] parseMix() {
+        int[] weights = new int[OPERATIONS.length];
+        for (String entry : MIX.split(",")) {
+            String[] parts = entry.trim().split("=");
+            for (int i = 0; i < OPERATIONS.length; i++) {
+                if (OPERATIONS[i].equals(parts[0].trim())) {
+                    weights[i] = Integer.parseInt(parts[1].trim());
+                }
+            }
+        }
+        return weights;
+    }
+
+    private static String pick(int[] weights) {
+        int total = 0;
+        for (int w : weights) {
+            total += w;
+        }
+        int roll = ThreadLocalRandom.current().nextInt(total);
+        for (int i = 0; i < weights.length; i++) {
+            roll -= weights[i];
+            if (roll < 0) {
+                return OPERATIONS[i];
+            }
+        }
+        return OPERATIONS[0];
+    }
+
+    // ---------- reporting ----------
+
+    private Summary report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long total = 0;
+        Histogram all = new Histogram(TimeUnit.MINUTES.toNanos(1), 3);
+        System.out.printf("%n%-10s %8s %9s %9s %9s %9s %9s %9s  %s%n",
+                "operation", "count", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "status codes");
+        for (String operation : OPERATIONS) {
+            Histogram h = latencies.get(operation);
+            if (h == null) {
+                continue;
+            }
+            total += h.getTotalCount();
+            all.add(h);
+            System.out.printf("%-10s %8d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f  %s%n",
+                    operation, h.getTotalCount(), h.getTotalCount() / seconds,
+                    ms(h.getValueAtPercentile(50)), ms(h.getValueAtPercentile(90)),
+                    ms(h.getValueAtPercentile(99)), ms(h.getValueAtPercentile(99.9)), ms(h.getMaxValue()),
+                    new TreeMap<>(statuses.getOrDefault(operation, Map.of())));
+        }
+        System.out.printf("total      %8d %9.1f%n", total, total / seconds);
+        return new Summary(total, seconds, all);
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1e6;
+    }
+
+    // How the breaker, degraded mode, hashing bulkhead and servlet pool behaved during the run
+    private void printAppMetrics() throws Exception {
+        String metrics = http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/prometheus"))
+                        .header("Authorization", "Bearer " + METRICS_SCRAPE_TOKEN).GET().build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        System.out.println("\napp metrics:");
+        metrics.lines()
+                .filter(line -> !line.startsWith("#"))
+                .filter(line -> line.startsWith("circuit_breaker_")
+                        || line.startsWith("dynamodb_email_index_degraded")
+                        || line.startsWith("dynamodb_requests_seconds_count")
+                        || line.startsWith("password_hasher_")
+                        || line.startsWith("auth_failures")
+                        || line.startsWith("mail_outbox_messages")
+                        || line.startsWith("tomcat_threads_"))
+                .forEach(line -> System.out.println("  " + line));
+    }
+}
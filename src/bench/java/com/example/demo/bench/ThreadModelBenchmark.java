@@ -0,0 +1,58 @@
+package com.example.demo.bench;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tomcat's platform-thread pool vs virtual threads, measured on the real endpoints.
+ *
+ * - Runs LoadTest once per mode against the in-process app: spring.threads.virtual.enabled=false
+ *   (server.tomcat.threads.max=platformThreads), then true. Backend, mix, concurrency and injected
+ *   DynamoDB latency are the same for both; each run boots a fresh app and has its own warm-up phase.
+ * - Defaults differ from LoadTest's so the thread model matters: concurrency=400 clients (more than the
+ *   200 Tomcat threads) and faultLatencyMs=20, so requests block on a DynamoDB-like round trip instead of
+ *   the in-memory backend's microseconds.
+ * - Client, app and backend share one JVM and its cores: compare the two modes, not absolute numbers.
+ * Prints LoadTest's per-operation tables for each mode, then throughput and p50/p99/p99.9/max of both.
+ *
+ * Run: mvn -Pbench test-compile exec:java
+ * Tunables: every LoadTest tunable (concurrency, durationSeconds, mix, faultLatencyMs, ...), platformThreads
+ */
+public class ThreadModelBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        // LoadTest reads its tunables from system properties when the class loads, so set defaults first
+        defaultProperty("concurrency", "400");
+        defaultProperty("faultLatencyMs", "20");
+        String platformThreads = System.getProperty("platformThreads", "200");
+
+        Map<String, LoadTest.Summary> results = new LinkedHashMap<>();
+        System.out.println("=== platform (" + platformThreads + " Tomcat threads) ===");
+        results.put("platform", new LoadTest(Map.of(
+                "spring.threads.virtual.enabled", "false",
+                "server.tomcat.threads.max", platformThreads)).run());
+        System.out.println("\n=== virtual ===");
+        results.put("virtual", new LoadTest(Map.of(
+                "spring.threads.virtual.enabled", "true")).run());
+
+        System.out.printf("%nconcurrency=%s faultLatencyMs=%s platformThreads=%s%n",
+                System.getProperty("concurrency"), System.getProperty("faultLatencyMs"), platformThreads);
+        System.out.printf("%-9s %8s %9s %9s %9s %9s %9s%n", "mode", "requests", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        results.forEach((mode, summary) -> {
+            Histogram h = summary.latencies();
+            System.out.printf("%-9s %8d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    mode, summary.requests(), summary.throughput(),
+                    h.getValueAtPercentile(50) / 1e6, h.getValueAtPercentile(99) / 1e6,
+                    h.getValueAtPercentile(99.9) / 1e6, h.getMaxValue() / 1e6);
+        });
+        System.exit(0);
+    }
+
+    private static void defaultProperty(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+}
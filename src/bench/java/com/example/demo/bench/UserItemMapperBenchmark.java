@@ -0,0 +1,64 @@
+package com.example.demo.bench;
+
+import com.example.demo.model.User;
+import com.example.demo.repository.UserItemMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Item mapping on every read (mapToUser) and every write (toItem, the item built by save/create).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserItemMapperBenchmark {
+
+    private User user;
+    private Map<String, AttributeValue> item;
+
+    @Setup
+    public void setUp() {
+        user = new User();
+        user.setUserId("0b6f7c1e-2f1d-4c55-9d0e-7d7e5c1a2b3c");
+        user.setEmail("jane@example.com");
+        user.setUsername("jane");
+        user.setPasswordHash("{bcrypt}$2a$12$R9h/cIPz0gi.URNNX3kh2OPST9/PgBkqquzi.Ss7KIUgO2t0jWMUW");
+        user.setRole("USER");
+        user.setFirstName("Jane");
+        user.setLastName("Doe");
+        user.setPhone("+15550100");
+        user.setDateOfBirth("1990-04-01");
+        user.setRiskAppetite("MEDIUM");
+        user.setExperience("INTERMEDIATE");
+        user.setInvestmentGoal("RETIREMENT");
+        user.setCreatedAt("2024-01-01T00:00:00Z");
+        user.setUpdatedAt("2024-01-01T00:00:00Z");
+        user.setVersion(3);
+        item = UserItemMapper.toItem(user);
+    }
+
+    @Benchmark
+    public User mapToUser() {
+        return UserItemMapper.mapToUser(item);
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> toItem() {
+        return UserItemMapper.toItem(user);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.demo.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.StringUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AuthTokenFilter.parseJwt for a Bearer header vs. the jwtToken cookie the frontend sends.
+ * legacyParseJwt is the previous String.split-based version, kept as the baseline.
+ * Lives in the security package to reach the package-private cookieValue scanner.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseJwtBenchmark {
+
+    // Shape of a real token: header.payload.signature, ~200 chars
+    private static final String TOKEN = "eyJhbGciOiJIUzM4NCJ9."
+            + "eyJzdWIiOiJqYW5lQGV4YW1wbGUuY29tIiwidWlkIjoiMGI2ZjdjMWUtMmYxZC00YzU1LTlkMGUtN2Q3ZTVjMWEyYjNjIiwicm9sZSI6IlVTRVIifQ."
+            + "c2lnbmF0dXJlc2lnbmF0dXJlc2lnbmF0dXJlc2lnbmF0dXJlc2lnbmF0dXJl";
+
+    @Param({"header", "cookie", "none"})
+    public String source;
+
+    private HttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+        MockHttpServletRequest mock = new MockHttpServletRequest("GET", "/api/dashboard");
+        switch (source) {
+            case "header" -> mock.addHeader("Authorization", "Bearer " + TOKEN);
+            // Browsers send every cookie for the domain; put the token between analytics cookies
+            case "cookie" -> mock.addHeader("Cookie",
+                    "_ga=GA1.1.123456789.1700000000; jwtToken=" + TOKEN + "; theme=dark; _gid=GA1.1.987654321.1700000000");
+            default -> mock.addHeader("Cookie", "_ga=GA1.1.123456789.1700000000; theme=dark");
+        }
+        request = mock;
+    }
+
+    @Benchmark
+    public String parseJwt() {
+        return AuthTokenFilter.parseJwt(request);
+    }
+
+    @Benchmark
+    public String legacyParseJwt() {
+        String headerAuth = request.getHeader("Authorization");
+        if (StringUtils.hasText(headerAuth) && headerAuth.startsWith("Bearer ")) {
+            return headerAuth.substring(7);
+        }
+        String cookieJwt = request.getHeader("Cookie");
+        if (cookieJwt != null && cookieJwt.contains("jwtToken=")) {
+            return cookieJwt.split("jwtToken=")[1].split(";")[0];
+        }
+        return null;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.demo.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Small in-process LRU cache with a per-entry expiry.
+ * - Size-bounded: the least recently used entry is evicted once maxSize is reached.
+ * - Entries expire after ttlMs (or an explicit deadline passed to put).
+ * - Hit/miss/eviction counters are kept so the cache can be sized from real traffic.
+ * A maxSize of 0 disables caching entirely (every get is a miss, put is a no-op).
+ * Guarded by a ReentrantLock rather than synchronized so virtual threads are not pinned.
+ */
+public class BoundedCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlMs;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    public BoundedCache(int maxSize, long ttlMs) {
+        this.maxSize = Math.max(0, maxSize);
+        this.ttlMs = ttlMs;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > BoundedCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    public V get(K key) {
+        if (!isEnabled()) {
+            misses.incrementAndGet();
+            return null;
+        }
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            if (entry.expiresAt <= System.currentTimeMillis()) {
+                // Expired entries stay until overwritten or evicted so getStale can serve them
+                expirations.incrementAndGet();
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return entry.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the entry even if it has expired (but has not been evicted yet).
+     * Meant for degraded answers while the backing store is unavailable.
+     */
+    public V getStale(K key) {
+        if (!isEnabled()) {
+            return null;
+        }
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            return entry != null ? entry.value : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(K key, V value) {
+        put(key, value, System.currentTimeMillis() + ttlMs);
+    }
+
+    // Stores with the earlier of the cache TTL and the caller's own deadline
+    public void put(K key, V value, long expiresAtMillis) {
+        if (!isEnabled() || value == null) {
+            return;
+        }
+        long expiresAt = Math.min(expiresAtMillis, System.currentTimeMillis() + ttlMs);
+        lock.lock();
+        try {
+            entries.put(key, new Entry<>(value, expiresAt));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        if (!isEnabled()) {
+            return;
+        }
+        lock.lock();
+        try {
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMaxSize() { return maxSize; }
+    public long getHitCount() { return hits.get(); }
+    public long getMissCount() { return misses.get(); }
+    public long getEvictionCount() { return evictions.get(); }
+    public long getExpirationCount() { return expirations.get(); }
+
+    private record Entry<V>(V value, long expiresAt) {}
+}
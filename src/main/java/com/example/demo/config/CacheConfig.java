@@ -0,0 +1,42 @@
+package com.example.demo.config;
+
+import com.example.demo.cache.BoundedCache;
+import com.example.demo.model.UserCredentials;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Map;
+
+/**
+ * In-process caches in front of DynamoDB.
+ * - userItemCache holds raw user items keyed by normalized email (read-through in UserRepository).
+ * - credentialsCache holds projected credentials for auth paths, same size, own short TTL: writes
+ *   only invalidate the local node, so this bounds how long another node accepts an old password.
+ * - Set app.user-cache.max-size=0 to disable.
+ */
+@Configuration
+public class CacheConfig {
+
+    @Value("${app.user-cache.max-size:10000}")
+    private int userCacheMaxSize;
+
+    @Value("${app.user-cache.ttl-seconds:60}")
+    private long userCacheTtlSeconds;
+
+    @Value("${app.user-cache.credentials-ttl-seconds:5}")
+    private long credentialsTtlSeconds;
+
+    @Bean
+    public BoundedCache<String, Map<String, AttributeValue>> userItemCache() {
+        System.out.println("CacheConfig: user cache max-size=" + userCacheMaxSize + ", ttl=" + userCacheTtlSeconds
+                + "s, credentials ttl=" + credentialsTtlSeconds + "s");
+        return new BoundedCache<>(userCacheMaxSize, userCacheTtlSeconds * 1000);
+    }
+
+    @Bean
+    public BoundedCache<String, UserCredentials> credentialsCache() {
+        return new BoundedCache<>(userCacheMaxSize, credentialsTtlSeconds * 1000);
+    }
+}
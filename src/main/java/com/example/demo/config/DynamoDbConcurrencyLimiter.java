@@ -0,0 +1,63 @@
+package com.example.demo.config;
+
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps in-flight DynamoDB calls at the HTTP connection pool size; installed only with virtual threads.
+ * - Apache HttpClient 4.5 waits for a pooled connection inside a synchronized method, which pins the
+ *   carrier. Once every carrier is pinned that way, the threads holding connections never get a carrier
+ *   back to return them and all requests hang.
+ * - Waiting on this Semaphore unmounts the virtual thread instead, and the pool itself never runs dry.
+ * - One permit per API call, held across SDK retries; waits at most acquireTimeoutMs, like the pool would.
+ */
+public class DynamoDbConcurrencyLimiter implements ExecutionInterceptor {
+
+    private static final ExecutionAttribute<Boolean> HOLDS_PERMIT = new ExecutionAttribute<>("ConcurrencyLimiterPermit");
+
+    private final Semaphore permits;
+    private final long acquireTimeoutMs;
+
+    public DynamoDbConcurrencyLimiter(int maxConcurrency, long acquireTimeoutMs) {
+        this.permits = new Semaphore(maxConcurrency);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+    }
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw SdkClientException.create("Timed out waiting for a DynamoDB connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw SdkClientException.create("Interrupted waiting for a DynamoDB connection", e);
+        }
+        executionAttributes.putAttribute(HOLDS_PERMIT, true);
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        release(executionAttributes);
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        release(executionAttributes);
+    }
+
+    private void release(ExecutionAttributes executionAttributes) {
+        if (Boolean.TRUE.equals(executionAttributes.getAttribute(HOLDS_PERMIT))) {
+            executionAttributes.putAttribute(HOLDS_PERMIT, false);
+            permits.release();
+        }
+    }
+
+    public int getAvailablePermits() { return permits.availablePermits(); }
+}
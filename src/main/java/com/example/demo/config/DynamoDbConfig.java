@@ -1,28 +1,41 @@
 package com.example.demo.config;
 
+import com.example.demo.resilience.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
-import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
-import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 
 import java.net.URI;
-import java.util.Optional;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
- * DynamoDb client configuration:
+ * DynamoDb client configuration (one synchronous client; there is no DynamoDbAsyncClient: register is a
+ * single transaction and no caller composes futures, so a second Netty-based client would only add threads):
  * - If AWS_ACCESS_KEY_ID and AWS_SECRET_ACCESS_KEY are present (env), use them.
  * - Otherwise fall back to DefaultCredentialsProvider (IAM role on Render).
  * - Optional endpoint override ONLY used when aws.dynamodb.endpoint is set (dev).
+ * - EmailIndex queries go through one shared circuit breaker.
+ * - Every call is timed through DynamoDbMetricsInterceptor.
+ * - Load tests can slow down / throttle the client with aws.dynamodb.fault-injection.*.
+ * - The Apache HTTP connection pool is sized by aws.dynamodb.max-connections; with virtual threads,
+ *   DynamoDbConcurrencyLimiter keeps callers from waiting on the pool (which would pin carriers).
  */
 @Configuration
 public class DynamoDbConfig {
 
+    private final MeterRegistry meterRegistry;
+
     @Value("${aws.region:us-east-1}")
     private String region;
 
@@ -36,20 +49,73 @@ public class DynamoDbConfig {
     @Value("${aws.secret-access-key:#{null}}")
     private String secretKey;
 
+    // Apache HTTP connection pool; with virtual threads also the cap on in-flight calls
+    @Value("${aws.dynamodb.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${aws.dynamodb.connection-acquire-timeout-ms:10000}")
+    private long connectionAcquireTimeoutMs;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // EmailIndex circuit breaker: trips when failure-rate % of the last window-size calls failed
+    @Value("${aws.dynamodb.email-index.breaker.window-size:20}")
+    private int breakerWindowSize;
+
+    @Value("${aws.dynamodb.email-index.breaker.minimum-calls:10}")
+    private int breakerMinimumCalls;
+
+    @Value("${aws.dynamodb.email-index.breaker.failure-rate:50}")
+    private int breakerFailureRate;
+
+    @Value("${aws.dynamodb.email-index.breaker.open-seconds:30}")
+    private long breakerOpenSeconds;
+
+    public DynamoDbConfig(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Load-test only: artificial latency and throttling on the sync client
+    @Value("${aws.dynamodb.fault-injection.enabled:false}")
+    private boolean faultInjectionEnabled;
+
+    @Value("${aws.dynamodb.fault-injection.latency-ms:0}")
+    private long faultLatencyMs;
+
+    @Value("${aws.dynamodb.fault-injection.jitter-ms:0}")
+    private long faultJitterMs;
+
+    @Value("${aws.dynamodb.fault-injection.throttle-rate:0}")
+    private double faultThrottleRate;
+
+    @Value("${aws.dynamodb.fault-injection.operations:}")
+    private String faultOperations;
+
+    @Bean
+    public CircuitBreaker emailIndexCircuitBreaker() {
+        return new CircuitBreaker("EmailIndex", breakerWindowSize, breakerMinimumCalls,
+                breakerFailureRate, breakerOpenSeconds * 1000);
+    }
+
     @Bean
     public DynamoDbClient dynamoDbClient() {
         var builder = DynamoDbClient.builder()
-                .region(Region.of(region));
-
-        // If explicit accessKey/secretKey provided in env (only use if both present)
-        if (accessKey != null && !accessKey.isBlank() && secretKey != null && !secretKey.isBlank()) {
-            builder.credentialsProvider(
-                    StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey.trim(), secretKey.trim()))
-            );
-        } else {
-            // prefer env/profile/instance-role (DefaultCredentialsProvider)
-            builder.credentialsProvider(DefaultCredentialsProvider.create());
-        }
+                .region(Region.of(region))
+                .credentialsProvider(credentialsProvider())
+                .httpClientBuilder(ApacheHttpClient.builder()
+                        .maxConnections(maxConnections)
+                        .connectionAcquisitionTimeout(Duration.ofMillis(connectionAcquireTimeoutMs)))
+                .overrideConfiguration(c -> {
+                    if (virtualThreads) {
+                        c.addExecutionInterceptor(new DynamoDbConcurrencyLimiter(maxConnections, connectionAcquireTimeoutMs));
+                    }
+                    c.addExecutionInterceptor(new DynamoDbMetricsInterceptor(meterRegistry));
+                    if (faultInjectionEnabled) {
+                        c.addExecutionInterceptor(new DynamoDbFaultInjectionInterceptor(faultLatencyMs, faultJitterMs,
+                                faultThrottleRate, parseOperations(faultOperations)));
+                    }
+                });
 
         // Optional endpoint override for local/dev (set aws.dynamodb.endpoint only for local)
         if (endpoint != null && !endpoint.isBlank()) {
@@ -60,4 +126,20 @@ public class DynamoDbConfig {
 
         return builder.build();
     }
+
+    private static Set<String> parseOperations(String operations) {
+        return Arrays.stream(operations.split(","))
+                .map(String::trim)
+                .filter(op -> !op.isEmpty())
+                .collect(Collectors.toSet());
+    }
+
+    private AwsCredentialsProvider credentialsProvider() {
+        // If explicit accessKey/secretKey provided in env (only use if both present)
+        if (accessKey != null && !accessKey.isBlank() && secretKey != null && !secretKey.isBlank()) {
+            return StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey.trim(), secretKey.trim()));
+        }
+        // prefer env/profile/instance-role (DefaultCredentialsProvider)
+        return DefaultCredentialsProvider.create();
+    }
 }
@@ -0,0 +1,72 @@
+package com.example.demo.config;
+
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Test-only degraded backend for load tests (aws.dynamodb.fault-injection.enabled=true, never in production).
+ * Runs before each HTTP attempt, so the SDK's own retries see every fault:
+ * - adds latencyMs + random(0..jitterMs) of blocking delay to the calling thread;
+ * - fails throttleRate (0..1) of attempts with ProvisionedThroughputExceededException.
+ * operations limits injection to the named operations (e.g. Query,GetItem); empty means all.
+ */
+public class DynamoDbFaultInjectionInterceptor implements ExecutionInterceptor {
+
+    private final long latencyMs;
+    private final long jitterMs;
+    private final double throttleRate;
+    private final Set<String> operations;
+
+    private final AtomicLong delayedCount = new AtomicLong();
+    private final AtomicLong throttledCount = new AtomicLong();
+
+    public DynamoDbFaultInjectionInterceptor(long latencyMs, long jitterMs, double throttleRate, Set<String> operations) {
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.throttleRate = throttleRate;
+        this.operations = operations;
+        System.out.println("DynamoDB fault injection ENABLED: latency=" + latencyMs + "ms (+" + jitterMs
+                + "ms jitter), throttle-rate=" + throttleRate + ", operations=" + (operations.isEmpty() ? "all" : operations));
+    }
+
+    @Override
+    public void beforeTransmission(Context.BeforeTransmission context, ExecutionAttributes executionAttributes) {
+        String operation = executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+        if (!operations.isEmpty() && !operations.contains(operation)) {
+            return;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = latencyMs + (jitterMs > 0 ? random.nextLong(jitterMs + 1) : 0);
+        if (delay > 0) {
+            delayedCount.incrementAndGet();
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (throttleRate > 0 && random.nextDouble() < throttleRate) {
+            throttledCount.incrementAndGet();
+            throw ProvisionedThroughputExceededException.builder()
+                    .message("Injected throttle on " + operation)
+                    .statusCode(400)
+                    .awsErrorDetails(AwsErrorDetails.builder()
+                            .errorCode("ProvisionedThroughputExceededException")
+                            .serviceName("DynamoDb")
+                            .errorMessage("Injected throttle on " + operation)
+                            .build())
+                    .build();
+        }
+    }
+
+    public long getDelayedCount() { return delayedCount.get(); }
+    public long getThrottledCount() { return throttledCount.get(); }
+}
@@ -0,0 +1,68 @@
+package com.example.demo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every DynamoDB call made through the SDK client, including SDK retries.
+ * Recorded as "dynamodb.requests" tagged with the operation (Query, PutItem, TransactWriteItems, ...)
+ * and the outcome: success, condition_failed, throttled or error.
+ */
+public class DynamoDbMetricsInterceptor implements ExecutionInterceptor {
+
+    private static final ExecutionAttribute<Long> START_NANOS = new ExecutionAttribute<>("MetricsStartNanos");
+
+    private final MeterRegistry meterRegistry;
+
+    public DynamoDbMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        executionAttributes.putAttribute(START_NANOS, System.nanoTime());
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        record(executionAttributes, "success");
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        record(executionAttributes, outcome(context.exception()));
+    }
+
+    private void record(ExecutionAttributes executionAttributes, String outcome) {
+        Long start = executionAttributes.getAttribute(START_NANOS);
+        if (start == null) {
+            return;
+        }
+        Timer.builder("dynamodb.requests")
+                .tag("operation", String.valueOf(executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME)))
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    // Conditional failures are expected (duplicates, optimistic locking) and kept apart from real errors
+    private static String outcome(Throwable e) {
+        if (e instanceof ConditionalCheckFailedException || e instanceof TransactionCanceledException) {
+            return "condition_failed";
+        }
+        if (e instanceof AwsServiceException ase && ase.isThrottlingException()) {
+            return "throttled";
+        }
+        return "error";
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.demo.config;
+
+import com.example.demo.cache.BoundedCache;
+import com.example.demo.model.UserCredentials;
+import com.example.demo.resilience.CircuitBreaker;
+import com.example.demo.resilience.RateLimiter;
+import com.example.demo.security.JwtUtils;
+import com.example.demo.security.PasswordHasher;
+import com.example.demo.security.RateLimitFilter;
+import com.example.demo.security.SigningKeyRing;
+import com.example.demo.security.TokenDenylist;
+import com.example.demo.service.EmailOutbox;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Map;
+
+/**
+ * Gauges and counters over the state the components already track, exported via /actuator/prometheus.
+ * Latency timers live next to the code they measure:
+ * - dynamodb.requests (DynamoDbMetricsInterceptor), password.hash, jwt.operations,
+ *   mail.otp.send, mail.outbox.batch
+ * - http.server.requests covers each controller endpoint (Spring Boot built-in)
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder cacheMetrics(BoundedCache<String, Map<String, AttributeValue>> userItemCache,
+                                    BoundedCache<String, UserCredentials> credentialsCache,
+                                    JwtUtils jwtUtils) {
+        return registry -> {
+            bindCache(registry, "users", userItemCache);
+            bindCache(registry, "credentials", credentialsCache);
+            bindCache(registry, "jwt-verified", jwtUtils.getVerifiedTokenCache());
+        };
+    }
+
+    @Bean
+    public MeterBinder passwordHasherMetrics(PasswordHasher passwordHasher) {
+        return registry -> {
+            Gauge.builder("password.hasher.queue", passwordHasher, PasswordHasher::getQueueDepth)
+                    .register(registry);
+            Gauge.builder("password.hasher.active", passwordHasher, PasswordHasher::getActiveCount)
+                    .register(registry);
+            Gauge.builder("password.hasher.threads", passwordHasher, PasswordHasher::getPoolSize)
+                    .register(registry);
+            FunctionCounter.builder("password.hasher.rejected", passwordHasher, PasswordHasher::getRejectedCount)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder emailOutboxMetrics(EmailOutbox outbox) {
+        return registry -> {
+            Gauge.builder("mail.outbox.queue", outbox, EmailOutbox::getQueueDepth).register(registry);
+            Gauge.builder("mail.outbox.pending.retries", outbox, EmailOutbox::getPendingRetries).register(registry);
+            FunctionCounter.builder("mail.outbox.messages", outbox, EmailOutbox::getSentCount)
+                    .tag("result", "sent").register(registry);
+            FunctionCounter.builder("mail.outbox.messages", outbox, EmailOutbox::getRetriedCount)
+                    .tag("result", "retried").register(registry);
+            FunctionCounter.builder("mail.outbox.messages", outbox, EmailOutbox::getFailedCount)
+                    .tag("result", "failed").register(registry);
+            FunctionCounter.builder("mail.outbox.messages", outbox, EmailOutbox::getRejectedCount)
+                    .tag("result", "rejected").register(registry);
+            FunctionCounter.builder("mail.outbox.connections", outbox, EmailOutbox::getConnectionCount)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder circuitBreakerMetrics(CircuitBreaker emailIndexCircuitBreaker) {
+        return registry -> {
+            CircuitBreaker breaker = emailIndexCircuitBreaker;
+            // 0 = closed, 1 = open, 2 = half-open
+            Gauge.builder("circuit.breaker.state", breaker, b -> b.getState().ordinal())
+                    .tag("name", breaker.getName()).register(registry);
+            FunctionCounter.builder("circuit.breaker.calls", breaker, CircuitBreaker::getSuccessCount)
+                    .tag("name", breaker.getName()).tag("result", "success").register(registry);
+            FunctionCounter.builder("circuit.breaker.calls", breaker, CircuitBreaker::getFailureCount)
+                    .tag("name", breaker.getName()).tag("result", "failure").register(registry);
+            FunctionCounter.builder("circuit.breaker.calls", breaker, CircuitBreaker::getRejectedCount)
+                    .tag("name", breaker.getName()).tag("result", "short_circuited").register(registry);
+            FunctionCounter.builder("circuit.breaker.trips", breaker, CircuitBreaker::getTripCount)
+                    .tag("name", breaker.getName()).register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder rateLimitMetrics(RateLimitFilter rateLimitFilter) {
+        return registry -> {
+            RateLimiter limiter = rateLimitFilter.getLimiter();
+            Gauge.builder("rate.limit.buckets", limiter, RateLimiter::getBucketCount)
+                    .tag("name", limiter.getName()).register(registry);
+            FunctionCounter.builder("rate.limit.requests", limiter, RateLimiter::getAllowedCount)
+                    .tag("name", limiter.getName()).tag("result", "allowed").register(registry);
+            FunctionCounter.builder("rate.limit.requests", limiter, RateLimiter::getRejectedCount)
+                    .tag("name", limiter.getName()).tag("result", "rejected").register(registry);
+            FunctionCounter.builder("rate.limit.evictions", limiter, RateLimiter::getLruEvictedCount)
+                    .tag("name", limiter.getName()).tag("reason", "lru").register(registry);
+            FunctionCounter.builder("rate.limit.evictions", limiter, RateLimiter::getEvictedCount)
+                    .tag("name", limiter.getName()).tag("reason", "refilled").register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder signingKeyMetrics(SigningKeyRing keyRing) {
+        return registry -> Gauge.builder("jwt.signing.keys", keyRing, SigningKeyRing::getKeyCount).register(registry);
+    }
+
+    @Bean
+    public MeterBinder tokenDenylistMetrics(TokenDenylist denylist) {
+        return registry -> {
+            Gauge.builder("auth.revocations", denylist, TokenDenylist::getRevokedTokenCount)
+                    .tag("kind", "token").register(registry);
+            Gauge.builder("auth.revocations", denylist, TokenDenylist::getRevokedSubjectCount)
+                    .tag("kind", "subject").register(registry);
+            Gauge.builder("auth.revocations.pending.writes", denylist, TokenDenylist::getPendingWriteCount)
+                    .register(registry);
+            FunctionCounter.builder("auth.revocations.rejected", denylist, TokenDenylist::getRejectedCount)
+                    .register(registry);
+            FunctionCounter.builder("auth.revocations.refresh.failures", denylist, TokenDenylist::getRefreshFailureCount)
+                    .register(registry);
+        };
+    }
+
+    private static void bindCache(MeterRegistry registry, String name, BoundedCache<?, ?> cache) {
+        Gauge.builder("app.cache.size", cache, BoundedCache::size).tag("cache", name).register(registry);
+        FunctionCounter.builder("app.cache.gets", cache, BoundedCache::getHitCount)
+                .tag("cache", name).tag("result", "hit").register(registry);
+        FunctionCounter.builder("app.cache.gets", cache, BoundedCache::getMissCount)
+                .tag("cache", name).tag("result", "miss").register(registry);
+        FunctionCounter.builder("app.cache.evictions", cache, BoundedCache::getEvictionCount)
+                .tag("cache", name).register(registry);
+        FunctionCounter.builder("app.cache.expirations", cache, BoundedCache::getExpirationCount)
+                .tag("cache", name).register(registry);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.demo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Password encoder shared by UserService (via PasswordHasher) and Spring Security.
+ * - Hashes are stored with an algorithm prefix, e.g. {bcrypt}$2a$10$..., so several
+ *   algorithms/strengths can coexist; legacy un-prefixed hashes are read as BCrypt.
+ * - BCrypt strength is fixed by app.password.bcrypt-strength (default 10, the strength of existing
+ *   hashes), the same on every node. Raising it rehashes every user on their next login: each step
+ *   doubles the CPU per login for good, and the rehash wave adds one more hash per login until it is done.
+ * - app.password.calibrate-strength=true instead measures this node at startup and picks the strength
+ *   whose hash takes about app.password.target-hash-ms. Opt-in only: nodes on different hardware pick
+ *   different strengths, and each login on the "other" kind of node would rehash the password.
+ * - Hashes whose algorithm or strength differs from the current one report upgradeEncoding=true
+ *   and are rehashed on the next successful login.
+ */
+@Configuration
+public class PasswordEncoderConfig {
+
+    private static final String CALIBRATION_PASSWORD = "calibration-Passw0rd!";
+    private static final int CALIBRATION_STRENGTH = 8;
+
+    @Value("${app.password.bcrypt-strength:10}")
+    private int bcryptStrength;
+
+    @Value("${app.password.calibrate-strength:false}")
+    private boolean calibrateStrength;
+
+    @Value("${app.password.target-hash-ms:250}")
+    private long targetHashMs;
+
+    @Value("${app.password.min-strength:10}")
+    private int minStrength;
+
+    @Value("${app.password.max-strength:14}")
+    private int maxStrength;
+
+    // Algorithm used for new hashes: bcrypt or pbkdf2
+    @Value("${app.password.encoding-id:bcrypt}")
+    private String encodingId;
+
+    @Bean
+    public PasswordEncoder passwordEncoder() {
+        if (!calibrateStrength && (bcryptStrength < 4 || bcryptStrength > 31)) {
+            throw new IllegalStateException("app.password.bcrypt-strength must be between 4 and 31, was " + bcryptStrength);
+        }
+        int strength = calibrateStrength ? calibrateBcryptStrength() : bcryptStrength;
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", bcrypt);
+        encoders.put("pbkdf2", Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(encodingId, encoders);
+        // Hashes written before the prefix was introduced are plain BCrypt
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+
+        System.out.println("PasswordEncoderConfig: encoding-id=" + encodingId + ", bcrypt strength=" + strength);
+        return encoder;
+    }
+
+    /**
+     * BCrypt cost doubles with each strength step, so one measurement at a cheap strength
+     * is enough to extrapolate. Picks the highest strength whose estimate stays within the target.
+     */
+    private int calibrateBcryptStrength() {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(CALIBRATION_STRENGTH);
+        probe.encode(CALIBRATION_PASSWORD); // warm-up (JIT)
+
+        long[] samples = new long[3];
+        for (int i = 0; i < samples.length; i++) {
+            long start = System.nanoTime();
+            probe.encode(CALIBRATION_PASSWORD);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        double baseMs = Math.max(samples[1] / 1_000_000.0, 0.01);
+
+        int strength = minStrength;
+        while (strength < maxStrength
+                && baseMs * Math.pow(2, strength + 1 - CALIBRATION_STRENGTH) <= targetHashMs) {
+            strength++;
+        }
+        System.out.printf("PasswordEncoderConfig: calibrated bcrypt strength=%d (~%.0f ms, target %d ms)%n",
+                strength, baseMs * Math.pow(2, strength - CALIBRATION_STRENGTH), targetHashMs);
+        return strength;
+    }
+}
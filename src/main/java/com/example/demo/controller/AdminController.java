@@ -0,0 +1,86 @@
+package com.example.demo.controller;
+
+import com.example.demo.dto.MessageResponse;
+import com.example.demo.service.UserExportService;
+import com.example.demo.service.UserImportService;
+import com.example.demo.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin-only operations (ROLE_ADMIN, see WebSecurityConfig).
+ */
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    private static final String CSV = "text/csv";
+
+    private final UserImportService userImportService;
+    private final UserExportService userExportService;
+    private final UserService userService;
+
+    public AdminController(UserImportService userImportService, UserExportService userExportService,
+                           UserService userService) {
+        this.userImportService = userImportService;
+        this.userExportService = userExportService;
+        this.userService = userService;
+    }
+
+    /**
+     * Streams NDJSON (application/x-ndjson) or CSV (text/csv) user records in, and one NDJSON
+     * result per record out while the upload is still being read. See UserImportService.
+     * curl -H 'Content-Type: application/x-ndjson' --data-binary @users.ndjson ...
+     */
+    @PostMapping(value = "/users/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, CSV})
+    public void importUsers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        boolean csv = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(MediaType.parseMediaType(CSV));
+        userImportService.checkReady(); // 503 before anything is streamed
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        userImportService.importUsers(request.getInputStream(), csv, response.getOutputStream());
+    }
+
+    /**
+     * Streams all users as NDJSON via a parallel segmented Scan. See UserExportService.
+     * fields: comma-separated subset of UserExportService.EXPORT_FIELDS (default all).
+     */
+    @GetMapping("/users/export")
+    public void exportUsers(@RequestParam(required = false) String fields,
+                            @RequestParam(required = false) Integer segments,
+                            @RequestParam(required = false) Integer workers,
+                            HttpServletResponse response) throws IOException {
+        List<String> exportFields = userExportService.parseFields(fields); // 400 before anything is streamed
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        userExportService.export(exportFields, segments, workers, response.getOutputStream());
+    }
+
+    /**
+     * Signs a user out everywhere: every token issued to them so far is rejected on all nodes
+     * within app.revocation.refresh-seconds (immediately on this one). Body: {"email": "..."}
+     */
+    @PostMapping("/users/revoke-sessions")
+    public ResponseEntity<MessageResponse> revokeSessions(@RequestBody Map<String, String> body) {
+        String email = body.get("email");
+        if (email == null || email.isBlank()) {
+            return ResponseEntity.badRequest().body(new MessageResponse("email is required"));
+        }
+        userService.revokeSessions(email);
+        return ResponseEntity.ok(new MessageResponse("Sessions revoked"));
+    }
+}
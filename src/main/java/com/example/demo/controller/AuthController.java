@@ -1,23 +1,32 @@
 package com.example.demo.controller;
 
 import com.example.demo.dto.*;
+import com.example.demo.exception.BackendUnavailableException;
+import com.example.demo.exception.ConcurrentUpdateException;
+import com.example.demo.exception.TooManyRequestsException;
 import com.example.demo.model.User;
+import com.example.demo.security.AuthTokenFilter;
 import com.example.demo.service.UserService;
 import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
 
+    private static final String JWT_COOKIE = "jwtToken";
+    private static final String REFRESH_COOKIE = "refreshToken";
+    private static final String REFRESH_COOKIE_PATH = "/api/auth";
+
     private final UserService userService;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordEncoder passwordEncoder;
 
     // Cookie security behavior configurable via env (default true in prod)
     @Value("${app.cookie.secure:true}")
@@ -26,7 +35,7 @@ public class AuthController {
     @Value("${app.cookie.domain:#{null}}")
     private String cookieDomain;
 
-    public AuthController(UserService userService, BCryptPasswordEncoder passwordEncoder) {
+    public AuthController(UserService userService, PasswordEncoder passwordEncoder) {
         this.userService = userService;
         this.passwordEncoder = passwordEncoder;
     }
@@ -43,65 +52,89 @@ public class AuthController {
             // ✅ FIXED: userService.login() NOW RETURNS JwtResponse
             JwtResponse jwtResponse = userService.login(loginRequest);
             
-            // Create HttpOnly cookie (server-managed session)
-            Cookie jwtCookie = new Cookie("jwtToken", jwtResponse.getToken());
-            jwtCookie.setHttpOnly(true);
-            jwtCookie.setSecure(cookieSecure); // true in production; false allowed in dev
-            jwtCookie.setPath("/");
-            jwtCookie.setMaxAge(86400); // 24 hours
-            if (cookieDomain != null && !cookieDomain.isBlank()) {
-                jwtCookie.setDomain(cookieDomain);
-            }
-            response.addCookie(jwtCookie);
-
-            // Also add explicit Set-Cookie header (robustness across servlet impls)
-            String sameSite = cookieSecure ? "None" : "Lax";
-            String domainPart = (cookieDomain != null && !cookieDomain.isBlank()) ? "; Domain=" + cookieDomain : "";
-            response.setHeader("Set-Cookie",
-                    String.format("jwtToken=%s; HttpOnly; Path=/; Max-Age=86400; Secure=%s; SameSite=%s%s",
-                            jwtResponse.getToken(),  // ✅ Use from JwtResponse
-                            cookieSecure ? "true" : "false",
-                            sameSite,
-                            domainPart
-                    )
-            );
+            // HttpOnly cookies (server-managed session)
+            setAuthCookies(response, jwtResponse.getToken(), jwtResponse.getExpiresIn(),
+                    jwtResponse.getRefreshToken(), userService.getRefreshTokenTtlSeconds());
 
             // ✅ NOW RETURNS userId IN RESPONSE!
             return ResponseEntity.ok(jwtResponse);
+        } catch (TooManyRequestsException | BackendUnavailableException e) {
+            throw e; // 429 / 503 via GlobalExceptionHandler
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    /**
+     * Exchanges a refresh token (refreshToken cookie, or {"refreshToken": "..."} for non-browser clients)
+     * for a new access token and a new refresh token. The presented refresh token stops working.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody(required = false) java.util.Map<String, String> body,
+                                     HttpServletRequest request, HttpServletResponse response) {
+        try {
+            String refreshToken = body != null && body.get("refreshToken") != null
+                    ? body.get("refreshToken") : AuthTokenFilter.cookieValue(request, REFRESH_COOKIE);
+            if (refreshToken == null || refreshToken.isBlank()) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new MessageResponse("Refresh token required"));
+            }
+            JwtResponse jwtResponse = userService.refresh(refreshToken);
+            setAuthCookies(response, jwtResponse.getToken(), jwtResponse.getExpiresIn(),
+                    jwtResponse.getRefreshToken(), userService.getRefreshTokenTtlSeconds());
+            return ResponseEntity.ok(jwtResponse);
+        } catch (TooManyRequestsException | BackendUnavailableException e) {
+            throw e; // 429 / 503 via GlobalExceptionHandler
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new MessageResponse(e.getMessage()));
         }
     }
 
     /**
-     * Logout endpoint - clears the HttpOnly cookie by sending a deletion Set-Cookie.
+     * Logout endpoint - revokes the presented tokens server-side and clears the HttpOnly cookies by sending deletion Set-Cookies.
      * Frontend MUST call with credentials: 'include' to allow browser to send cookie and accept deletion header.
      */
     @PostMapping("/logout")
-    public ResponseEntity<MessageResponse> logout(HttpServletResponse response) {
-        // Build deletion cookie (same name, path, domain; Max-Age=0)
-        Cookie cookie = new Cookie("jwtToken", "");
+    public ResponseEntity<MessageResponse> logout(HttpServletRequest request, HttpServletResponse response) {
+        userService.logout(AuthTokenFilter.parseJwt(request), AuthTokenFilter.cookieValue(request, REFRESH_COOKIE));
+
+        // Deletion cookies (same name, path, domain; Max-Age=0)
+        setAuthCookies(response, "", 0, "", 0);
+
+        return ResponseEntity.ok(new MessageResponse("Logged out"));
+    }
+
+    // Access token for every path; the refresh token is only ever sent back to /api/auth
+    private void setAuthCookies(HttpServletResponse response, String jwt, long jwtMaxAge,
+                                String refreshToken, long refreshMaxAge) {
+        response.addCookie(cookie(JWT_COOKIE, jwt, "/", jwtMaxAge));
+        response.addCookie(cookie(REFRESH_COOKIE, refreshToken, REFRESH_COOKIE_PATH, refreshMaxAge));
+
+        // Also add explicit Set-Cookie headers (robustness across servlet impls)
+        response.setHeader("Set-Cookie", cookieHeader(JWT_COOKIE, jwt, "/", jwtMaxAge));
+        response.addHeader("Set-Cookie", cookieHeader(REFRESH_COOKIE, refreshToken, REFRESH_COOKIE_PATH, refreshMaxAge));
+    }
+
+    private Cookie cookie(String name, String value, String path, long maxAge) {
+        Cookie cookie = new Cookie(name, value);
         cookie.setHttpOnly(true);
-        cookie.setSecure(cookieSecure);
-        cookie.setPath("/");
-        cookie.setMaxAge(0); // delete immediately
+        cookie.setSecure(cookieSecure); // true in production; false allowed in dev
+        cookie.setPath(path);
+        cookie.setMaxAge((int) maxAge); // 0 deletes immediately
         if (cookieDomain != null && !cookieDomain.isBlank()) {
             cookie.setDomain(cookieDomain);
         }
-        response.addCookie(cookie);
+        return cookie;
+    }
 
-        // Explicit header as well
+    private String cookieHeader(String name, String value, String path, long maxAge) {
         String sameSite = cookieSecure ? "None" : "Lax";
         String domainPart = (cookieDomain != null && !cookieDomain.isBlank()) ? "; Domain=" + cookieDomain : "";
-        response.setHeader("Set-Cookie",
-                String.format("jwtToken=; HttpOnly; Path=/; Max-Age=0; Secure=%s; SameSite=%s%s",
-                        cookieSecure ? "true" : "false",
-                        sameSite,
-                        domainPart
-                )
+        return String.format("%s=%s; HttpOnly; Path=%s; Max-Age=%d; Secure=%s; SameSite=%s%s",
+                name, value, path, maxAge,
+                cookieSecure ? "true" : "false",
+                sameSite,
+                domainPart
         );
-
-        return ResponseEntity.ok(new MessageResponse("Logged out"));
     }
 
     // ---------- OTP PASSWORD RESET ----------
@@ -115,6 +148,8 @@ public class AuthController {
             }
             String msg = userService.forgotPassword(email);
             return ResponseEntity.ok(new MessageResponse(msg));
+        } catch (TooManyRequestsException | BackendUnavailableException | ConcurrentUpdateException e) {
+            throw e; // 429 / 503 / 409 via GlobalExceptionHandler
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new MessageResponse(e.getMessage()));
         }
@@ -131,6 +166,8 @@ public class AuthController {
             }
             String msg = userService.resetPassword(email, otp, newPassword);
             return ResponseEntity.ok(new MessageResponse(msg));
+        } catch (TooManyRequestsException | BackendUnavailableException | ConcurrentUpdateException e) {
+            throw e; // 429 / 503 / 409 via GlobalExceptionHandler
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(new MessageResponse(e.getMessage()));
         }
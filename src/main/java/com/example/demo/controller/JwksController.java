@@ -0,0 +1,41 @@
+package com.example.demo.controller;
+
+import com.example.demo.security.SigningKeyRing;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Public keys for verifying our access tokens (RFC 7517), for services that trust them.
+ * Served from memory with Cache-Control and an ETag; keep max-age below jwt.signing.pre-publish-minutes
+ * so caches pick up the next key before tokens are signed with it.
+ */
+@RestController
+public class JwksController {
+
+    private final SigningKeyRing keyRing;
+    private final long maxAgeSeconds;
+
+    public JwksController(SigningKeyRing keyRing,
+                          @Value("${jwt.signing.jwks-max-age-seconds:900}") long maxAgeSeconds) {
+        this.keyRing = keyRing;
+        this.maxAgeSeconds = maxAgeSeconds;
+    }
+
+    @GetMapping(value = "/.well-known/jwks.json", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> jwks(@RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        SigningKeyRing.Jwks jwks = keyRing.getJwks();
+        CacheControl cacheControl = CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic();
+        if (jwks.etag().equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).eTag(jwks.etag()).build();
+        }
+        return ResponseEntity.ok().cacheControl(cacheControl).eTag(jwks.etag()).body(jwks.json());
+    }
+}
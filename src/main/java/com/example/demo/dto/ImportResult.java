@@ -0,0 +1,36 @@
+package com.example.demo.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One line of the bulk import response: the outcome of the record on input line "line".
+ * status is created, rejected (invalid or duplicate; do not resend) or failed (retry later).
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ImportResult {
+
+    public static final String CREATED = "created";
+    public static final String REJECTED = "rejected";
+    public static final String FAILED = "failed";
+
+    private final long line;
+    private final String status;
+    private final String email;
+    private final String userId;
+    private final String message;
+
+    public ImportResult(long line, String status, String email, String userId, String message) {
+        this.line = line;
+        this.status = status;
+        this.email = email;
+        this.userId = userId;
+        this.message = message;
+    }
+
+    // Getters only (response object)
+    public long getLine() { return line; }
+    public String getStatus() { return status; }
+    public String getEmail() { return email; }
+    public String getUserId() { return userId; }
+    public String getMessage() { return message; }
+}
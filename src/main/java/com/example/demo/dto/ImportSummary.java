@@ -0,0 +1,28 @@
+package com.example.demo.dto;
+
+/**
+ * Last line of the bulk import response.
+ */
+public class ImportSummary {
+
+    private final long records;
+    private final long created;
+    private final long rejected;
+    private final long failed;
+    private final long durationMs;
+
+    public ImportSummary(long records, long created, long rejected, long failed, long durationMs) {
+        this.records = records;
+        this.created = created;
+        this.rejected = rejected;
+        this.failed = failed;
+        this.durationMs = durationMs;
+    }
+
+    // Getters only (response object)
+    public long getRecords() { return records; }
+    public long getCreated() { return created; }
+    public long getRejected() { return rejected; }
+    public long getFailed() { return failed; }
+    public long getDurationMs() { return durationMs; }
+}
@@ -6,6 +6,8 @@ public class JwtResponse {
     private String email;
     private String role;
     private String userId;  // ✅ ADDED userId FIELD
+    private String refreshToken;
+    private long expiresIn; // access token lifetime in seconds
 
     // ✅ UPDATED CONSTRUCTOR - ADD userId PARAMETER
     public JwtResponse(String token, String email, String role, String userId) {
@@ -15,6 +17,12 @@ public class JwtResponse {
         this.userId = userId;  // ✅ SAVE userId
     }
 
+    public JwtResponse(String token, String refreshToken, long expiresIn, String email, String role, String userId) {
+        this(token, email, role, userId);
+        this.refreshToken = refreshToken;
+        this.expiresIn = expiresIn;
+    }
+
     // ✅ EXISTING GETTERS/SETTERS (UNCHANGED)
     public String getToken() { return token; }
     public void setToken(String token) { this.token = token; }
@@ -31,4 +39,10 @@ public class JwtResponse {
     // ✅ NEW userId GETTER/SETTER
     public String getUserId() { return userId; }
     public void setUserId(String userId) { this.userId = userId; }
-}
\ No newline at end of file
+
+    public String getRefreshToken() { return refreshToken; }
+    public void setRefreshToken(String refreshToken) { this.refreshToken = refreshToken; }
+
+    public long getExpiresIn() { return expiresIn; }
+    public void setExpiresIn(long expiresIn) { this.expiresIn = expiresIn; }
+}
@@ -0,0 +1,12 @@
+package com.example.demo.exception;
+
+/**
+ * Thrown when a backing store is unavailable (e.g. its circuit breaker is open) and no
+ * degraded answer can be given. Mapped to HTTP 503 by GlobalExceptionHandler.
+ */
+public class BackendUnavailableException extends RuntimeException {
+
+    public BackendUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
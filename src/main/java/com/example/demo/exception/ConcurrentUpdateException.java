@@ -0,0 +1,12 @@
+package com.example.demo.exception;
+
+/**
+ * An optimistic-locking update lost against a concurrent write (version mismatch).
+ * Mapped to HTTP 409 by GlobalExceptionHandler; the client can simply retry.
+ */
+public class ConcurrentUpdateException extends RuntimeException {
+
+    public ConcurrentUpdateException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
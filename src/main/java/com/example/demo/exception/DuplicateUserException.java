@@ -0,0 +1,12 @@
+package com.example.demo.exception;
+
+/**
+ * Registration conflicts with an existing email or username.
+ * Extends IllegalArgumentException so it keeps the existing 400 mapping and messages.
+ */
+public class DuplicateUserException extends IllegalArgumentException {
+
+    public DuplicateUserException(String message) {
+        super(message);
+    }
+}
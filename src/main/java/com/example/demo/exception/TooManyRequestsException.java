@@ -0,0 +1,17 @@
+package com.example.demo.exception;
+
+/**
+ * Thrown when a bounded resource (e.g. the password hashing pool) is saturated.
+ * Mapped to HTTP 429 with a Retry-After header by GlobalExceptionHandler.
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() { return retryAfterSeconds; }
+}
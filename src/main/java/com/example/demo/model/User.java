@@ -19,9 +19,8 @@ public class User {
     private String createdAt;
     private String updatedAt;
 
-    // OTP password reset (simple flow)
-    private String otp;         
-    private String otpExpiry;    
+    // Optimistic locking: bumped by every conditional update (0 = item written before versioning)
+    private long version;
 
     // ---- Getters & Setters (NO Lombok) ----
     public String getUserId() { return userId; }
@@ -66,9 +65,6 @@ public class User {
     public String getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(String updatedAt) { this.updatedAt = updatedAt; }
 
-    public String getOtp() { return otp; }
-    public void setOtp(String otp) { this.otp = otp; }
-
-    public String getOtpExpiry() { return otpExpiry; }
-    public void setOtpExpiry(String otpExpiry) { this.otpExpiry = otpExpiry; }
+    public long getVersion() { return version; }
+    public void setVersion(long version) { this.version = version; }
 }
\ No newline at end of file
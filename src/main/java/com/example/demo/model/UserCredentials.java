@@ -0,0 +1,27 @@
+package com.example.demo.model;
+
+/**
+ * Lean view of a user for authentication paths (login, token revalidation).
+ * Loaded with a projection so the investment profile is never read on hot auth requests.
+ */
+public class UserCredentials {
+    private final String userId;
+    private final String email;
+    private final String passwordHash;
+    private final String role;
+    private final long version;
+
+    public UserCredentials(String userId, String email, String passwordHash, String role, long version) {
+        this.userId = userId;
+        this.email = email;
+        this.passwordHash = passwordHash;
+        this.role = role;
+        this.version = version;
+    }
+
+    public String getUserId() { return userId; }
+    public String getEmail() { return email; }
+    public String getPasswordHash() { return passwordHash; }
+    public String getRole() { return role; }
+    public long getVersion() { return version; }
+}
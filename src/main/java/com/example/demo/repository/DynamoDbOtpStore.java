@@ -0,0 +1,106 @@
+package com.example.demo.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * OTPs in their own table (partition key "email"), one small item per pending reset.
+ * - expiresAt is epoch seconds (Number): enable DynamoDB TTL on that attribute so expired codes
+ *   are deleted by the service. TTL deletion is lazy, so expiry is also checked on read.
+ * - attempts is incremented atomically with a conditional UpdateItem before the code is compared.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.otp.store", havingValue = "dynamodb", matchIfMissing = true)
+public class DynamoDbOtpStore implements OtpStore {
+
+    private final DynamoDbClient dynamoDbClient;
+    private final String tableName;
+
+    public DynamoDbOtpStore(DynamoDbClient dynamoDbClient,
+                            @Value("${aws.dynamodb.otp-table-name:otp}") String tableName) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.tableName = tableName;
+    }
+
+    @Override
+    public void put(String email, String code, long expiresAtEpochSeconds) {
+        PutItemRequest request = PutItemRequest.builder()
+                .tableName(tableName)
+                .item(Map.of(
+                        "email", AttributeValue.fromS(key(email)),
+                        "code", AttributeValue.fromS(code),
+                        "expiresAt", AttributeValue.fromN(Long.toString(expiresAtEpochSeconds)),
+                        "attempts", AttributeValue.fromN("0")))
+                .build();
+        dynamoDbClient.putItem(request);
+    }
+
+    @Override
+    public VerifyResult verifyAndConsume(String email, String code, int maxAttempts) {
+        Map<String, AttributeValue> item;
+        try {
+            UpdateItemRequest countAttempt = UpdateItemRequest.builder()
+                    .tableName(tableName)
+                    .key(keyOf(email))
+                    .updateExpression("ADD attempts :one")
+                    .conditionExpression("attribute_exists(email) AND attempts < :max")
+                    .expressionAttributeValues(Map.of(
+                            ":one", AttributeValue.fromN("1"),
+                            ":max", AttributeValue.fromN(Integer.toString(maxAttempts))))
+                    .returnValues(ReturnValue.ALL_NEW)
+                    .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+                    .build();
+            item = dynamoDbClient.updateItem(countAttempt).attributes();
+        } catch (ConditionalCheckFailedException e) {
+            if (!e.hasItem()) {
+                return VerifyResult.NOT_FOUND;
+            }
+            delete(email);
+            return VerifyResult.TOO_MANY_ATTEMPTS;
+        }
+
+        long expiresAt = Long.parseLong(item.get("expiresAt").n());
+        if (Instant.now().getEpochSecond() >= expiresAt) {
+            delete(email);
+            return VerifyResult.EXPIRED;
+        }
+        if (!item.get("code").s().equals(code)) {
+            return VerifyResult.INVALID;
+        }
+
+        // Consume: only succeeds once, and only for the code we just compared
+        try {
+            dynamoDbClient.deleteItem(DeleteItemRequest.builder()
+                    .tableName(tableName)
+                    .key(keyOf(email))
+                    .conditionExpression("code = :code")
+                    .expressionAttributeValues(Map.of(":code", AttributeValue.fromS(code)))
+                    .build());
+            return VerifyResult.OK;
+        } catch (ConditionalCheckFailedException e) {
+            return VerifyResult.INVALID;
+        }
+    }
+
+    private void delete(String email) {
+        dynamoDbClient.deleteItem(DeleteItemRequest.builder()
+                .tableName(tableName)
+                .key(keyOf(email))
+                .build());
+    }
+
+    private static Map<String, AttributeValue> keyOf(String email) {
+        return Map.of("email", AttributeValue.fromS(key(email)));
+    }
+
+    private static String key(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
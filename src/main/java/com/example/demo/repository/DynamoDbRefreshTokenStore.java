@@ -0,0 +1,110 @@
+package com.example.demo.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Refresh token families in their own table (partition key "familyId"), one small item per login.
+ * - A refresh is one consistent GetItem plus one conditional UpdateItem on tokenHash, so two
+ *   concurrent refreshes of the same token cannot both rotate it.
+ * - expiresAt is epoch seconds (Number): enable DynamoDB TTL on that attribute so finished families
+ *   are deleted by the service. TTL deletion is lazy, so RefreshTokenService checks expiry on read.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.refresh-token.store", havingValue = "dynamodb", matchIfMissing = true)
+public class DynamoDbRefreshTokenStore implements RefreshTokenStore {
+
+    private final DynamoDbClient dynamoDbClient;
+    private final String tableName;
+
+    public DynamoDbRefreshTokenStore(DynamoDbClient dynamoDbClient,
+                                     @Value("${aws.dynamodb.refresh-token-table-name:refresh-token}") String tableName) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.tableName = tableName;
+    }
+
+    @Override
+    public void create(Family family) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("familyId", AttributeValue.fromS(family.familyId()));
+        item.put("userId", AttributeValue.fromS(family.userId()));
+        item.put("email", AttributeValue.fromS(family.email()));
+        item.put("role", AttributeValue.fromS(family.role()));
+        item.put("tokenHash", AttributeValue.fromS(family.tokenHash()));
+        item.put("rotatedAt", AttributeValue.fromN(Long.toString(family.rotatedAtMillis())));
+        item.put("createdAt", AttributeValue.fromN(Long.toString(family.createdAtMillis())));
+        item.put("expiresAt", AttributeValue.fromN(Long.toString(family.expiresAtEpochSeconds())));
+        item.put("revoked", AttributeValue.fromBool(false));
+        dynamoDbClient.putItem(PutItemRequest.builder().tableName(tableName).item(item).build());
+    }
+
+    @Override
+    public Optional<Family> find(String familyId) {
+        Map<String, AttributeValue> item = dynamoDbClient.getItem(GetItemRequest.builder()
+                .tableName(tableName)
+                .key(keyOf(familyId))
+                .consistentRead(true)
+                .build()).item();
+        if (item == null || item.isEmpty()) {
+            return Optional.empty();
+        }
+        AttributeValue previousHash = item.get("previousHash");
+        return Optional.of(new Family(
+                item.get("familyId").s(),
+                item.get("userId").s(),
+                item.get("email").s(),
+                item.get("role").s(),
+                item.get("tokenHash").s(),
+                previousHash != null ? previousHash.s() : null,
+                Long.parseLong(item.get("rotatedAt").n()),
+                Long.parseLong(item.get("createdAt").n()),
+                Long.parseLong(item.get("expiresAt").n()),
+                Boolean.TRUE.equals(item.get("revoked").bool())));
+    }
+
+    @Override
+    public boolean rotate(String familyId, String expectedHash, String newHash, long rotatedAtMillis) {
+        try {
+            dynamoDbClient.updateItem(UpdateItemRequest.builder()
+                    .tableName(tableName)
+                    .key(keyOf(familyId))
+                    .updateExpression("SET tokenHash = :new, previousHash = :expected, rotatedAt = :now")
+                    .conditionExpression("tokenHash = :expected AND revoked = :false")
+                    .expressionAttributeValues(Map.of(
+                            ":new", AttributeValue.fromS(newHash),
+                            ":expected", AttributeValue.fromS(expectedHash),
+                            ":now", AttributeValue.fromN(Long.toString(rotatedAtMillis)),
+                            ":false", AttributeValue.fromBool(false)))
+                    .build());
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void revoke(String familyId) {
+        try {
+            dynamoDbClient.updateItem(UpdateItemRequest.builder()
+                    .tableName(tableName)
+                    .key(keyOf(familyId))
+                    .updateExpression("SET revoked = :true")
+                    .conditionExpression("attribute_exists(familyId)")
+                    .expressionAttributeValues(Map.of(":true", AttributeValue.fromBool(true)))
+                    .build());
+        } catch (ConditionalCheckFailedException e) {
+            // already expired and deleted by TTL
+        }
+    }
+
+    private static Map<String, AttributeValue> keyOf(String familyId) {
+        return Map.of("familyId", AttributeValue.fromS(familyId));
+    }
+}
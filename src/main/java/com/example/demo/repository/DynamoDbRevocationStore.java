@@ -0,0 +1,135 @@
+package com.example.demo.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Revocations in their own table, partitioned by the hour they were recorded in.
+ * - bucket (partition key, S) = revocation hour as epoch hours; sk (sort key, S) =
+ *   zero-padded revokedAt millis + "#" + kind + "#" + value, so sk order is time order.
+ * - since(from) is one Query per hour from "from" to now with sk > from: a refresh every few
+ *   seconds reads only the current bucket and only what is new.
+ * - Subject revocations are also kept in the SUBJECTS_BUCKET partition, one item per subject
+ *   (sk = subject) holding its latest cutoff, so a starting node reads every live cutoff without
+ *   querying two weeks of hourly buckets.
+ * - expiresAt is epoch seconds (Number): enable DynamoDB TTL on it so old entries disappear.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.revocation.store", havingValue = "dynamodb", matchIfMissing = true)
+public class DynamoDbRevocationStore implements RevocationStore {
+
+    // Not an epoch hour, so it never collides with a log bucket
+    static final String SUBJECTS_BUCKET = "subjects";
+
+    private final DynamoDbClient dynamoDbClient;
+    private final String tableName;
+
+    public DynamoDbRevocationStore(DynamoDbClient dynamoDbClient,
+                                   @Value("${aws.dynamodb.revocation-table-name:token-revocation}") String tableName) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.tableName = tableName;
+    }
+
+    @Override
+    public void add(Revocation revocation) {
+        PutItemRequest request = PutItemRequest.builder()
+                .tableName(tableName)
+                .item(Map.of(
+                        "bucket", AttributeValue.fromS(bucket(revocation.revokedAtMillis())),
+                        "sk", AttributeValue.fromS(sortKey(revocation.revokedAtMillis())
+                                + "#" + revocation.kind() + "#" + revocation.value()),
+                        "kind", AttributeValue.fromS(revocation.kind()),
+                        "value", AttributeValue.fromS(revocation.value()),
+                        "revokedAt", AttributeValue.fromN(Long.toString(revocation.revokedAtMillis())),
+                        "expiresAt", AttributeValue.fromN(Long.toString(revocation.expiresAtEpochSeconds()))))
+                .build();
+        dynamoDbClient.putItem(request);
+        if (KIND_SUBJECT.equals(revocation.kind())) {
+            putSubjectCutoff(revocation);
+        }
+    }
+
+    // Keeps the later cutoff when two nodes revoke the same subject concurrently
+    private void putSubjectCutoff(Revocation revocation) {
+        try {
+            dynamoDbClient.putItem(PutItemRequest.builder()
+                    .tableName(tableName)
+                    .item(Map.of(
+                            "bucket", AttributeValue.fromS(SUBJECTS_BUCKET),
+                            "sk", AttributeValue.fromS(revocation.value()),
+                            "kind", AttributeValue.fromS(KIND_SUBJECT),
+                            "value", AttributeValue.fromS(revocation.value()),
+                            "revokedAt", AttributeValue.fromN(Long.toString(revocation.revokedAtMillis())),
+                            "expiresAt", AttributeValue.fromN(Long.toString(revocation.expiresAtEpochSeconds()))))
+                    .conditionExpression("attribute_not_exists(sk) OR revokedAt < :revokedAt")
+                    .expressionAttributeValues(Map.of(
+                            ":revokedAt", AttributeValue.fromN(Long.toString(revocation.revokedAtMillis()))))
+                    .build());
+        } catch (ConditionalCheckFailedException e) {
+            // a later cutoff is already stored
+        }
+    }
+
+    @Override
+    public List<Revocation> subjectCutoffs() {
+        QueryRequest request = QueryRequest.builder()
+                .tableName(tableName)
+                .keyConditionExpression("#bucket = :bucket")
+                .expressionAttributeNames(Map.of("#bucket", "bucket"))
+                .expressionAttributeValues(Map.of(":bucket", AttributeValue.fromS(SUBJECTS_BUCKET)))
+                .build();
+        return read(request);
+    }
+
+    @Override
+    public List<Revocation> since(long fromMillis) {
+        List<Revocation> revocations = new ArrayList<>();
+        long lastHour = TimeUnit.MILLISECONDS.toHours(System.currentTimeMillis());
+        for (long hour = TimeUnit.MILLISECONDS.toHours(fromMillis); hour <= lastHour; hour++) {
+            QueryRequest request = QueryRequest.builder()
+                    .tableName(tableName)
+                    .keyConditionExpression("#bucket = :bucket AND sk > :from")
+                    .expressionAttributeNames(Map.of("#bucket", "bucket"))
+                    .expressionAttributeValues(Map.of(
+                            ":bucket", AttributeValue.fromS(Long.toString(hour)),
+                            ":from", AttributeValue.fromS(sortKey(fromMillis))))
+                    .build();
+            revocations.addAll(read(request));
+        }
+        return revocations;
+    }
+
+    private List<Revocation> read(QueryRequest request) {
+        List<Revocation> revocations = new ArrayList<>();
+        long nowSeconds = Instant.now().getEpochSecond();
+        for (Map<String, AttributeValue> item : dynamoDbClient.queryPaginator(request).items()) {
+            long expiresAt = Long.parseLong(item.get("expiresAt").n());
+            // TTL deletion is lazy, so expiry is also checked on read
+            if (expiresAt > nowSeconds) {
+                revocations.add(new Revocation(item.get("kind").s(), item.get("value").s(),
+                        Long.parseLong(item.get("revokedAt").n()), expiresAt));
+            }
+        }
+        return revocations;
+    }
+
+    private static String bucket(long millis) {
+        return Long.toString(TimeUnit.MILLISECONDS.toHours(millis));
+    }
+
+    private static String sortKey(long millis) {
+        return String.format("%013d", millis);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.demo.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Signing keys in their own table (partition key "kid"), a handful of items at any time.
+ * - Every node computes the same kid for a rotation period, so the conditional put lets exactly
+ *   one of them create the key.
+ * - findAll is a consistent Scan: the table only ever holds the current, next and retiring keys.
+ * - expiresAt is epoch seconds (Number): enable DynamoDB TTL on it so retired keys disappear.
+ */
+@Repository
+@ConditionalOnProperty(name = "jwt.signing.key-store", havingValue = "dynamodb", matchIfMissing = true)
+public class DynamoDbSigningKeyStore implements SigningKeyStore {
+
+    private final DynamoDbClient dynamoDbClient;
+    private final String tableName;
+
+    public DynamoDbSigningKeyStore(DynamoDbClient dynamoDbClient,
+                                   @Value("${aws.dynamodb.signing-key-table-name:jwt-signing-key}") String tableName) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.tableName = tableName;
+    }
+
+    @Override
+    public boolean createIfAbsent(StoredKey key) {
+        try {
+            dynamoDbClient.putItem(PutItemRequest.builder()
+                    .tableName(tableName)
+                    .item(Map.of(
+                            "kid", AttributeValue.fromS(key.kid()),
+                            "algorithm", AttributeValue.fromS(key.algorithm()),
+                            "publicKey", AttributeValue.fromS(key.publicKey()),
+                            "encryptedPrivateKey", AttributeValue.fromS(key.encryptedPrivateKey()),
+                            "activatesAt", AttributeValue.fromN(Long.toString(key.activatesAtMillis())),
+                            "expiresAt", AttributeValue.fromN(Long.toString(key.expiresAtEpochSeconds()))))
+                    .conditionExpression("attribute_not_exists(kid)")
+                    .build());
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public List<StoredKey> findAll() {
+        long nowSeconds = Instant.now().getEpochSecond();
+        List<StoredKey> keys = new ArrayList<>();
+        ScanRequest request = ScanRequest.builder().tableName(tableName).consistentRead(true).build();
+        for (Map<String, AttributeValue> item : dynamoDbClient.scanPaginator(request).items()) {
+            long expiresAt = Long.parseLong(item.get("expiresAt").n());
+            // TTL deletion is lazy, so expiry is also checked on read
+            if (expiresAt > nowSeconds) {
+                keys.add(new StoredKey(item.get("kid").s(), item.get("algorithm").s(), item.get("publicKey").s(),
+                        item.get("encryptedPrivateKey").s(), Long.parseLong(item.get("activatesAt").n()), expiresAt));
+            }
+        }
+        return keys;
+    }
+}
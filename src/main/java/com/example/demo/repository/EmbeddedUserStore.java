@@ -0,0 +1,571 @@
+package com.example.demo.repository;
+
+import com.example.demo.exception.ConcurrentUpdateException;
+import com.example.demo.exception.DuplicateUserException;
+import com.example.demo.model.User;
+import com.example.demo.model.UserCredentials;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * User store for single-node deployments (app.storage.engine=embedded); no network hop per lookup.
+ * - Reads are served from in-memory hash indexes by userId, email and username (both normalized).
+ * - Every write appends the full user as a record to a memory-mapped log:
+ *   [int length][int crc32][payload]. The file starts with a magic number and format version.
+ * - On startup the log is replayed; a torn or corrupt tail (crash mid-write) is discarded.
+ * - Superseded records are compacted away periodically: live users are rewritten to a
+ *   temp file that atomically replaces the log.
+ * - sync-writes=true forces each record to disk before the write returns.
+ * - save() refuses an email or username that belongs to another user, like create().
+ * Writes are serialized by a single ReentrantLock (not synchronized: a write waiting on log.force
+ * would pin its carrier if virtual threads are enabled); reads never take it.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "embedded")
+public class EmbeddedUserStore implements UserStore {
+
+    private static final int MAGIC = 0x55534C47; // "USLG"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final byte RECORD_PUT = 1;
+    private static final int SCAN_PAGE_SIZE = 1000;
+
+    private final Path path;
+    private final int initialSize;
+    private final boolean syncWrites;
+    private final double compactionGarbageRatio;
+    private final long compactionMinBytes;
+
+    private final Map<String, Entry> byUserId = new ConcurrentHashMap<>();
+    private final Map<String, String> userIdByEmail = new ConcurrentHashMap<>();
+    private final Map<String, String> userIdByUsername = new ConcurrentHashMap<>();
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    // Guarded by writeLock
+    private FileChannel channel;
+    private MappedByteBuffer log;
+    private int writePosition;
+    private long liveBytes;
+
+    private final ScheduledExecutorService compactor;
+
+    public EmbeddedUserStore(@Value("${app.storage.embedded.path:data/users.log}") String path,
+                             @Value("${app.storage.embedded.initial-size-mb:16}") int initialSizeMb,
+                             @Value("${app.storage.embedded.sync-writes:true}") boolean syncWrites,
+                             @Value("${app.storage.embedded.compaction-interval-seconds:300}") long compactionIntervalSeconds,
+                             @Value("${app.storage.embedded.compaction-garbage-ratio:0.5}") double compactionGarbageRatio,
+                             @Value("${app.storage.embedded.compaction-min-size-mb:1}") int compactionMinSizeMb) {
+        this.path = Path.of(path).toAbsolutePath();
+        this.initialSize = Math.max(initialSizeMb, 1) * 1024 * 1024;
+        this.syncWrites = syncWrites;
+        this.compactionGarbageRatio = compactionGarbageRatio;
+        this.compactionMinBytes = (long) compactionMinSizeMb * 1024 * 1024;
+        try {
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open embedded user store " + this.path, e);
+        }
+
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "user-store-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        if (compactionIntervalSeconds > 0) {
+            compactor.scheduleWithFixedDelay(this::compactIfNeeded,
+                    compactionIntervalSeconds, compactionIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    // ---------- WRITES ----------
+
+    // The indexes map one email/username to one user: an update may not take over another user's
+    @Override
+    public void save(User user) {
+        writeLock.lock();
+        try {
+            requireFreeOrOwnedBy(userIdByEmail, UserRepository.normalizeEmail(user.getEmail()), user.getUserId(),
+                    "Email already exists");
+            requireFreeOrOwnedBy(userIdByUsername, UserRepository.normalizeUsername(user.getUsername()), user.getUserId(),
+                    "Username already exists");
+            append(copy(user));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void create(User user) {
+        writeLock.lock();
+        try {
+            if (userIdByEmail.containsKey(UserRepository.normalizeEmail(user.getEmail()))) {
+                throw new DuplicateUserException("Email already exists");
+            }
+            if (userIdByUsername.containsKey(UserRepository.normalizeUsername(user.getUsername()))) {
+                throw new DuplicateUserException("Username already exists");
+            }
+            if (byUserId.containsKey(user.getUserId())) {
+                throw new IllegalStateException("User id already exists: " + user.getUserId());
+            }
+            append(copy(user));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void updatePasswordHash(UserCredentials credentials, String passwordHash) {
+        writeLock.lock();
+        try {
+            Entry entry = byUserId.get(credentials.getUserId());
+            if (entry == null || entry.user.getVersion() != credentials.getVersion()) {
+                throw new ConcurrentUpdateException("User was modified concurrently, please retry", null);
+            }
+            User updated = copy(entry.user);
+            updated.setPasswordHash(passwordHash);
+            updated.setUpdatedAt(Instant.now().toString());
+            updated.setVersion(entry.user.getVersion() + 1);
+            append(updated);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void touchUpdatedAt(User user) {
+        writeLock.lock();
+        try {
+            Entry entry = byUserId.get(user.getUserId());
+            if (entry == null) {
+                throw new RuntimeException("User not found");
+            }
+            User updated = copy(entry.user);
+            updated.setUpdatedAt(Instant.now().toString());
+            updated.setVersion(entry.user.getVersion() + 1);
+            append(updated);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static void requireFreeOrOwnedBy(Map<String, String> index, String key, String userId, String message) {
+        String owner = index.get(key);
+        if (owner != null && !owner.equals(userId)) {
+            throw new DuplicateUserException(message);
+        }
+    }
+
+    // Log first, then indexes: readers never see a user that is not durable yet
+    private void append(User user) {
+        byte[] payload = encode(user);
+        int recordSize = RECORD_HEADER_SIZE + payload.length;
+        ensureCapacity(recordSize);
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        log.put(writePosition + RECORD_HEADER_SIZE, payload);
+        log.putInt(writePosition + 4, (int) crc.getValue());
+        log.putInt(writePosition, payload.length);
+        if (syncWrites) {
+            log.force(writePosition, recordSize);
+        }
+        writePosition += recordSize;
+        index(user, recordSize);
+    }
+
+    private void index(User user, int recordSize) {
+        Entry previous = byUserId.put(user.getUserId(), new Entry(user, credentialsOf(user), recordSize));
+        if (previous != null) {
+            liveBytes -= previous.recordSize;
+            // save() may change email or username; drop the old keys if they still point here
+            userIdByEmail.remove(UserRepository.normalizeEmail(previous.user.getEmail()), user.getUserId());
+            userIdByUsername.remove(UserRepository.normalizeUsername(previous.user.getUsername()), user.getUserId());
+        }
+        liveBytes += recordSize;
+        userIdByEmail.put(UserRepository.normalizeEmail(user.getEmail()), user.getUserId());
+        userIdByUsername.put(UserRepository.normalizeUsername(user.getUsername()), user.getUserId());
+    }
+
+    private void ensureCapacity(int recordSize) {
+        if (writePosition + (long) recordSize <= log.capacity()) {
+            return;
+        }
+        long newSize = Math.max(2L * log.capacity(), (long) writePosition + recordSize);
+        if (newSize > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Embedded user store is full (2 GB): " + path);
+        }
+        try {
+            log.force();
+            log = channel.map(FileChannel.MapMode.READ_WRITE, 0, newSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot grow embedded user store " + path, e);
+        }
+    }
+
+    // ---------- READS (no lock) ----------
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        Entry entry = entryByEmail(email);
+        return entry == null ? Optional.empty() : Optional.of(copy(entry.user));
+    }
+
+    @Override
+    public Optional<UserCredentials> findCredentialsByEmail(String email) {
+        Entry entry = entryByEmail(email);
+        return entry == null ? Optional.empty() : Optional.of(entry.credentials);
+    }
+
+    @Override
+    public Optional<UserCredentials> findCredentialsByUserId(String userId) {
+        Entry entry = byUserId.get(userId);
+        return entry == null ? Optional.empty() : Optional.of(entry.credentials);
+    }
+
+    @Override
+    public boolean existsByEmail(String email) {
+        return userIdByEmail.containsKey(UserRepository.normalizeEmail(email));
+    }
+
+    @Override
+    public boolean existsByUsername(String username) {
+        return userIdByUsername.containsKey(UserRepository.normalizeUsername(username));
+    }
+
+    // Segments partition users by userId hash; pages are copies taken without the write lock
+    @Override
+    public void scanSegment(int segment, int totalSegments, Collection<String> fields, Consumer<List<User>> pageConsumer) {
+        List<User> page = new ArrayList<>(SCAN_PAGE_SIZE);
+        for (Entry entry : byUserId.values()) {
+            if (Math.floorMod(entry.user.getUserId().hashCode(), totalSegments) != segment) {
+                continue;
+            }
+            page.add(copy(entry.user));
+            if (page.size() == SCAN_PAGE_SIZE) {
+                pageConsumer.accept(page);
+                page = new ArrayList<>(SCAN_PAGE_SIZE);
+            }
+        }
+        if (!page.isEmpty()) {
+            pageConsumer.accept(page);
+        }
+    }
+
+    private Entry entryByEmail(String email) {
+        String userId = userIdByEmail.get(UserRepository.normalizeEmail(email));
+        return userId == null ? null : byUserId.get(userId);
+    }
+
+    public int getUserCount() { return byUserId.size(); }
+
+    public long getLogBytes() {
+        writeLock.lock();
+        try {
+            return writePosition - HEADER_SIZE;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public long getLiveBytes() {
+        writeLock.lock();
+        try {
+            return liveBytes;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // ---------- RECOVERY ----------
+
+    // Constructor only: no other thread can see the store yet
+    private void open() throws IOException {
+        Files.createDirectories(path.getParent());
+        // A leftover temp file means compaction crashed before the rename; the log itself is intact
+        Files.deleteIfExists(compactionPath());
+
+        long started = System.nanoTime();
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long fileSize = channel.size();
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Embedded user store exceeds 2 GB: " + path);
+        }
+        log = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(initialSize, fileSize));
+
+        if (fileSize == 0) {
+            writeHeader(log);
+            log.force();
+            writePosition = HEADER_SIZE;
+            System.out.println("Embedded user store: created " + path);
+            return;
+        }
+        if (log.getInt(0) != MAGIC || log.getInt(4) != FORMAT_VERSION) {
+            throw new IllegalStateException("Not an embedded user store log (or unsupported version): " + path);
+        }
+
+        int records = replay((int) fileSize);
+        System.out.println("Embedded user store: recovered " + byUserId.size() + " users from " + records
+                + " records (" + (writePosition - HEADER_SIZE) + " bytes) in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) + " ms");
+    }
+
+    // A zero length marks the end of the log (the mapped tail is zero-filled)
+    private int replay(int fileSize) {
+        int position = HEADER_SIZE;
+        int records = 0;
+        while (position + RECORD_HEADER_SIZE <= log.capacity()) {
+            int length = log.getInt(position);
+            if (length == 0) {
+                break;
+            }
+            User user = length > 0 && position + (long) RECORD_HEADER_SIZE + length <= log.capacity()
+                    ? readRecord(position, length) : null;
+            if (user == null) {
+                System.err.println("⚠️ Embedded user store: discarding torn/corrupt tail at offset "
+                        + position + " of " + path);
+                // Zero the tail so the next append is not followed by stale bytes
+                for (int i = position; i < fileSize; i++) {
+                    log.put(i, (byte) 0);
+                }
+                log.force();
+                break;
+            }
+            index(user, RECORD_HEADER_SIZE + length);
+            position += RECORD_HEADER_SIZE + length;
+            records++;
+        }
+        writePosition = position;
+        return records;
+    }
+
+    // Null if the checksum does not match or the payload cannot be decoded
+    private User readRecord(int position, int length) {
+        byte[] payload = new byte[length];
+        log.get(position + RECORD_HEADER_SIZE, payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != log.getInt(position + 4)) {
+            return null;
+        }
+        try {
+            return decode(payload);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // ---------- COMPACTION ----------
+
+    private void compactIfNeeded() {
+        try {
+            long garbage;
+            long total;
+            writeLock.lock();
+            try {
+                total = writePosition - HEADER_SIZE;
+                garbage = total - liveBytes;
+            } finally {
+                writeLock.unlock();
+            }
+            if (total >= compactionMinBytes && garbage >= total * compactionGarbageRatio) {
+                compact();
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Embedded user store compaction failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Rewrites only the live users into a temp file, forces it, and atomically renames it over the log.
+     * A crash before the rename leaves the old log untouched; the temp file is deleted on the next start.
+     */
+    public void compact() throws IOException {
+        writeLock.lock();
+        try {
+            compactLocked();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void compactLocked() throws IOException {
+        long before = writePosition - HEADER_SIZE;
+        Path tmp = compactionPath();
+        long size = Math.max(initialSize, 2 * (HEADER_SIZE + liveBytes));
+        int position = HEADER_SIZE;
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer compacted = out.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            writeHeader(compacted);
+            for (Entry entry : byUserId.values()) {
+                byte[] payload = encode(entry.user);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                compacted.putInt(position, payload.length);
+                compacted.putInt(position + 4, (int) crc.getValue());
+                compacted.put(position + RECORD_HEADER_SIZE, payload);
+                position += RECORD_HEADER_SIZE + payload.length;
+            }
+            compacted.force();
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory();
+
+        channel.close();
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        log = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, channel.size()));
+        writePosition = position;
+        System.out.println("Embedded user store: compacted " + before + " -> " + (writePosition - HEADER_SIZE)
+                + " bytes (" + byUserId.size() + " users)");
+    }
+
+    // Makes the rename durable; not supported on every platform, where it is best-effort
+    private void forceDirectory() {
+        try (FileChannel dir = FileChannel.open(path.getParent(), StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private Path compactionPath() {
+        return path.resolveSibling(path.getFileName() + ".compact");
+    }
+
+    private static void writeHeader(MappedByteBuffer buffer) {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, FORMAT_VERSION);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        compactor.shutdownNow();
+        writeLock.lock();
+        try {
+            log.force();
+            channel.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // ---------- RECORD ENCODING ----------
+
+    private static byte[] encode(User user) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(RECORD_PUT);
+            writeString(out, user.getUserId());
+            writeString(out, user.getEmail());
+            writeString(out, user.getUsername());
+            writeString(out, user.getPasswordHash());
+            writeString(out, user.getRole());
+            writeString(out, user.getFirstName());
+            writeString(out, user.getLastName());
+            writeString(out, user.getPhone());
+            writeString(out, user.getDateOfBirth());
+            writeString(out, user.getRiskAppetite());
+            writeString(out, user.getExperience());
+            writeString(out, user.getInvestmentGoal());
+            writeString(out, user.getCreatedAt());
+            writeString(out, user.getUpdatedAt());
+            out.writeLong(user.getVersion());
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static User decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        if (in.readByte() != RECORD_PUT) {
+            throw new IOException("Unknown record type");
+        }
+        User user = new User();
+        user.setUserId(readString(in));
+        user.setEmail(readString(in));
+        user.setUsername(readString(in));
+        user.setPasswordHash(readString(in));
+        user.setRole(readString(in));
+        user.setFirstName(readString(in));
+        user.setLastName(readString(in));
+        user.setPhone(readString(in));
+        user.setDateOfBirth(readString(in));
+        user.setRiskAppetite(readString(in));
+        user.setExperience(readString(in));
+        user.setInvestmentGoal(readString(in));
+        user.setCreatedAt(readString(in));
+        user.setUpdatedAt(readString(in));
+        user.setVersion(in.readLong());
+        return user;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    // Stored users are never handed out: callers get a copy they may modify
+    private static User copy(User source) {
+        User user = new User();
+        user.setUserId(source.getUserId());
+        user.setEmail(source.getEmail());
+        user.setUsername(source.getUsername());
+        user.setPasswordHash(source.getPasswordHash());
+        user.setRole(source.getRole());
+        user.setFirstName(source.getFirstName());
+        user.setLastName(source.getLastName());
+        user.setPhone(source.getPhone());
+        user.setDateOfBirth(source.getDateOfBirth());
+        user.setRiskAppetite(source.getRiskAppetite());
+        user.setExperience(source.getExperience());
+        user.setInvestmentGoal(source.getInvestmentGoal());
+        user.setCreatedAt(source.getCreatedAt());
+        user.setUpdatedAt(source.getUpdatedAt());
+        user.setVersion(source.getVersion());
+        return user;
+    }
+
+    private static UserCredentials credentialsOf(User user) {
+        return new UserCredentials(user.getUserId(), user.getEmail(), user.getPasswordHash(),
+                user.getRole(), user.getVersion());
+    }
+
+    private record Entry(User user, UserCredentials credentials, int recordSize) {}
+}
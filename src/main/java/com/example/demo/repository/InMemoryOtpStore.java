@@ -0,0 +1,124 @@
+package com.example.demo.repository;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * OTP store for single-node deployments (app.otp.store=memory). Codes are lost on restart.
+ * Expiry uses a hashed timer wheel with one-second slots: put() drops the key into the slot of
+ * its expiry second, and a tick each second removes only what is due in the current slot,
+ * so cleanup cost is proportional to expiring codes rather than to all pending codes.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.otp.store", havingValue = "memory")
+public class InMemoryOtpStore implements OtpStore {
+
+    private static final int WHEEL_SLOTS = 1024; // ~17 minutes per revolution
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    @SuppressWarnings("unchecked")
+    private final Queue<Timeout>[] wheel = new Queue[WHEEL_SLOTS];
+    private final ScheduledExecutorService ticker;
+    private long lastTickSecond = Instant.now().getEpochSecond();
+
+    public InMemoryOtpStore() {
+        for (int i = 0; i < WHEEL_SLOTS; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "otp-expiry-wheel");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(this::tick, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void put(String email, String code, long expiresAtEpochSeconds) {
+        String key = key(email);
+        Entry entry = new Entry(code, expiresAtEpochSeconds);
+        entries.put(key, entry);
+        wheel[slot(expiresAtEpochSeconds)].add(new Timeout(key, entry));
+    }
+
+    @Override
+    public VerifyResult verifyAndConsume(String email, String code, int maxAttempts) {
+        String key = key(email);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return VerifyResult.NOT_FOUND;
+        }
+        if (Instant.now().getEpochSecond() >= entry.expiresAt) {
+            entries.remove(key, entry);
+            return VerifyResult.EXPIRED;
+        }
+        if (entry.attempts.incrementAndGet() > maxAttempts) {
+            entries.remove(key, entry);
+            return VerifyResult.TOO_MANY_ATTEMPTS;
+        }
+        if (!entry.code.equals(code)) {
+            return VerifyResult.INVALID;
+        }
+        // remove(key, value) makes consumption single-use under concurrent attempts
+        return entries.remove(key, entry) ? VerifyResult.OK : VerifyResult.INVALID;
+    }
+
+    // Processes every slot passed since the last tick (covers scheduler hiccups)
+    private void tick() {
+        long now = Instant.now().getEpochSecond();
+        long from = Math.max(lastTickSecond, now - WHEEL_SLOTS + 1);
+        for (long second = from; second <= now; second++) {
+            Iterator<Timeout> it = wheel[slot(second)].iterator();
+            while (it.hasNext()) {
+                Timeout timeout = it.next();
+                // Keys further out than one revolution stay until their round comes up
+                if (timeout.entry.expiresAt <= now) {
+                    entries.remove(timeout.key, timeout.entry);
+                    it.remove();
+                } else if (entries.get(timeout.key) != timeout.entry) {
+                    it.remove(); // replaced or consumed already
+                }
+            }
+        }
+        lastTickSecond = now + 1;
+    }
+
+    private static int slot(long epochSecond) {
+        return (int) Math.floorMod(epochSecond, (long) WHEEL_SLOTS);
+    }
+
+    private static String key(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    private static final class Entry {
+        final String code;
+        final long expiresAt;
+        final AtomicInteger attempts = new AtomicInteger();
+
+        Entry(String code, long expiresAt) {
+            this.code = code;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private record Timeout(String key, Entry entry) {}
+}
@@ -0,0 +1,61 @@
+package com.example.demo.repository;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Refresh token families for single-node deployments (app.refresh-token.store=memory).
+ * Families are lost on restart, so every client logs in again after one.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.refresh-token.store", havingValue = "memory")
+public class InMemoryRefreshTokenStore implements RefreshTokenStore {
+
+    // Expired families are swept every SWEEP_EVERY logins
+    private static final int SWEEP_EVERY = 1024;
+
+    private final Map<String, Family> families = new ConcurrentHashMap<>();
+    private final AtomicInteger created = new AtomicInteger();
+
+    @Override
+    public void create(Family family) {
+        families.put(family.familyId(), family);
+        if (created.incrementAndGet() % SWEEP_EVERY == 0) {
+            long nowSeconds = Instant.now().getEpochSecond();
+            families.values().removeIf(f -> f.expiresAtEpochSeconds() <= nowSeconds);
+        }
+    }
+
+    @Override
+    public Optional<Family> find(String familyId) {
+        return Optional.ofNullable(families.get(familyId));
+    }
+
+    @Override
+    public boolean rotate(String familyId, String expectedHash, String newHash, long rotatedAtMillis) {
+        AtomicBoolean rotated = new AtomicBoolean();
+        families.computeIfPresent(familyId, (id, f) -> {
+            if (f.revoked() || !f.tokenHash().equals(expectedHash)) {
+                return f;
+            }
+            rotated.set(true);
+            return new Family(id, f.userId(), f.email(), f.role(), newHash, expectedHash, rotatedAtMillis,
+                    f.createdAtMillis(), f.expiresAtEpochSeconds(), false);
+        });
+        return rotated.get();
+    }
+
+    @Override
+    public void revoke(String familyId) {
+        families.computeIfPresent(familyId, (id, f) -> new Family(id, f.userId(), f.email(), f.role(),
+                f.tokenHash(), f.previousHash(), f.rotatedAtMillis(), f.createdAtMillis(),
+                f.expiresAtEpochSeconds(), true));
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.demo.repository;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Revocation log for single-node deployments (app.revocation.store=memory).
+ * Entries are lost on restart, so revoked tokens become valid again until they expire.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.revocation.store", havingValue = "memory")
+public class InMemoryRevocationStore implements RevocationStore {
+
+    // Appended in revokedAt order (single node, one clock)
+    private final ConcurrentLinkedQueue<Revocation> revocations = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void add(Revocation revocation) {
+        revocations.add(revocation);
+    }
+
+    @Override
+    public List<Revocation> since(long fromMillis) {
+        long nowSeconds = Instant.now().getEpochSecond();
+        revocations.removeIf(r -> r.expiresAtEpochSeconds() <= nowSeconds);
+        List<Revocation> result = new ArrayList<>();
+        for (Revocation revocation : revocations) {
+            if (revocation.revokedAtMillis() > fromMillis) {
+                result.add(revocation);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Revocation> subjectCutoffs() {
+        Map<String, Revocation> latest = new HashMap<>();
+        for (Revocation revocation : since(0)) {
+            if (KIND_SUBJECT.equals(revocation.kind())) {
+                latest.merge(revocation.value(), revocation,
+                        (a, b) -> a.revokedAtMillis() >= b.revokedAtMillis() ? a : b);
+            }
+        }
+        return new ArrayList<>(latest.values());
+    }
+}
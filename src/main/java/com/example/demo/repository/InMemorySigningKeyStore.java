@@ -0,0 +1,32 @@
+package com.example.demo.repository;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Signing keys for single-node deployments (jwt.signing.key-store=memory).
+ * Keys are lost on restart, so access tokens issued before one stop verifying (refresh tokens still work).
+ */
+@Repository
+@ConditionalOnProperty(name = "jwt.signing.key-store", havingValue = "memory")
+public class InMemorySigningKeyStore implements SigningKeyStore {
+
+    private final Map<String, StoredKey> keys = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean createIfAbsent(StoredKey key) {
+        return keys.putIfAbsent(key.kid(), key) == null;
+    }
+
+    @Override
+    public List<StoredKey> findAll() {
+        long nowSeconds = Instant.now().getEpochSecond();
+        keys.values().removeIf(key -> key.expiresAtEpochSeconds() <= nowSeconds);
+        return List.copyOf(keys.values());
+    }
+}
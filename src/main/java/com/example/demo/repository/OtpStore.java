@@ -0,0 +1,20 @@
+package com.example.demo.repository;
+
+/**
+ * Short-lived one-time codes for password reset, kept apart from the user item.
+ * Implementations: DynamoDbOtpStore (app.otp.store=dynamodb, default) and
+ * InMemoryOtpStore (app.otp.store=memory, single-node deployments).
+ */
+public interface OtpStore {
+
+    enum VerifyResult { OK, NOT_FOUND, INVALID, EXPIRED, TOO_MANY_ATTEMPTS }
+
+    /** Stores (or replaces) the code for email, resetting its attempt counter. */
+    void put(String email, String code, long expiresAtEpochSeconds);
+
+    /**
+     * Counts one attempt and, on a match, deletes the code so it can be used only once.
+     * After maxAttempts attempts the code is discarded.
+     */
+    VerifyResult verifyAndConsume(String email, String code, int maxAttempts);
+}
@@ -0,0 +1,34 @@
+package com.example.demo.repository;
+
+import java.util.Optional;
+
+/**
+ * Refresh token families: one record per login, rotated on every refresh (see RefreshTokenService).
+ * Only SHA-256 hashes of the token secrets are stored.
+ * Implementations: DynamoDbRefreshTokenStore (app.refresh-token.store=dynamodb, default) and
+ * InMemoryRefreshTokenStore (app.refresh-token.store=memory, single-node deployments).
+ */
+public interface RefreshTokenStore {
+
+    /**
+     * tokenHash is the only secret accepted next; previousHash is the one it replaced at rotatedAtMillis.
+     * expiresAtEpochSeconds is fixed at login: rotation does not extend a family.
+     * email and role are as of login, for auditing; refresh reads the current ones from UserStore.
+     */
+    record Family(String familyId, String userId, String email, String role,
+                  String tokenHash, String previousHash, long rotatedAtMillis,
+                  long createdAtMillis, long expiresAtEpochSeconds, boolean revoked) {}
+
+    void create(Family family);
+
+    /** Strongly consistent read, so a rotation on another node is always seen. */
+    Optional<Family> find(String familyId);
+
+    /**
+     * Replaces expectedHash with newHash (keeping expectedHash as previousHash) if expectedHash is
+     * still current and the family is not revoked. Returns false when another refresh won the race.
+     */
+    boolean rotate(String familyId, String expectedHash, String newHash, long rotatedAtMillis);
+
+    void revoke(String familyId);
+}
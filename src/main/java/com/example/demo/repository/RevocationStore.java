@@ -0,0 +1,32 @@
+package com.example.demo.repository;
+
+import java.util.List;
+
+/**
+ * Durable log of token revocations, read back incrementally by every node (see TokenDenylist).
+ * Implementations: DynamoDbRevocationStore (app.revocation.store=dynamodb, default) and
+ * InMemoryRevocationStore (app.revocation.store=memory, single-node deployments).
+ */
+public interface RevocationStore {
+
+    String KIND_TOKEN = "jti";
+    String KIND_SUBJECT = "sub";
+
+    /**
+     * kind jti: the token with id value is revoked.
+     * kind sub: every token of subject value issued at or before revokedAtMillis is revoked.
+     * expiresAtEpochSeconds is when the entry stops mattering (the token's, or the longest, expiry).
+     */
+    record Revocation(String kind, String value, long revokedAtMillis, long expiresAtEpochSeconds) {}
+
+    void add(Revocation revocation);
+
+    /** Unexpired revocations with revokedAtMillis > fromMillis, oldest first. */
+    List<Revocation> since(long fromMillis);
+
+    /**
+     * The latest unexpired subject revocation of every subject, in no particular order. Read once per
+     * node on startup, since subject cutoffs outlive the access-token window since() is read for.
+     */
+    List<Revocation> subjectCutoffs();
+}
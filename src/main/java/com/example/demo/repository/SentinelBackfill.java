@@ -0,0 +1,141 @@
+package com.example.demo.repository;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Backfill of email and username sentinel items for users registered before sentinels existed.
+ * - Runs on startup in the background, retrying every RETRY_DELAY_MS after a failure, until it has
+ *   completed once; then writes the UserRepository.SENTINEL_BACKFILL_MARKER item. Later starts only
+ *   read the marker.
+ * - Until the marker exists, UserRepository.create refuses registration with 503: legacy users have
+ *   no sentinel to collide with yet. Disabling this keeps registration refused until the marker
+ *   is written by another node.
+ * - Idempotent: sentinels that already exist are left untouched; a sentinel owned by a
+ *   different user means the table already holds a duplicate and is logged.
+ */
+@Component
+@ConditionalOnProperty(name = "app.backfill.sentinels", havingValue = "true", matchIfMissing = true)
+public class SentinelBackfill implements ApplicationRunner {
+
+    private static final long RETRY_DELAY_MS = 60_000;
+
+    private final DynamoDbClient dynamoDbClient;
+    private final ObjectProvider<UserRepository> userRepository;
+    private final String tableName;
+    private final String storageEngine;
+
+    public SentinelBackfill(DynamoDbClient dynamoDbClient,
+                            ObjectProvider<UserRepository> userRepository,
+                            @Value("${aws.dynamodb.user-table-name}") String tableName,
+                            @Value("${app.storage.engine:dynamodb}") String storageEngine) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.userRepository = userRepository;
+        this.tableName = tableName;
+        this.storageEngine = storageEngine;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!"dynamodb".equals(storageEngine)) {
+            return;
+        }
+        Thread worker = new Thread(() -> {
+            while (true) {
+                try {
+                    if (!isDone()) {
+                        backfill();
+                        markDone();
+                    }
+                    userRepository.ifAvailable(UserRepository::sentinelsBackfillCompleted);
+                    return;
+                } catch (Exception e) {
+                    System.err.println("❌ SentinelBackfill failed, retrying in " + RETRY_DELAY_MS / 1000 + "s: " + e.getMessage());
+                }
+                try {
+                    Thread.sleep(RETRY_DELAY_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "sentinel-backfill");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private boolean isDone() {
+        return dynamoDbClient.getItem(GetItemRequest.builder()
+                .tableName(tableName)
+                .key(Map.of("userId", AttributeValue.fromS(UserRepository.SENTINEL_BACKFILL_MARKER)))
+                .consistentRead(true)
+                .build()).hasItem();
+    }
+
+    private void markDone() {
+        dynamoDbClient.putItem(PutItemRequest.builder()
+                .tableName(tableName)
+                .item(Map.of(
+                        "userId", AttributeValue.fromS(UserRepository.SENTINEL_BACKFILL_MARKER),
+                        "itemType", AttributeValue.fromS(UserRepository.ITEM_TYPE_MIGRATION),
+                        "completedAt", AttributeValue.fromS(Instant.now().toString())))
+                .build());
+    }
+
+    private void backfill() {
+        ScanRequest request = ScanRequest.builder()
+                .tableName(tableName)
+                .filterExpression("attribute_not_exists(itemType)")
+                .projectionExpression("userId, email, username")
+                .build();
+
+        int written = 0, conflicts = 0;
+        for (Map<String, AttributeValue> item : dynamoDbClient.scanPaginator(request).items()) {
+            String userId = UserItemMapper.getStringOrEmpty(item, "userId");
+            String email = UserItemMapper.getStringOrEmpty(item, "email");
+            String username = UserItemMapper.getStringOrEmpty(item, "username");
+
+            if (!email.isBlank()) {
+                if (putSentinel(UserRepository.emailSentinelItem(email, userId), userId)) {
+                    written++;
+                } else {
+                    conflicts++;
+                    System.err.println("SentinelBackfill: email '" + email + "' of user " + userId
+                            + " is already claimed by another user");
+                }
+            }
+            if (!username.isBlank()) {
+                if (putSentinel(UserRepository.usernameSentinelItem(username, userId), userId)) {
+                    written++;
+                } else {
+                    conflicts++;
+                    System.err.println("SentinelBackfill: username '" + username + "' of user " + userId
+                            + " is already claimed by another user");
+                }
+            }
+        }
+        System.out.println("SentinelBackfill: done, written=" + written + ", conflicts=" + conflicts);
+    }
+
+    private boolean putSentinel(Map<String, AttributeValue> sentinel, String userId) {
+        try {
+            dynamoDbClient.putItem(PutItemRequest.builder()
+                    .tableName(tableName)
+                    .item(sentinel)
+                    .conditionExpression("attribute_not_exists(userId) OR ownerId = :owner")
+                    .expressionAttributeValues(Map.of(":owner", AttributeValue.fromS(userId)))
+                    .build());
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.demo.repository;
+
+import java.util.List;
+
+/**
+ * JWT signing keys shared by every node (see SigningKeyRing). Private keys are stored encrypted.
+ * Implementations: DynamoDbSigningKeyStore (jwt.signing.key-store=dynamodb, default) and
+ * InMemorySigningKeyStore (jwt.signing.key-store=memory, single-node deployments).
+ */
+public interface SigningKeyStore {
+
+    /**
+     * publicKey is X.509 DER, encryptedPrivateKey is AES-GCM(PKCS#8 DER) as iv + ciphertext, both Base64.
+     * The key signs from activatesAtMillis and is dropped at expiresAtEpochSeconds.
+     */
+    record StoredKey(String kid, String algorithm, String publicKey, String encryptedPrivateKey,
+                     long activatesAtMillis, long expiresAtEpochSeconds) {}
+
+    /** Stores key unless one with the same kid exists (another node got there first); false then. */
+    boolean createIfAbsent(StoredKey key);
+
+    /** All unexpired keys. */
+    List<StoredKey> findAll();
+}
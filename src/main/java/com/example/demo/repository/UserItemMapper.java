@@ -0,0 +1,82 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.User;
+import com.example.demo.model.UserCredentials;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * User <-> DynamoDB item mapping, shared by UserRepository and tools that seed the table directly.
+ */
+public final class UserItemMapper {
+
+    // "role" is a DynamoDB reserved word, hence the #role placeholder
+    public static final String CREDENTIALS_PROJECTION = "userId, email, passwordHash, #role, version";
+    public static final Map<String, String> CREDENTIALS_PROJECTION_NAMES = Map.of("#role", "role");
+
+    private UserItemMapper() {}
+
+    public static Map<String, AttributeValue> toItem(User user) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("userId", AttributeValue.fromS(user.getUserId()));
+        item.put("email", AttributeValue.fromS(user.getEmail()));
+        item.put("username", AttributeValue.fromS(user.getUsername()));
+        item.put("passwordHash", AttributeValue.fromS(user.getPasswordHash()));
+        item.put("role", AttributeValue.fromS(user.getRole()));
+        item.put("firstName", AttributeValue.fromS(user.getFirstName()));
+        item.put("lastName", AttributeValue.fromS(user.getLastName()));
+        item.put("phone", AttributeValue.fromS(user.getPhone()));
+        item.put("dateOfBirth", AttributeValue.fromS(user.getDateOfBirth()));
+        item.put("riskAppetite", AttributeValue.fromS(user.getRiskAppetite()));
+        item.put("experience", AttributeValue.fromS(user.getExperience()));
+        item.put("investmentGoal", AttributeValue.fromS(user.getInvestmentGoal()));
+        item.put("createdAt", AttributeValue.fromS(user.getCreatedAt()));
+        item.put("updatedAt", AttributeValue.fromS(user.getUpdatedAt()));
+        item.put("version", AttributeValue.fromN(Long.toString(user.getVersion())));
+        return item;
+    }
+
+    // ✅ FIXED SAFE MAPPING
+    public static User mapToUser(Map<String, AttributeValue> item) {
+        User user = new User();
+        user.setUserId(getStringOrEmpty(item, "userId"));
+        user.setEmail(getStringOrEmpty(item, "email"));
+        user.setUsername(getStringOrEmpty(item, "username"));
+        user.setPasswordHash(getStringOrEmpty(item, "passwordHash"));
+        user.setRole(getStringOrEmpty(item, "role"));
+        user.setFirstName(getStringOrEmpty(item, "firstName"));
+        user.setLastName(getStringOrEmpty(item, "lastName"));
+        user.setPhone(getStringOrEmpty(item, "phone"));
+        user.setDateOfBirth(getStringOrEmpty(item, "dateOfBirth"));
+        user.setRiskAppetite(getStringOrEmpty(item, "riskAppetite"));
+        user.setExperience(getStringOrEmpty(item, "experience"));
+        user.setInvestmentGoal(getStringOrEmpty(item, "investmentGoal"));
+        user.setCreatedAt(getStringOrEmpty(item, "createdAt"));
+        user.setUpdatedAt(getStringOrEmpty(item, "updatedAt"));
+        user.setVersion(getLongOrZero(item, "version"));
+        return user;
+    }
+
+    public static UserCredentials mapToCredentials(Map<String, AttributeValue> item) {
+        return new UserCredentials(
+                getStringOrEmpty(item, "userId"),
+                getStringOrEmpty(item, "email"),
+                getStringOrEmpty(item, "passwordHash"),
+                getStringOrEmpty(item, "role"),
+                getLongOrZero(item, "version")
+        );
+    }
+
+    // ✅ FIXED: No hasValue() - Simple null check
+    public static String getStringOrEmpty(Map<String, AttributeValue> item, String key) {
+        AttributeValue value = item.get(key);
+        return value != null && value.s() != null ? value.s() : "";
+    }
+
+    public static long getLongOrZero(Map<String, AttributeValue> item, String key) {
+        AttributeValue value = item.get(key);
+        return value != null && value.n() != null ? Long.parseLong(value.n()) : 0L;
+    }
+}
@@ -1,157 +1,671 @@
 package com.example.demo.repository;
 
+import com.example.demo.cache.BoundedCache;
+import com.example.demo.exception.BackendUnavailableException;
+import com.example.demo.exception.ConcurrentUpdateException;
+import com.example.demo.exception.DuplicateUserException;
 import com.example.demo.model.User;
+import com.example.demo.model.UserCredentials;
+import com.example.demo.resilience.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
 
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Repository
-public class UserRepository {
+@ConditionalOnProperty(name = "app.storage.engine", havingValue = "dynamodb", matchIfMissing = true)
+public class UserRepository implements UserStore {
+    /**
+     * Uniqueness is kept with sentinel items in the user table:
+     * userId = "USERNAME#" / "EMAIL#" + lower-cased value, itemType = USERNAME / EMAIL, ownerId = the real userId.
+     * A username lookup is a single GetItem on the table key, and registration can guard both
+     * values with attribute_not_exists in the same transaction as the user item.
+     */
+    public static final String USERNAME_SENTINEL_PREFIX = "USERNAME#";
+    public static final String ITEM_TYPE_USERNAME = "USERNAME";
+    public static final String EMAIL_SENTINEL_PREFIX = "EMAIL#";
+    public static final String ITEM_TYPE_EMAIL = "EMAIL";
+    public static final String DEGRADED_MODE_CACHED = "cached";
+    // Written by SentinelBackfill once every user created before sentinels has them
+    public static final String SENTINEL_BACKFILL_MARKER = "MIGRATION#sentinel-backfill";
+    public static final String ITEM_TYPE_MIGRATION = "MIGRATION";
+
+    private static final int BATCH_GET_MAX_KEYS = 100;
+    // BatchWriteItem takes at most 25 items; a user's items always go in the same request
+    private static final int BATCH_WRITE_ITEMS = 25;
+    private static final int BATCH_MAX_ATTEMPTS = 8;
+    private static final long BACKFILL_MARKER_CHECK_MS = 60_000;
+
     private final DynamoDbClient dynamoDbClient;
     private final String tableName;
+    // Read-through cache of user items keyed by normalizeEmail; invalidated on every save on this node
+    private final BoundedCache<String, Map<String, AttributeValue>> userItemCache;
+    // Projected credentials for auth paths, same key; invalidated together with userItemCache. Other
+    // nodes only see a new password hash once their entry expires, so its TTL is kept short
+    private final BoundedCache<String, UserCredentials> credentialsCache;
+    private final CircuitBreaker emailIndexBreaker;
+    // What to do when EmailIndex is unavailable: fail-fast or cached
+    private final String degradedMode;
+    // EmailIndex unavailable: answered from an expired cache entry vs. failed with 503
+    private final Counter staleServedCounter;
+    private final Counter unavailableCounter;
+    // Items evaluated per Scan page (before the sentinel filter)
+    private final int scanPageSize;
+    // Set once the backfill marker has been seen; until then registration is refused
+    private volatile boolean sentinelsBackfilled;
+    private volatile long nextBackfillCheckMillis;
 
     public UserRepository(DynamoDbClient dynamoDbClient,
-                          @Value("${aws.dynamodb.user-table-name}") String tableName) {
+                          @Value("${aws.dynamodb.user-table-name}") String tableName,
+                          BoundedCache<String, Map<String, AttributeValue>> userItemCache,
+                          BoundedCache<String, UserCredentials> credentialsCache,
+                          CircuitBreaker emailIndexCircuitBreaker,
+                          @Value("${aws.dynamodb.email-index.degraded-mode:cached}") String degradedMode,
+                          @Value("${aws.dynamodb.scan.page-size:1000}") int scanPageSize,
+                          MeterRegistry meterRegistry) {
         this.dynamoDbClient = dynamoDbClient;
         this.tableName = tableName;
+        this.userItemCache = userItemCache;
+        this.credentialsCache = credentialsCache;
+        this.emailIndexBreaker = emailIndexCircuitBreaker;
+        this.degradedMode = degradedMode;
+        this.scanPageSize = scanPageSize;
+        this.staleServedCounter = Counter.builder("dynamodb.email_index.degraded")
+                .tag("result", "stale_served")
+                .register(meterRegistry);
+        this.unavailableCounter = Counter.builder("dynamodb.email_index.degraded")
+                .tag("result", "unavailable")
+                .register(meterRegistry);
     }
 
+    @Override
     public void save(User user) {
-        Map<String, AttributeValue> item = new HashMap<>();
-        item.put("userId", AttributeValue.fromS(user.getUserId()));
-        item.put("email", AttributeValue.fromS(user.getEmail()));
-        item.put("username", AttributeValue.fromS(user.getUsername()));
-        item.put("passwordHash", AttributeValue.fromS(user.getPasswordHash()));
-        item.put("role", AttributeValue.fromS(user.getRole()));
-        item.put("firstName", AttributeValue.fromS(user.getFirstName()));
-        item.put("lastName", AttributeValue.fromS(user.getLastName()));
-        item.put("phone", AttributeValue.fromS(user.getPhone()));
-        item.put("dateOfBirth", AttributeValue.fromS(user.getDateOfBirth()));
-        item.put("riskAppetite", AttributeValue.fromS(user.getRiskAppetite()));
-        item.put("experience", AttributeValue.fromS(user.getExperience()));
-        item.put("investmentGoal", AttributeValue.fromS(user.getInvestmentGoal()));
-        item.put("createdAt", AttributeValue.fromS(user.getCreatedAt()));
-        item.put("updatedAt", AttributeValue.fromS(user.getUpdatedAt()));
-        item.put("otp", AttributeValue.fromS(user.getOtp() == null ? "" : user.getOtp()));
-        item.put("otpExpiry", AttributeValue.fromS(user.getOtpExpiry() == null ? "" : user.getOtpExpiry()));
+        Map<String, AttributeValue> item = UserItemMapper.toItem(user);
 
         PutItemRequest request = PutItemRequest.builder()
                 .tableName(tableName)
                 .item(item)
                 .build();
         dynamoDbClient.putItem(request);
+        invalidate(user.getEmail());
     }
 
-    // ✅ GSI QUERY - UNLIMITED USERS!
-    public Optional<User> findByEmail(String email) {
+    /**
+     * Registers a new user in one TransactWriteItems call: the user item plus the email and
+     * username sentinels, each guarded by attribute_not_exists. Either all three are written
+     * or none is; a guard failure is reported as DuplicateUserException.
+     * Until SentinelBackfill has finished, users from before the sentinels have none, so the guards
+     * cannot see them: registration is refused with 503 until then (see sentinelsBackfilled).
+     */
+    @Override
+    public void create(User user) {
+        checkAcceptingNewUsers();
+        TransactWriteItemsRequest request = TransactWriteItemsRequest.builder()
+                .transactItems(
+                        conditionalPut(UserItemMapper.toItem(user)),
+                        conditionalPut(emailSentinelItem(user.getEmail(), user.getUserId())),
+                        conditionalPut(usernameSentinelItem(user.getUsername(), user.getUserId())))
+                .build();
+        try {
+            dynamoDbClient.transactWriteItems(request);
+        } catch (TransactionCanceledException e) {
+            List<CancellationReason> reasons = e.cancellationReasons();
+            if (isConditionFailure(reasons, 1)) {
+                throw new DuplicateUserException("Email already exists");
+            }
+            if (isConditionFailure(reasons, 2)) {
+                throw new DuplicateUserException("Username already exists");
+            }
+            throw e;
+        }
+        invalidate(user.getEmail());
+    }
+
+    @Override
+    public void checkAcceptingNewUsers() {
+        if (!sentinelsBackfilled()) {
+            throw new BackendUnavailableException("Registration is paused while accounts are migrated, please retry later", null);
+        }
+    }
+
+    /**
+     * False until the SentinelBackfill marker item exists: users registered before sentinels may not
+     * have one yet. The marker is read at most once a minute, and never again once found.
+     */
+    boolean sentinelsBackfilled() {
+        if (sentinelsBackfilled) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now < nextBackfillCheckMillis) {
+            return false;
+        }
+        nextBackfillCheckMillis = now + BACKFILL_MARKER_CHECK_MS;
         try {
-            QueryRequest request = QueryRequest.builder()
+            sentinelsBackfilled = dynamoDbClient.getItem(GetItemRequest.builder()
                     .tableName(tableName)
-                    .indexName("EmailIndex")
-                    .keyConditionExpression("email = :email")
-                    .expressionAttributeValues(Map.of(":email", AttributeValue.fromS(email)))
-                    .limit(1)
-                    .build();
+                    .key(Map.of("userId", AttributeValue.fromS(SENTINEL_BACKFILL_MARKER)))
+                    .projectionExpression("userId")
+                    .consistentRead(true)
+                    .build()).hasItem();
+        } catch (Exception e) {
+            System.err.println("❌ Sentinel backfill marker check failed: " + e.getMessage());
+        }
+        return sentinelsBackfilled;
+    }
 
-            QueryResponse response = dynamoDbClient.query(request);
-            
-            if (response.items().isEmpty()) {
-                System.out.println("🔍 User not found in EmailIndex: " + email);
-                return Optional.empty();
+    /** Called by SentinelBackfill once the marker is written, so this node need not wait for its next read. */
+    void sentinelsBackfillCompleted() {
+        sentinelsBackfilled = true;
+    }
+
+    // ---------- BULK IMPORT (BatchGetItem + BatchWriteItem) ----------
+
+    /**
+     * Bulk registration for imports, without a transaction per user:
+     * 0. the whole batch is refused with BackendUnavailableException until the sentinel backfill
+     *    has finished, as in create: legacy users would not be seen as duplicates before that;
+     * 1. duplicates within the batch, then users whose email/username sentinel already exists
+     *    (one BatchGetItem per 100 keys), are rejected;
+     * 2. both sentinels of the remaining users are written with BatchWriteItem;
+     * 3. only users whose sentinels were both written get their user item written.
+     * A user item therefore never exists without its sentinels. When a step fails for a user, what
+     * was written for it is deleted again (sentinels only if still owned by that user) before it is
+     * reported, so a retry starts clean. BatchWriteItem cannot be conditional, so a /register of the
+     * same email racing the import between steps 1 and 2 is not detected; imports are meant for
+     * fresh data sets.
+     */
+    @Override
+    public List<RuntimeException> createAll(List<User> users) {
+        checkAcceptingNewUsers();
+        List<RuntimeException> errors = new ArrayList<>(Collections.nCopies(users.size(), (RuntimeException) null));
+        // Table key of each item to write (user item and sentinels) -> index of its user
+        Map<String, Integer> owners = new HashMap<>();
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            String emailKey = EMAIL_SENTINEL_PREFIX + normalizeEmail(user.getEmail());
+            String usernameKey = USERNAME_SENTINEL_PREFIX + normalizeUsername(user.getUsername());
+            if (owners.containsKey(emailKey)) {
+                errors.set(i, new DuplicateUserException("Email already exists"));
+            } else if (owners.containsKey(usernameKey)) {
+                errors.set(i, new DuplicateUserException("Username already exists"));
+            } else {
+                owners.put(emailKey, i);
+                owners.put(usernameKey, i);
             }
+        }
+        for (String key : existingKeys(owners.keySet())) {
+            int i = owners.get(key);
+            if (errors.get(i) == null || key.startsWith(EMAIL_SENTINEL_PREFIX)) {
+                errors.set(i, new DuplicateUserException(key.startsWith(EMAIL_SENTINEL_PREFIX)
+                        ? "Email already exists" : "Username already exists"));
+            }
+        }
 
-            Map<String, AttributeValue> item = response.items().get(0);
-            User user = mapToUser(item);
-            System.out.println("✅ User found via GSI: " + user.getEmail());
-            return Optional.of(user);
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < users.size(); i++) {
+            if (errors.get(i) != null) {
+                continue;
+            }
+            pending.add(i);
+            owners.put(users.get(i).getUserId(), i);
+        }
 
-        } catch (Exception e) {
-            System.err.println("❌ GSI Query failed, using SCAN fallback: " + e.getMessage());
-            return findByEmailScanFallback(email);
+        List<Integer> claimed = batchPut(pending, users, owners, errors, 2, user -> List.of(
+                emailSentinelItem(user.getEmail(), user.getUserId()),
+                usernameSentinelItem(user.getUsername(), user.getUserId())));
+        for (int i : pending) {
+            if (errors.get(i) != null) {
+                release(users.get(i), false);
+            }
+        }
+        batchPut(claimed, users, owners, errors, 1, user -> List.of(UserItemMapper.toItem(user)));
+        for (int i : claimed) {
+            if (errors.get(i) != null) {
+                release(users.get(i), true);
+            }
         }
+        return errors;
     }
 
-    // ✅ GSI existsByEmail
-    public boolean existsByEmail(String email) {
+    /**
+     * Writes items(user) for each index with BatchWriteItem, as many users per request as fit in
+     * BATCH_WRITE_ITEMS. Returns the indexes whose items were all written; the others get an error.
+     */
+    private List<Integer> batchPut(List<Integer> indexes, List<User> users, Map<String, Integer> owners,
+                                   List<RuntimeException> errors, int itemsPerUser,
+                                   Function<User, List<Map<String, AttributeValue>>> items) {
+        List<Integer> written = new ArrayList<>(indexes.size());
+        int usersPerBatch = BATCH_WRITE_ITEMS / itemsPerUser;
+        for (int from = 0; from < indexes.size(); from += usersPerBatch) {
+            List<Integer> chunk = indexes.subList(from, Math.min(from + usersPerBatch, indexes.size()));
+            List<WriteRequest> writes = new ArrayList<>(chunk.size() * itemsPerUser);
+            for (int i : chunk) {
+                items.apply(users.get(i)).forEach(item -> writes.add(putRequest(item)));
+            }
+            try {
+                for (WriteRequest unprocessed : batchWrite(writes)) {
+                    errors.set(owners.get(unprocessed.putRequest().item().get("userId").s()),
+                            new BackendUnavailableException("Not written (throttled), please retry", null));
+                }
+            } catch (Exception e) {
+                System.err.println("❌ BatchWriteItem failed: " + e.getMessage());
+                BackendUnavailableException failure = new BackendUnavailableException("Write failed, please retry", e);
+                chunk.forEach(i -> errors.set(i, failure));
+            }
+            for (int i : chunk) {
+                if (errors.get(i) == null) {
+                    written.add(i);
+                }
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Deletes what a failed import may have written for user: the user item (its userId is new, so
+     * nobody else can own it) first, then the sentinels, each only while still owned by this user.
+     * If cleanup fails too, the leftover keys are logged; they block that email/username until removed.
+     */
+    private void release(User user, boolean userItem) {
+        List<Map<String, AttributeValue>> keys = new ArrayList<>();
+        if (userItem) {
+            keys.add(Map.of("userId", AttributeValue.fromS(user.getUserId())));
+        }
+        keys.add(Map.of("userId", AttributeValue.fromS(EMAIL_SENTINEL_PREFIX + normalizeEmail(user.getEmail()))));
+        keys.add(usernameSentinelKey(user.getUsername()));
+        for (Map<String, AttributeValue> key : keys) {
+            boolean sentinel = !key.get("userId").s().equals(user.getUserId());
+            DeleteItemRequest.Builder request = DeleteItemRequest.builder().tableName(tableName).key(key);
+            if (sentinel) {
+                request.conditionExpression("attribute_not_exists(userId) OR ownerId = :owner")
+                        .expressionAttributeValues(Map.of(":owner", AttributeValue.fromS(user.getUserId())));
+            }
+            try {
+                dynamoDbClient.deleteItem(request.build());
+            } catch (ConditionalCheckFailedException e) {
+                // Claimed by someone else (a racing /register): not ours to delete
+            } catch (Exception e) {
+                System.err.println("❌ Import cleanup failed, remove manually: userId=" + key.get("userId").s()
+                        + " (" + e.getMessage() + ")");
+            }
+        }
+    }
+
+    // Table keys (userId values) among keys that already exist
+    private Set<String> existingKeys(Collection<String> keys) {
+        Set<String> existing = new HashSet<>();
+        List<String> all = new ArrayList<>(keys);
+        for (int from = 0; from < all.size(); from += BATCH_GET_MAX_KEYS) {
+            List<Map<String, AttributeValue>> batch = new ArrayList<>();
+            for (String key : all.subList(from, Math.min(from + BATCH_GET_MAX_KEYS, all.size()))) {
+                batch.add(Map.of("userId", AttributeValue.fromS(key)));
+            }
+            KeysAndAttributes request = KeysAndAttributes.builder().keys(batch).projectionExpression("userId").build();
+            for (int attempt = 1; ; attempt++) {
+                BatchGetItemResponse response = dynamoDbClient.batchGetItem(BatchGetItemRequest.builder()
+                        .requestItems(Map.of(tableName, request))
+                        .build());
+                response.responses().getOrDefault(tableName, List.of())
+                        .forEach(item -> existing.add(item.get("userId").s()));
+                request = response.unprocessedKeys().get(tableName);
+                if (request == null || !request.hasKeys() || request.keys().isEmpty()) {
+                    break;
+                }
+                if (attempt >= BATCH_MAX_ATTEMPTS) {
+                    throw new BackendUnavailableException("User lookup temporarily unavailable", null);
+                }
+                backoff(attempt);
+            }
+        }
+        return existing;
+    }
+
+    // Returns what is still unprocessed after BATCH_MAX_ATTEMPTS calls
+    private List<WriteRequest> batchWrite(List<WriteRequest> writes) {
+        List<WriteRequest> pending = writes;
+        for (int attempt = 1; ; attempt++) {
+            BatchWriteItemResponse response = dynamoDbClient.batchWriteItem(BatchWriteItemRequest.builder()
+                    .requestItems(Map.of(tableName, pending))
+                    .build());
+            pending = response.unprocessedItems().getOrDefault(tableName, List.of());
+            if (pending.isEmpty() || attempt >= BATCH_MAX_ATTEMPTS) {
+                return pending;
+            }
+            backoff(attempt);
+        }
+    }
+
+    private static WriteRequest putRequest(Map<String, AttributeValue> item) {
+        return WriteRequest.builder().putRequest(PutRequest.builder().item(item).build()).build();
+    }
+
+    // Exponential backoff with full jitter: up to 50ms, 100ms, ... capped at 2s
+    private static void backoff(int attempt) {
+        long cap = Math.min(2000, 50L << Math.min(attempt - 1, 6));
         try {
-            QueryRequest request = QueryRequest.builder()
-                    .tableName(tableName)
-                    .indexName("EmailIndex")
-                    .keyConditionExpression("email = :email")
-                    .expressionAttributeValues(Map.of(":email", AttributeValue.fromS(email)))
-                    .limit(1)
-                    .build();
+            Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during batch retry", e);
+        }
+    }
 
-            QueryResponse response = dynamoDbClient.query(request);
-            boolean exists = !response.items().isEmpty();
-            System.out.println("🔍 Email exists check: " + email + " → " + exists);
-            return exists;
+    // ---------- LISTING (parallel Scan) ----------
 
-        } catch (Exception e) {
-            System.err.println("❌ GSI existsByEmail failed, using SCAN: " + e.getMessage());
-            return existsByEmailScan(email);
+    /**
+     * One segment of a parallel Scan. User items are the ones without itemType (see the sentinels),
+     * and every projected name goes through a placeholder since some ("role") are reserved words.
+     * Runs on the caller's thread; one page per call to pageConsumer, so memory stays at one page.
+     */
+    @Override
+    public void scanSegment(int segment, int totalSegments, Collection<String> fields, Consumer<List<User>> pageConsumer) {
+        Map<String, String> names = new HashMap<>();
+        names.put("#itemType", "itemType");
+        ScanRequest.Builder request = ScanRequest.builder()
+                .tableName(tableName)
+                .segment(segment)
+                .totalSegments(totalSegments)
+                .limit(scanPageSize)
+                .filterExpression("attribute_not_exists(#itemType)");
+        if (!fields.isEmpty()) {
+            List<String> projection = new ArrayList<>(fields.size());
+            int i = 0;
+            for (String field : fields) {
+                names.put("#p" + i, field);
+                projection.add("#p" + i++);
+            }
+            request.projectionExpression(String.join(", ", projection));
+        }
+        request.expressionAttributeNames(names);
+
+        for (ScanResponse page : dynamoDbClient.scanPaginator(request.build())) {
+            if (page.hasItems() && !page.items().isEmpty()) {
+                List<User> users = new ArrayList<>(page.items().size());
+                page.items().forEach(item -> users.add(UserItemMapper.mapToUser(item)));
+                pageConsumer.accept(users);
+            }
         }
     }
 
-    public boolean existsByUsername(String username) {
-        return existsByEmailScan(username.replaceAll("username", "username")); // Reuse SCAN
+    // ---------- PARTIAL UPDATES (UpdateItem + optimistic version) ----------
+
+    /**
+     * Password reset and rehash-on-login. Loses (ConcurrentUpdateException) if the user changed
+     * meanwhile. Also drops the otp/otpExpiry attributes left on items from before OtpStore.
+     */
+    @Override
+    public void updatePasswordHash(UserCredentials credentials, String passwordHash) {
+        conditionalUpdate(credentials.getUserId(), credentials.getEmail(), credentials.getVersion(),
+                "SET passwordHash = :passwordHash, updatedAt = :now, version = :nextVersion REMOVE otp, otpExpiry",
+                Map.of(":passwordHash", AttributeValue.fromS(passwordHash)));
     }
 
-    // 🔧 FALLBACK SCAN METHODS
-    private Optional<User> findByEmailScanFallback(String email) {
-        ScanRequest request = ScanRequest.builder()
+    // Metadata only: no version check, but still bumps the version so readers notice
+    @Override
+    public void touchUpdatedAt(User user) {
+        UpdateItemRequest request = UpdateItemRequest.builder()
                 .tableName(tableName)
-                .filterExpression("email = :email")
-                .expressionAttributeValues(Map.of(":email", AttributeValue.fromS(email)))
-                .limit(1)
+                .key(Map.of("userId", AttributeValue.fromS(user.getUserId())))
+                .updateExpression("SET updatedAt = :now ADD version :one")
+                .conditionExpression("attribute_exists(userId)")
+                .expressionAttributeValues(Map.of(
+                        ":now", AttributeValue.fromS(Instant.now().toString()),
+                        ":one", AttributeValue.fromN("1")))
+                .build();
+        dynamoDbClient.updateItem(request);
+        invalidate(user.getEmail());
+    }
+
+    /**
+     * Applies updateExpression (which must set updatedAt = :now and version = :nextVersion) only if
+     * the stored version still equals expectedVersion (items written before versioning have none).
+     */
+    private void conditionalUpdate(String userId, String email, long expectedVersion,
+                                   String updateExpression, Map<String, AttributeValue> values) {
+        Map<String, AttributeValue> allValues = new HashMap<>(values);
+        allValues.put(":now", AttributeValue.fromS(Instant.now().toString()));
+        allValues.put(":nextVersion", AttributeValue.fromN(Long.toString(expectedVersion + 1)));
+        String versionCondition;
+        if (expectedVersion == 0) {
+            versionCondition = "attribute_not_exists(version)";
+        } else {
+            versionCondition = "version = :expectedVersion";
+            allValues.put(":expectedVersion", AttributeValue.fromN(Long.toString(expectedVersion)));
+        }
+
+        UpdateItemRequest request = UpdateItemRequest.builder()
+                .tableName(tableName)
+                .key(Map.of("userId", AttributeValue.fromS(userId)))
+                .updateExpression(updateExpression)
+                .conditionExpression("attribute_exists(userId) AND " + versionCondition)
+                .expressionAttributeValues(allValues)
+                .build();
+        try {
+            dynamoDbClient.updateItem(request);
+        } catch (ConditionalCheckFailedException e) {
+            throw new ConcurrentUpdateException("User was modified concurrently, please retry", e);
+        } finally {
+            invalidate(email);
+        }
+    }
+
+    private void invalidate(String email) {
+        String key = normalizeEmail(email);
+        userItemCache.invalidate(key);
+        credentialsCache.invalidate(key);
+    }
+
+    /**
+     * Cached user item for exactly this email. Keys are normalized so invalidation reaches every
+     * spelling, but EmailIndex matches case-sensitively: an entry read for another spelling is a miss.
+     */
+    private Map<String, AttributeValue> cachedItem(String email) {
+        Map<String, AttributeValue> item = userItemCache.get(normalizeEmail(email));
+        return item != null && email.equals(UserItemMapper.getStringOrEmpty(item, "email")) ? item : null;
+    }
+
+    private UserCredentials cachedCredentials(String email) {
+        UserCredentials credentials = credentialsCache.get(normalizeEmail(email));
+        return credentials != null && email.equals(credentials.getEmail()) ? credentials : null;
+    }
+
+    private TransactWriteItem conditionalPut(Map<String, AttributeValue> item) {
+        return TransactWriteItem.builder()
+                .put(Put.builder()
+                        .tableName(tableName)
+                        .item(item)
+                        .conditionExpression("attribute_not_exists(userId)")
+                        .build())
                 .build();
-        ScanResponse response = dynamoDbClient.scan(request);
+    }
+
+    private static boolean isConditionFailure(List<CancellationReason> reasons, int index) {
+        return reasons != null && reasons.size() > index
+                && "ConditionalCheckFailed".equals(reasons.get(index).code());
+    }
+
+    // ✅ GSI QUERY - UNLIMITED USERS!
+    @Override
+    public Optional<User> findByEmail(String email) {
+        Map<String, AttributeValue> cached = cachedItem(email);
+        if (cached != null) {
+            return Optional.of(UserItemMapper.mapToUser(cached));
+        }
+        QueryResponse response;
+        try {
+            response = queryEmailIndex(emailIndexQuery(email).build());
+        } catch (BackendUnavailableException e) {
+            return Optional.of(UserItemMapper.mapToUser(staleOrThrow(userItemCache, email, e)));
+        }
+        if (response.items().isEmpty()) {
+            System.out.println("🔍 User not found in EmailIndex: " + email);
+            return Optional.empty();
+        }
+        Map<String, AttributeValue> item = response.items().get(0);
+        userItemCache.put(normalizeEmail(email), item);
+        return Optional.of(UserItemMapper.mapToUser(item));
+    }
+
+    /**
+     * Auth-path lookup: projects only userId, email, passwordHash and role.
+     * Served only from the short-lived credentials cache, never from the user item cache, so a
+     * password changed on another node is picked up within app.user-cache.credentials-ttl-seconds.
+     * Never answers from an expired entry: when EmailIndex is unavailable this throws
+     * BackendUnavailableException (login answers 503) whatever the degraded mode.
+     */
+    @Override
+    public Optional<UserCredentials> findCredentialsByEmail(String email) {
+        UserCredentials cached = cachedCredentials(email);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        QueryResponse response;
+        try {
+            response = queryEmailIndex(emailIndexQuery(email)
+                    .projectionExpression(UserItemMapper.CREDENTIALS_PROJECTION)
+                    .expressionAttributeNames(UserItemMapper.CREDENTIALS_PROJECTION_NAMES)
+                    .build());
+        } catch (BackendUnavailableException e) {
+            unavailableCounter.increment();
+            throw e;
+        }
         if (response.items().isEmpty()) {
             return Optional.empty();
         }
-        return Optional.of(mapToUser(response.items().get(0)));
+        UserCredentials credentials = UserItemMapper.mapToCredentials(response.items().get(0));
+        credentialsCache.put(normalizeEmail(email), credentials);
+        return Optional.of(credentials);
+    }
+
+    // Strongly consistent GetItem on the table key: sees every committed write, unlike EmailIndex or the caches
+    @Override
+    public Optional<UserCredentials> findCredentialsByUserId(String userId) {
+        GetItemResponse response = dynamoDbClient.getItem(GetItemRequest.builder()
+                .tableName(tableName)
+                .key(Map.of("userId", AttributeValue.fromS(userId)))
+                .projectionExpression(UserItemMapper.CREDENTIALS_PROJECTION)
+                .expressionAttributeNames(UserItemMapper.CREDENTIALS_PROJECTION_NAMES)
+                .consistentRead(true)
+                .build());
+        return response.hasItem() ? Optional.of(UserItemMapper.mapToCredentials(response.item())) : Optional.empty();
+    }
+
+    // ✅ GSI existsByEmail - keys-only: Select.COUNT returns no attributes at all
+    @Override
+    public boolean existsByEmail(String email) {
+        if (cachedItem(email) != null || cachedCredentials(email) != null) {
+            return true;
+        }
+        try {
+            boolean exists = queryEmailIndex(emailIndexQuery(email).select(Select.COUNT).build()).count() > 0;
+            System.out.println("🔍 Email exists check: " + email + " → " + exists);
+            return exists;
+        } catch (BackendUnavailableException e) {
+            if (credentialsCache.getStale(normalizeEmail(email)) != null && DEGRADED_MODE_CACHED.equals(degradedMode)) {
+                staleServedCounter.increment();
+                return true;
+            }
+            return staleOrThrow(userItemCache, email, e) != null;
+        }
+    }
+
+    private QueryRequest.Builder emailIndexQuery(String email) {
+        return QueryRequest.builder()
+                .tableName(tableName)
+                .indexName("EmailIndex")
+                .keyConditionExpression("email = :email")
+                .expressionAttributeValues(Map.of(":email", AttributeValue.fromS(email)))
+                .limit(1);
+    }
+
+    /**
+     * EmailIndex query behind the circuit breaker. There is deliberately no Scan fallback:
+     * during GSI throttling a per-request table scan only amplifies the outage.
+     * Throws BackendUnavailableException when the breaker is open or the query fails.
+     */
+    private QueryResponse queryEmailIndex(QueryRequest request) {
+        if (!emailIndexBreaker.tryAcquirePermission()) {
+            throw new BackendUnavailableException("User lookup temporarily unavailable", null);
+        }
+        try {
+            QueryResponse response = dynamoDbClient.query(request);
+            emailIndexBreaker.onSuccess();
+            return response;
+        } catch (Exception e) {
+            emailIndexBreaker.onError();
+            System.err.println("❌ GSI Query failed: " + e.getMessage());
+            throw new BackendUnavailableException("User lookup temporarily unavailable", e);
+        }
     }
 
-    private boolean existsByEmailScan(String value) {
-        ScanRequest request = ScanRequest.builder()
+    // "cached" mode answers from a possibly expired cache entry; otherwise (or on a miss) fail fast
+    private <T> T staleOrThrow(BoundedCache<String, T> cache, String email, BackendUnavailableException e) {
+        if (DEGRADED_MODE_CACHED.equals(degradedMode)) {
+            T stale = cache.getStale(normalizeEmail(email));
+            if (stale != null) {
+                staleServedCounter.increment();
+                return stale;
+            }
+        }
+        unavailableCounter.increment();
+        throw e;
+    }
+
+    @Override
+    public boolean existsByUsername(String username) {
+        GetItemRequest request = GetItemRequest.builder()
                 .tableName(tableName)
-                .filterExpression("email = :email")
-                .expressionAttributeValues(Map.of(":email", AttributeValue.fromS(value)))
-                .limit(1)
+                .key(usernameSentinelKey(username))
+                .projectionExpression("userId")
                 .build();
-        return !dynamoDbClient.scan(request).items().isEmpty();
-    }
-
-    // ✅ FIXED SAFE MAPPING
-    private User mapToUser(Map<String, AttributeValue> item) {
-        User user = new User();
-        user.setUserId(getStringOrEmpty(item, "userId"));
-        user.setEmail(getStringOrEmpty(item, "email"));
-        user.setUsername(getStringOrEmpty(item, "username"));
-        user.setPasswordHash(getStringOrEmpty(item, "passwordHash"));
-        user.setRole(getStringOrEmpty(item, "role"));
-        user.setFirstName(getStringOrEmpty(item, "firstName"));
-        user.setLastName(getStringOrEmpty(item, "lastName"));
-        user.setPhone(getStringOrEmpty(item, "phone"));
-        user.setDateOfBirth(getStringOrEmpty(item, "dateOfBirth"));
-        user.setRiskAppetite(getStringOrEmpty(item, "riskAppetite"));
-        user.setExperience(getStringOrEmpty(item, "experience"));
-        user.setInvestmentGoal(getStringOrEmpty(item, "investmentGoal"));
-        user.setCreatedAt(getStringOrEmpty(item, "createdAt"));
-        user.setUpdatedAt(getStringOrEmpty(item, "updatedAt"));
-        user.setOtp(getStringOrEmpty(item, "otp"));
-        user.setOtpExpiry(getStringOrEmpty(item, "otpExpiry"));
-        return user;
-    }
-
-    // ✅ FIXED: No hasValue() - Simple null check
-    private String getStringOrEmpty(Map<String, AttributeValue> item, String key) {
-        AttributeValue value = item.get(key);
-        return value != null && value.s() != null ? value.s() : "";
-    }
-}
\ No newline at end of file
+        return dynamoDbClient.getItem(request).hasItem();
+    }
+
+    public static Map<String, AttributeValue> usernameSentinelKey(String username) {
+        return Map.of("userId", AttributeValue.fromS(USERNAME_SENTINEL_PREFIX + normalizeUsername(username)));
+    }
+
+    public static Map<String, AttributeValue> usernameSentinelItem(String username, String userId) {
+        return Map.of(
+                "userId", AttributeValue.fromS(USERNAME_SENTINEL_PREFIX + normalizeUsername(username)),
+                "itemType", AttributeValue.fromS(ITEM_TYPE_USERNAME),
+                "ownerId", AttributeValue.fromS(userId)
+        );
+    }
+
+    public static Map<String, AttributeValue> emailSentinelItem(String email, String userId) {
+        return Map.of(
+                "userId", AttributeValue.fromS(EMAIL_SENTINEL_PREFIX + normalizeEmail(email)),
+                "itemType", AttributeValue.fromS(ITEM_TYPE_EMAIL),
+                "ownerId", AttributeValue.fromS(userId)
+        );
+    }
+
+    public static String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Usernames are unique case-insensitively
+    public static String normalizeUsername(String username) {
+        return username.trim().toLowerCase(Locale.ROOT);
+    }
+}
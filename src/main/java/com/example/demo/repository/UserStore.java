@@ -0,0 +1,82 @@
+package com.example.demo.repository;
+
+import com.example.demo.exception.DuplicateUserException;
+import com.example.demo.model.User;
+import com.example.demo.model.UserCredentials;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Storage SPI for user accounts; UserService and CustomUserDetailsService depend only on this.
+ * Implementations: UserRepository (app.storage.engine=dynamodb, default) and
+ * EmbeddedUserStore (app.storage.engine=embedded, single-node deployments).
+ */
+public interface UserStore {
+
+    /**
+     * Write of the whole user without a version check. EmbeddedUserStore throws DuplicateUserException
+     * rather than move another user's email or username to this one.
+     */
+    void save(User user);
+
+    /**
+     * Throws BackendUnavailableException while new users cannot be registered (UserRepository: until
+     * the sentinel backfill has finished). create and createAll check it themselves; call it to
+     * refuse a whole import before anything is streamed.
+     */
+    default void checkAcceptingNewUsers() {
+    }
+
+    /** Registers a new user; throws DuplicateUserException if the email or username is taken. */
+    void create(User user);
+
+    /**
+     * Bulk registration for imports. Returns one entry per user, in order: null if the user was
+     * created, DuplicateUserException for a taken email/username, another exception if the write failed.
+     * The default registers users one by one.
+     */
+    default List<RuntimeException> createAll(List<User> users) {
+        List<RuntimeException> errors = new ArrayList<>(users.size());
+        for (User user : users) {
+            try {
+                create(user);
+                errors.add(null);
+            } catch (DuplicateUserException e) {
+                errors.add(e);
+            }
+        }
+        return errors;
+    }
+
+    /** Throws ConcurrentUpdateException if the user changed since credentials were read. */
+    void updatePasswordHash(UserCredentials credentials, String passwordHash);
+
+    /** Sets updatedAt and bumps the version without a version check. */
+    void touchUpdatedAt(User user);
+
+    Optional<User> findByEmail(String email);
+
+    /** Auth-path lookup: userId, email, passwordHash, role and version only. May be served from a cache. */
+    Optional<UserCredentials> findCredentialsByEmail(String email);
+
+    /**
+     * Same projection, read from the store by key and never from a cache: use it for the version
+     * a conditional update is checked against, and for anything that must see another node's writes.
+     */
+    Optional<UserCredentials> findCredentialsByUserId(String userId);
+
+    boolean existsByEmail(String email);
+
+    boolean existsByUsername(String username);
+
+    /**
+     * Lists one segment (0 <= segment < totalSegments) of all users, page by page; segments are
+     * disjoint, so they can be read in parallel (a segmented Scan on DynamoDB). fields names the
+     * attributes to load (empty = all); the others are left empty. Sentinel items are never returned.
+     */
+    void scanSegment(int segment, int totalSegments, Collection<String> fields, Consumer<List<User>> pageConsumer);
+}
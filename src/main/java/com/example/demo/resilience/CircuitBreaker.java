@@ -0,0 +1,156 @@
+package com.example.demo.resilience;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Count-based circuit breaker.
+ * - CLOSED: calls pass; outcomes of the last windowSize calls are recorded. Once at least
+ *   minimumCalls are recorded and the failure rate reaches failureRateThreshold %, it trips to OPEN.
+ * - OPEN: calls are rejected (tryAcquirePermission() == false) for openDurationMs.
+ * - HALF_OPEN: a single trial call is let through; success closes the breaker, failure re-opens it.
+ * State changes are logged, counted and pushed to registered listeners.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final long openDurationMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final boolean[] outcomes; // true = failure
+    private int recorded;
+    private int cursor;
+    private int failuresInWindow;
+    private volatile State state = State.CLOSED;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    private final AtomicLong successCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong tripCount = new AtomicLong();
+    private final List<Consumer<State>> listeners = new CopyOnWriteArrayList<>();
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls,
+                          int failureRateThreshold, long openDurationMs) {
+        this.name = name;
+        this.windowSize = Math.max(1, windowSize);
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.windowSize));
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationMs = openDurationMs;
+        this.outcomes = new boolean[this.windowSize];
+    }
+
+    /** @return false when the call must not be attempted (breaker open) */
+    public boolean tryAcquirePermission() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        lock.lock();
+        try {
+            if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openDurationMs) {
+                transitionTo(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN && !trialInFlight) {
+                trialInFlight = true;
+                return true;
+            }
+            if (state == State.CLOSED) {
+                return true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        rejectedCount.incrementAndGet();
+        return false;
+    }
+
+    public void onSuccess() {
+        successCount.incrementAndGet();
+        record(false);
+    }
+
+    public void onError() {
+        failureCount.incrementAndGet();
+        record(true);
+    }
+
+    private void record(boolean failure) {
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                trialInFlight = false;
+                if (failure) {
+                    trip();
+                } else {
+                    resetWindow();
+                    transitionTo(State.CLOSED);
+                }
+                return;
+            }
+            if (state == State.OPEN) {
+                return; // late result of a call started before the trip
+            }
+            if (recorded == windowSize && outcomes[cursor]) {
+                failuresInWindow--;
+            }
+            outcomes[cursor] = failure;
+            if (failure) {
+                failuresInWindow++;
+            }
+            cursor = (cursor + 1) % windowSize;
+            recorded = Math.min(recorded + 1, windowSize);
+
+            if (recorded >= minimumCalls && failuresInWindow * 100 >= failureRateThreshold * recorded) {
+                trip();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void trip() {
+        openedAt = System.currentTimeMillis();
+        tripCount.incrementAndGet();
+        resetWindow();
+        transitionTo(State.OPEN);
+    }
+
+    private void resetWindow() {
+        recorded = 0;
+        cursor = 0;
+        failuresInWindow = 0;
+        Arrays.fill(outcomes, false);
+    }
+
+    private void transitionTo(State next) {
+        if (state == next) {
+            return;
+        }
+        System.err.println("CircuitBreaker[" + name + "]: " + state + " -> " + next);
+        state = next;
+        for (Consumer<State> listener : listeners) {
+            listener.accept(next);
+        }
+    }
+
+    public void addListener(Consumer<State> listener) {
+        listeners.add(listener);
+    }
+
+    public String getName() { return name; }
+    public State getState() { return state; }
+    public long getSuccessCount() { return successCount.get(); }
+    public long getFailureCount() { return failureCount.get(); }
+    public long getRejectedCount() { return rejectedCount.get(); }
+    public long getTripCount() { return tripCount.get(); }
+}
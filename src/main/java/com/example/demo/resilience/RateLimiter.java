@@ -0,0 +1,176 @@
+package com.example.demo.resilience;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Keyed token-bucket rate limiter.
+ * - Each bucket is one AtomicLong packing the last refill time and the remaining milli-tokens,
+ *   updated with compare-and-set, so concurrent requests for the same key never take a lock.
+ * - Memory is bounded: sweep() drops buckets that have refilled completely (a full bucket is
+ *   indistinguishable from a new one). When maxBuckets keys are tracked, a new key first sweeps
+ *   and then evicts the least recently used tenth of the buckets, so a burst of unknown keys
+ *   costs old idle clients their (refilling) state instead of sharing one bucket with them.
+ */
+public class RateLimiter {
+
+    private static final int TOKEN_BITS = 24;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    private static final long MILLI = 1000;
+    public static final int MAX_CAPACITY = (int) (TOKEN_MASK / MILLI);
+    // Share of maxBuckets freed by one LRU eviction pass
+    private static final double EVICT_FRACTION = 0.1;
+
+    private final String name;
+    private final int maxBuckets;
+    private final LongSupplier clockMillis;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    // One evicting thread at a time; the others insert meanwhile (the bound is briefly soft)
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final AtomicLong allowedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong lruEvictedCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+
+    public RateLimiter(String name, int maxBuckets) {
+        this(name, maxBuckets, monotonicMillis());
+    }
+
+    // clockMillis must be monotonic; tests pass a manual clock
+    RateLimiter(String name, int maxBuckets, LongSupplier clockMillis) {
+        if (maxBuckets < 1) {
+            throw new IllegalArgumentException("maxBuckets must be >= 1");
+        }
+        this.name = name;
+        this.maxBuckets = maxBuckets;
+        this.clockMillis = clockMillis;
+    }
+
+    /**
+     * Takes one token from the bucket of key, which holds up to capacity tokens and
+     * refills at refillPerMinute. Returns 0 when allowed, otherwise the milliseconds
+     * until a token becomes available.
+     */
+    public long tryAcquire(String key, int capacity, int refillPerMinute) {
+        if (capacity < 1 || capacity > MAX_CAPACITY || refillPerMinute < 1) {
+            throw new IllegalArgumentException("Rate limit " + capacity + "/" + refillPerMinute
+                    + " out of range (capacity 1.." + MAX_CAPACITY + ", refill >= 1)");
+        }
+        long now = now();
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxBuckets) {
+                makeRoom(now);
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new Bucket(capacity, refillPerMinute, now));
+        }
+        long waitMs = bucket.tryAcquire(now);
+        if (waitMs == 0) {
+            allowedCount.incrementAndGet();
+        } else {
+            rejectedCount.incrementAndGet();
+        }
+        return waitMs;
+    }
+
+    /** Removes buckets that are full again; returns how many were dropped. */
+    public int sweep() {
+        long now = now();
+        int before = buckets.size();
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+        int removed = Math.max(0, before - buckets.size());
+        evictedCount.addAndGet(removed);
+        return removed;
+    }
+
+    // Sweep first; if every bucket is still in use, drop the least recently used EVICT_FRACTION
+    private void makeRoom(long now) {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            if (buckets.size() < maxBuckets || sweep() > 0 && buckets.size() < maxBuckets) {
+                return;
+            }
+            long[] lastUsed = buckets.values().stream().mapToLong(b -> b.lastUsed).toArray();
+            int toEvict = Math.max(1, Math.min(lastUsed.length, (int) (maxBuckets * EVICT_FRACTION)));
+            Arrays.sort(lastUsed);
+            long cutoff = lastUsed[toEvict - 1];
+            int before = buckets.size();
+            buckets.values().removeIf(bucket -> bucket.lastUsed <= cutoff);
+            lruEvictedCount.addAndGet(Math.max(0, before - buckets.size()));
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private long now() {
+        return clockMillis.getAsLong();
+    }
+
+    private static LongSupplier monotonicMillis() {
+        long originNanos = System.nanoTime();
+        return () -> (System.nanoTime() - originNanos) / 1_000_000;
+    }
+
+    public String getName() { return name; }
+    public int getBucketCount() { return buckets.size(); }
+    public long getAllowedCount() { return allowedCount.get(); }
+    public long getRejectedCount() { return rejectedCount.get(); }
+    /** Buckets dropped while still refilling because maxBuckets was reached. */
+    public long getLruEvictedCount() { return lruEvictedCount.get(); }
+    /** Buckets dropped by sweep() because they were full again. */
+    public long getEvictedCount() { return evictedCount.get(); }
+
+    private static long pack(long timeMs, long milliTokens) {
+        return (timeMs << TOKEN_BITS) | milliTokens;
+    }
+
+    private static final class Bucket {
+        private final long capacityMilli;
+        private final int refillPerMinute;
+        private final AtomicLong state;
+        // Last tryAcquire, for LRU eviction; a racy write is fine, it only orders evictions
+        private volatile long lastUsed;
+
+        Bucket(int capacity, int refillPerMinute, long now) {
+            this.capacityMilli = capacity * MILLI;
+            this.refillPerMinute = refillPerMinute;
+            this.state = new AtomicLong(pack(now, capacityMilli));
+            this.lastUsed = now;
+        }
+
+        long tryAcquire(long now) {
+            lastUsed = now;
+            while (true) {
+                long current = state.get();
+                long last = current >>> TOKEN_BITS;
+                long refill = refill(last, now);
+                long available = Math.min(capacityMilli, (current & TOKEN_MASK) + refill);
+                if (available < MILLI) {
+                    return Math.max(1, (MILLI - available) * 60 / refillPerMinute);
+                }
+                // Only move the timestamp when something was added so sub-token remainders accumulate
+                long stamp = refill > 0 ? now : last;
+                if (state.compareAndSet(current, pack(stamp, available - MILLI))) {
+                    return 0;
+                }
+            }
+        }
+
+        boolean isFull(long now) {
+            long current = state.get();
+            return (current & TOKEN_MASK) + refill(current >>> TOKEN_BITS, now) >= capacityMilli;
+        }
+
+        // refillPerMinute tokens per 60 000 ms == refillPerMinute milli-tokens per 60 ms
+        private long refill(long last, long now) {
+            return Math.max(0, now - last) * refillPerMinute / 60;
+        }
+    }
+}
@@ -1,26 +1,104 @@
 package com.example.demo.security;
 
+import com.example.demo.cache.BoundedCache;
+import com.example.demo.exception.ApiError;
+import com.example.demo.exception.BackendUnavailableException;
 import com.example.demo.service.CustomUserDetailsService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
-import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 public class AuthTokenFilter extends OncePerRequestFilter {
+    // Users whose last revalidation is remembered; beyond that the least recently seen is forgotten
+    private static final int MAX_TRACKED_USERS = 10_000;
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String JWT_COOKIE = "jwtToken";
+
     private final JwtUtils jwtUtils;
     private final CustomUserDetailsService userDetailsService;
+    private final TokenDenylist tokenDenylist;
+    private final ObjectMapper objectMapper;
+    private final boolean statelessAuth;
+    private final long revalidateMs;
+    // Present while a user's revalidation is still fresh: entries expire after revalidateMs
+    private final BoundedCache<String, Boolean> revalidated;
+    // permitAll paths from WebSecurityConfig, split into exact paths and "/prefix/**" prefixes
+    private final Set<String> publicExactPaths = new HashSet<>();
+    private final List<String> publicPathPrefixes;
+
+    public AuthTokenFilter(JwtUtils jwtUtils, CustomUserDetailsService userDetailsService,
+                           TokenDenylist tokenDenylist) {
+        this(jwtUtils, userDetailsService, tokenDenylist, false, 0);
+    }
+
+    public AuthTokenFilter(JwtUtils jwtUtils, CustomUserDetailsService userDetailsService,
+                           TokenDenylist tokenDenylist, boolean statelessAuth, long revalidateMs) {
+        this(jwtUtils, userDetailsService, tokenDenylist, statelessAuth, revalidateMs, List.of(), new ObjectMapper());
+    }
 
-    public AuthTokenFilter(JwtUtils jwtUtils, CustomUserDetailsService userDetailsService) {
+    /**
+     * @param statelessAuth trust the userId/role claims of a verified token instead of loading the user
+     * @param revalidateMs  when &gt; 0, re-check each user against the store at most once per window
+     * @param publicPaths   permitAll patterns (exact paths or "/prefix/**"); requests to them skip token work
+     * @param objectMapper  writes the ApiError body of a 503 when the user store is unavailable
+     */
+    public AuthTokenFilter(JwtUtils jwtUtils, CustomUserDetailsService userDetailsService,
+                           TokenDenylist tokenDenylist, boolean statelessAuth, long revalidateMs,
+                           List<String> publicPaths, ObjectMapper objectMapper) {
         this.jwtUtils = jwtUtils;
         this.userDetailsService = userDetailsService;
+        this.tokenDenylist = tokenDenylist;
+        this.objectMapper = objectMapper;
+        this.statelessAuth = statelessAuth;
+        this.revalidateMs = revalidateMs;
+        this.revalidated = new BoundedCache<>(revalidateMs > 0 ? MAX_TRACKED_USERS : 0, revalidateMs);
+        List<String> prefixes = new ArrayList<>();
+        for (String path : publicPaths) {
+            if (path.endsWith("/**")) {
+                String base = path.substring(0, path.length() - 3);
+                publicExactPaths.add(base);
+                prefixes.add(base + "/");
+            } else {
+                publicExactPaths.add(path);
+            }
+        }
+        this.publicPathPrefixes = List.copyOf(prefixes);
+    }
+
+    // A stale jwtToken cookie on /api/auth/login would otherwise cost a signature check and a user lookup
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (publicExactPaths.contains(path)) {
+            return true;
+        }
+        for (String prefix : publicPathPrefixes) {
+            if (path.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
@@ -30,31 +108,108 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails, null, userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+            Claims claims = jwt != null ? jwtUtils.verifyJwtToken(jwt) : null;
+            // Revoked tokens stay unauthenticated; the denylist is in memory, no store read here
+            if (claims != null && !tokenDenylist.isRevoked(claims)) {
+                UserDetails userDetails = resolveUser(claims);
+                if (userDetails != null) {
+                    UsernamePasswordAuthenticationToken authentication =
+                            new UsernamePasswordAuthenticationToken(
+                                    userDetails, null, userDetails.getAuthorities());
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                }
             }
+        } catch (BackendUnavailableException e) {
+            // The user store is down: answer 503 like GlobalExceptionHandler, not a misleading 401
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "5");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(),
+                    new ApiError(HttpStatus.SERVICE_UNAVAILABLE.value(), e.getMessage()));
+            return;
+        } catch (UsernameNotFoundException e) {
+            // User deleted since the token was issued: the request stays unauthenticated
         } catch (Exception e) {
-            // Log error if needed
+            System.err.println("❌ Token authentication failed: " + e.getMessage());
         }
         filterChain.doFilter(request, response);
     }
 
-    private String parseJwt(HttpServletRequest request) {
+    // Returns null when the token no longer matches the stored user (deleted or role changed)
+    private UserDetails resolveUser(Claims claims) {
+        String username = claims.getSubject();
+        String role = claims.get(JwtUtils.CLAIM_ROLE, String.class);
+
+        // Legacy tokens (no role claim) or stateless mode off: load from the store every time
+        if (!statelessAuth || role == null || role.isBlank()) {
+            return userDetailsService.loadUserByUsername(username);
+        }
+
+        UserDetails fromClaims = new User(
+                username,
+                "",
+                Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role))
+        );
+
+        if (revalidateMs > 0 && revalidated.get(username) == null) {
+            UserDetails stored = userDetailsService.loadUserByUsername(username);
+            if (!new HashSet<>(stored.getAuthorities()).equals(new HashSet<>(fromClaims.getAuthorities()))) {
+                revalidated.invalidate(username);
+                return null;
+            }
+            revalidated.put(username, Boolean.TRUE);
+        }
+        return fromClaims;
+    }
+
+    // Also used by AuthController.logout and ParseJwtBenchmark
+    public static String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
-        if (StringUtils.hasText(headerAuth) && headerAuth.startsWith("Bearer ")) {
-            return headerAuth.substring(7);
+        if (headerAuth != null && headerAuth.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            String token = headerAuth.substring(BEARER_PREFIX.length()).trim();
+            if (!token.isEmpty()) {
+                return token;
+            }
         }
         // Fallback to cookie
-        String cookieJwt = request.getHeader("Cookie");
-        if (cookieJwt != null && cookieJwt.contains("jwtToken=")) {
-            return cookieJwt.split("jwtToken=")[1].split(";")[0];
+        return cookieValue(request, JWT_COOKIE);
+    }
+
+    // Also used by AuthController for the refresh cookie, so both read cookies the same way
+    public static String cookieValue(HttpServletRequest request, String name) {
+        return cookieValue(request.getHeader("Cookie"), name);
+    }
+
+    /**
+     * Value of the named cookie in a raw Cookie header, or null when absent or empty.
+     * Single pass over the header with no regex or intermediate arrays; names must match exactly,
+     * so "oldjwtToken=" is not mistaken for "jwtToken=".
+     */
+    static String cookieValue(String cookieHeader, String name) {
+        if (cookieHeader == null) {
+            return null;
+        }
+        int length = cookieHeader.length();
+        int pos = 0;
+        while (pos < length) {
+            while (pos < length && (cookieHeader.charAt(pos) == ' ' || cookieHeader.charAt(pos) == '\t')) {
+                pos++;
+            }
+            int end = cookieHeader.indexOf(';', pos);
+            if (end < 0) {
+                end = length;
+            }
+            int valueStart = pos + name.length() + 1;
+            if (valueStart <= end && cookieHeader.startsWith(name, pos) && cookieHeader.charAt(pos + name.length()) == '=') {
+                int valueEnd = end;
+                while (valueEnd > valueStart && cookieHeader.charAt(valueEnd - 1) == ' ') {
+                    valueEnd--;
+                }
+                return valueEnd > valueStart ? cookieHeader.substring(valueStart, valueEnd) : null;
+            }
+            pos = end + 1;
         }
         return null;
     }
-}
\ No newline at end of file
+}
@@ -1,53 +1,195 @@
 package com.example.demo.security;
 
+import com.example.demo.cache.BoundedCache;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 
 import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Issues and verifies access tokens.
+ * - ES256 (default): signed with the active key of the SigningKeyRing, kid in the header, so other
+ *   services verify locally against /.well-known/jwks.json.
+ * - Tokens without a kid are HMAC tokens signed with jwt.secret: issued in HS256 mode or before the switch.
+ *   They are accepted while jwt.signing.accept-hmac is true (turn it off one token lifetime after migrating).
+ */
 @Component
 public class JwtUtils {
 
+    public static final String CLAIM_USER_ID = "uid";
+    public static final String CLAIM_ROLE = "role";
+    // iat in milliseconds: iat alone has second precision, too coarse to order a token against a revocation
+    public static final String CLAIM_ISSUED_AT_MS = "iat_ms";
+
     private final SecretKey key;
-    private final long jwtExpirationMs = 86400000L; // 24 hours
+    private final SigningKeyRing keyRing;
+    private final boolean acceptHmac;
+    // Access token lifetime; clients renew through /api/auth/refresh (RefreshTokenService)
+    private final long jwtExpirationMs;
+    // Parser is immutable and thread-safe, so it is built once
+    private final JwtParser parser;
+    // Recently verified tokens keyed by SHA-256 of the raw token; entries never outlive the token's exp
+    private final BoundedCache<String, Claims> verifiedTokens;
+    private final Timer signTimer;
+    // Signature checks only; cache hits show up in the verified-token cache metrics
+    private final Timer verifyTimer;
 
-    public JwtUtils(@Value("${jwt.secret}") String secret) {
+    public JwtUtils(@Value("${jwt.secret}") String secret,
+                    @Value("${jwt.expirationMs:900000}") long jwtExpirationMs,
+                    SigningKeyRing keyRing,
+                    @Value("${jwt.signing.accept-hmac:true}") boolean acceptHmac,
+                    @Value("${jwt.verified-cache.max-size:1024}") int verifiedCacheSize,
+                    @Value("${jwt.verified-cache.ttl-seconds:300}") long verifiedCacheTtlSeconds,
+                    MeterRegistry meterRegistry) {
         this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.jwtExpirationMs = jwtExpirationMs;
+        this.keyRing = keyRing;
+        // HS256 mode signs with the secret, so it has to accept it
+        this.acceptHmac = acceptHmac || !keyRing.isEnabled();
+        this.parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return verificationKey(header.getKeyId());
+                    }
+                })
+                .build();
+        this.verifiedTokens = new BoundedCache<>(verifiedCacheSize, verifiedCacheTtlSeconds * 1000);
+        this.signTimer = Timer.builder("jwt.operations").tag("operation", "sign").register(meterRegistry);
+        this.verifyTimer = Timer.builder("jwt.operations").tag("operation", "verify").register(meterRegistry);
     }
 
     public String generateJwtToken(String username) {
-        return Jwts.builder()
-                .setSubject(username)
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + jwtExpirationMs))
-                .signWith(key)
-                .compact();
+        return signTimer.record(() -> {
+            long now = System.currentTimeMillis();
+            return sign(Jwts.builder()
+                    .setId(UUID.randomUUID().toString())
+                    .setSubject(username)
+                    .claim(CLAIM_ISSUED_AT_MS, now)
+                    .setIssuedAt(new Date(now))
+                    .setExpiration(new Date(now + jwtExpirationMs)))
+                    .compact();
+        });
+    }
+
+    /**
+     * Token carrying userId and role claims so AuthTokenFilter can authenticate
+     * the request without loading the user from DynamoDB.
+     */
+    public String generateJwtToken(String username, String userId, String role) {
+        return signTimer.record(() -> {
+            long now = System.currentTimeMillis();
+            return sign(Jwts.builder()
+                    .setId(UUID.randomUUID().toString())
+                    .setSubject(username)
+                    .claim(CLAIM_USER_ID, userId)
+                    .claim(CLAIM_ROLE, role)
+                    .claim(CLAIM_ISSUED_AT_MS, now)
+                    .setIssuedAt(new Date(now))
+                    .setExpiration(new Date(now + jwtExpirationMs)))
+                    .compact();
+        });
+    }
+
+    /**
+     * Verifies signature and expiry in a single parse.
+     * Returns the claims, or null if the token is malformed, forged or expired.
+     */
+    public Claims verifyJwtToken(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        String cacheKey = verifiedTokens.isEnabled() ? digest(token) : null;
+        if (cacheKey != null) {
+            Claims cached = verifiedTokens.get(cacheKey);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        long start = System.nanoTime();
+        try {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            if (cacheKey != null && claims.getExpiration() != null) {
+                verifiedTokens.put(cacheKey, claims, claims.getExpiration().getTime());
+            }
+            return claims;
+        } catch (Exception e) {
+            return null;
+        } finally {
+            verifyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
     }
 
+    /** Subject of a valid token, or null; same cache, timer and error handling as verifyJwtToken. */
     public String getUserNameFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        Claims claims = verifyJwtToken(token);
+        return claims != null ? claims.getSubject() : null;
     }
 
     public boolean validateJwtToken(String token) {
+        return verifyJwtToken(token) != null;
+    }
+
+    private JwtBuilder sign(JwtBuilder builder) {
+        if (!keyRing.isEnabled()) {
+            return builder.signWith(key);
+        }
+        SigningKeyRing.Signer signer = keyRing.signer();
+        return builder.setHeaderParam(JwsHeader.KEY_ID, signer.kid())
+                .signWith(signer.privateKey(), SignatureAlgorithm.ES256);
+    }
+
+    // The parser then insists that the header alg matches the key type, so an HS256 header cannot
+    // be verified against a public key and an ES256 one cannot fall back to the secret
+    private Key verificationKey(String kid) {
+        if (kid == null) {
+            if (!acceptHmac) {
+                throw new JwtException("Token without kid rejected (jwt.signing.accept-hmac=false)");
+            }
+            return key;
+        }
+        Key publicKey = keyRing.verificationKey(kid);
+        if (publicKey == null) {
+            throw new JwtException("Unknown signing key " + kid);
+        }
+        return publicKey;
+    }
+
+    /** Lifetime of newly issued tokens, also the longest a revocation has to be remembered. */
+    public long getExpirationMs() {
+        return jwtExpirationMs;
+    }
+
+    public BoundedCache<String, Claims> getVerifiedTokenCache() {
+        return verifiedTokens;
+    }
+
+    private static String digest(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
-        } catch (Exception e) {
-            return false;
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,245 @@
+package com.example.demo.security;
+
+import com.example.demo.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Runs BCrypt encode/matches on a dedicated, core-count-sized pool (bulkhead).
+ * - Request threads only wait for the result, so a login burst cannot pin every Tomcat worker.
+ * - The queue is bounded by a Semaphore of pool size + queue capacity slots, released when a hash
+ *   finishes or is cancelled. Logins that find no free slot get TooManyRequestsException (HTTP 429)
+ *   immediately; imports (encodeAll) block on the Semaphore until one frees up.
+ * - Queue depth and hash latency are exposed through getters; hash time per operation
+ *   is also recorded in the "password.hash" timer.
+ * - Always platform threads, even with spring.threads.virtual.enabled: hashing is CPU-bound,
+ *   and this pool is what caps it at one hash per core.
+ */
+@Component
+public class PasswordHasher {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    // One slot per running or queued hash; the queue itself is unbounded, this is the bound
+    private final Semaphore slots;
+    private final long timeoutMs;
+    private final long retryAfterSeconds;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Timer rehashTimer;
+
+    private final AtomicLong hashCount = new AtomicLong();
+    private final AtomicLong hashNanos = new AtomicLong();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public PasswordHasher(PasswordEncoder passwordEncoder,
+                          @Value("${app.hashing.threads:0}") int threads,
+                          @Value("${app.hashing.queue-capacity:64}") int queueCapacity,
+                          @Value("${app.hashing.timeout-ms:5000}") long timeoutMs,
+                          @Value("${app.hashing.retry-after-seconds:1}") long retryAfterSeconds,
+                          MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeoutMs = timeoutMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.encodeTimer = hashTimer(meterRegistry, "encode");
+        this.matchesTimer = hashTimer(meterRegistry, "matches");
+        this.rehashTimer = hashTimer(meterRegistry, "rehash");
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "password-hasher-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        this.slots = new Semaphore(poolSize + Math.max(1, queueCapacity));
+        System.out.println("PasswordHasher: threads=" + poolSize + ", queue=" + queueCapacity);
+    }
+
+    public String encode(String rawPassword) {
+        return submit(encodeTimer, () -> passwordEncoder.encode(rawPassword));
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return submit(matchesTimer, () -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Bulk encode for imports, in parallel on the same pool. At most pool-size hashes of the batch
+     * are in flight, so logins still find room in the queue; no free slot makes this wait instead of failing.
+     */
+    public List<String> encodeAll(List<String> rawPasswords) {
+        Semaphore inFlight = new Semaphore(getPoolSize());
+        List<Future<String>> futures = new ArrayList<>(rawPasswords.size());
+        try {
+            for (String rawPassword : rawPasswords) {
+                inFlight.acquire();
+                Callable<String> work = () -> {
+                    long start = System.nanoTime();
+                    try {
+                        return passwordEncoder.encode(rawPassword);
+                    } finally {
+                        recordLatency(encodeTimer, System.nanoTime() - start);
+                        inFlight.release();
+                    }
+                };
+                slots.acquire();
+                futures.add(enqueue(work));
+            }
+            List<String> encoded = new ArrayList<>(futures.size());
+            for (Future<String> future : futures) {
+                encoded.add(future.get());
+            }
+            return encoded;
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing passwords", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    // True when the stored hash uses an older algorithm or a lower strength than the current encoder
+    public boolean upgradeEncoding(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Best-effort rehash for transparent upgrades: never blocks the caller and is silently
+     * skipped when the pool is saturated (it will be retried on the next login).
+     */
+    public void rehashInBackground(String rawPassword, Consumer<String> onEncoded) {
+        if (!slots.tryAcquire()) {
+            return; // pool busy with real logins; skip
+        }
+        try {
+            enqueue(() -> {
+                long start = System.nanoTime();
+                String encoded;
+                try {
+                    encoded = passwordEncoder.encode(rawPassword);
+                } finally {
+                    recordLatency(rehashTimer, System.nanoTime() - start);
+                }
+                try {
+                    onEncoded.accept(encoded);
+                } catch (Exception e) {
+                    System.err.println("PasswordHasher: rehash write failed: " + e.getMessage());
+                }
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            // shutting down; skip
+        }
+    }
+
+    private <T> T submit(Timer timer, Callable<T> work) {
+        if (!slots.tryAcquire()) {
+            rejectedCount.incrementAndGet();
+            throw new TooManyRequestsException("Server busy, please retry", retryAfterSeconds);
+        }
+        Future<T> future;
+        try {
+            future = enqueue(() -> {
+                long start = System.nanoTime();
+                try {
+                    return work.call();
+                } finally {
+                    recordLatency(timer, System.nanoTime() - start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            throw new TooManyRequestsException("Server busy, please retry", retryAfterSeconds);
+        }
+
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejectedCount.incrementAndGet();
+            throw new TooManyRequestsException("Server busy, please retry", retryAfterSeconds);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException("Password hashing failed", cause);
+        }
+    }
+
+    // Runs work on the pool; the caller holds a slot, which is released once the task is done or cancelled
+    private <T> Future<T> enqueue(Callable<T> work) {
+        FutureTask<T> task = new FutureTask<>(work) {
+            @Override
+            protected void done() {
+                slots.release();
+            }
+        };
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            slots.release();
+            throw e;
+        }
+        return task;
+    }
+
+    private void recordLatency(Timer timer, long nanos) {
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+        hashCount.incrementAndGet();
+        hashNanos.addAndGet(nanos);
+        maxHashNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private static Timer hashTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("password.hash")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    public int getQueueDepth() { return executor.getQueue().size(); }
+    public int getActiveCount() { return executor.getActiveCount(); }
+    public int getPoolSize() { return executor.getMaximumPoolSize(); }
+    public long getRejectedCount() { return rejectedCount.get(); }
+    public long getHashCount() { return hashCount.get(); }
+    public long getTotalHashNanos() { return hashNanos.get(); }
+    public long getMaxHashNanos() { return maxHashNanos.get(); }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
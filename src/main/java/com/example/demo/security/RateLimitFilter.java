@@ -0,0 +1,239 @@
+package com.example.demo.security;
+
+import com.example.demo.exception.ApiError;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.resilience.RateLimiter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token-bucket limits on the unauthenticated auth endpoints, applied before any DynamoDB,
+ * BCrypt or SMTP work.
+ * - Rules come from app.rate-limit.rules as "path=ipPerMinute:emailPerMinute,..."; each limit
+ *   is also the burst size. An email limit of 0 keys that endpoint by IP only.
+ * - The client IP is checked first, then the email from the JSON body ("email" or
+ *   "personalInfo.email"), so one client cannot flood the key space with made-up addresses.
+ * - Rejections are 429 with Retry-After and an ApiError body.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    // Auth payloads are tiny; anything larger is refused before it is parsed
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final boolean trustForwardedFor;
+    private final Map<String, Rule> rules;
+    private final RateLimiter limiter;
+    private final ScheduledExecutorService sweeper;
+
+    public RateLimitFilter(ObjectMapper objectMapper, boolean enabled, String rules,
+                           boolean trustForwardedFor, int maxBuckets, long sweepSeconds) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.trustForwardedFor = trustForwardedFor;
+        this.rules = parseRules(rules);
+        this.limiter = new RateLimiter("auth", maxBuckets);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "rate-limit-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleAtFixedRate(limiter::sweep, sweepSeconds, sweepSeconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !"POST".equals(request.getMethod()) || ruleFor(request) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        Rule rule = ruleFor(request);
+        String path = rule.path;
+
+        long waitMs = limiter.tryAcquire(path + "|ip|" + clientIp(request), rule.ipPerMinute, rule.ipPerMinute);
+        if (waitMs > 0) {
+            reject(response, waitMs);
+            return;
+        }
+        if (rule.emailPerMinute == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        byte[] body = request.getInputStream().readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) {
+            writeError(response, HttpStatus.PAYLOAD_TOO_LARGE, "Request body too large");
+            return;
+        }
+        String email = emailFrom(body);
+        if (email != null) {
+            waitMs = limiter.tryAcquire(path + "|email|" + email, rule.emailPerMinute, rule.emailPerMinute);
+            if (waitMs > 0) {
+                reject(response, waitMs);
+                return;
+            }
+        }
+        filterChain.doFilter(new CachedBodyRequest(request, body), response);
+    }
+
+    @Override
+    public void destroy() {
+        sweeper.shutdownNow();
+    }
+
+    public RateLimiter getLimiter() {
+        return limiter;
+    }
+
+    private Rule ruleFor(HttpServletRequest request) {
+        return rules.get(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    private String clientIp(HttpServletRequest request) {
+        if (trustForwardedFor) {
+            String forwarded = request.getHeader("X-Forwarded-For");
+            // The last entry is the one the proxy added; earlier ones come from the client
+            if (StringUtils.hasText(forwarded)) {
+                int comma = forwarded.lastIndexOf(',');
+                String last = forwarded.substring(comma + 1).trim();
+                if (!last.isEmpty()) {
+                    return last;
+                }
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    // Malformed JSON is left for the controller to reject
+    private String emailFrom(byte[] body) {
+        try {
+            JsonNode json = objectMapper.readTree(body);
+            if (json == null) {
+                return null;
+            }
+            String email = json.path("email").asText("");
+            if (email.isBlank()) {
+                email = json.path("personalInfo").path("email").asText("");
+            }
+            return email.isBlank() ? null : UserRepository.normalizeEmail(email);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void reject(HttpServletResponse response, long waitMs) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf((waitMs + 999) / 1000));
+        writeError(response, HttpStatus.TOO_MANY_REQUESTS, "Too many requests, please retry later");
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new ApiError(status.value(), message));
+    }
+
+    private static Map<String, Rule> parseRules(String spec) {
+        Map<String, Rule> parsed = new HashMap<>();
+        for (String entry : spec.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] pathAndLimits = entry.trim().split("=");
+            String[] limits = pathAndLimits.length == 2 ? pathAndLimits[1].split(":") : new String[0];
+            if (limits.length != 2) {
+                throw new IllegalArgumentException("Invalid rate limit rule '" + entry
+                        + "', expected path=ipPerMinute:emailPerMinute");
+            }
+            String path = pathAndLimits[0].trim();
+            parsed.put(path, new Rule(path, Integer.parseInt(limits[0].trim()), Integer.parseInt(limits[1].trim())));
+        }
+        return parsed;
+    }
+
+    private static final class Rule {
+        final String path;
+        final int ipPerMinute;
+        final int emailPerMinute;
+
+        Rule(String path, int ipPerMinute, int emailPerMinute) {
+            this.path = path;
+            this.ipPerMinute = ipPerMinute;
+            this.emailPerMinute = emailPerMinute;
+        }
+    }
+
+    // Replays the body consumed for the email lookup to the controller
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() { return in.available() == 0; }
+
+                @Override
+                public boolean isReady() { return true; }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException("Async reads are not supported");
+                }
+
+                @Override
+                public int read() { return in.read(); }
+
+                @Override
+                public int read(byte[] b, int off, int len) { return in.read(b, off, len); }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int getContentLength() { return body.length; }
+
+        @Override
+        public long getContentLengthLong() { return body.length; }
+    }
+}
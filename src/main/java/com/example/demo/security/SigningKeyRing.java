@@ -0,0 +1,409 @@
+package com.example.demo.security;
+
+import com.example.demo.exception.BackendUnavailableException;
+import com.example.demo.repository.SigningKeyStore;
+import com.example.demo.repository.SigningKeyStore.StoredKey;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * ES256 signing keys identified by kid, shared through the SigningKeyStore and published as JWKS.
+ * - Time is cut into rotation-hours periods; the key of a period has kid "es256-<period start, epoch
+ *   seconds>", so all nodes agree on it and the conditional create lets one of them generate it.
+ * - The next period's key is created pre-publish-minutes early: it is in the JWKS before any token is
+ *   signed with it, so downstream JWKS caches (max-age below pre-publish) already know it.
+ * - A key stays in the JWKS for one token lifetime (plus a margin) after its period ends. The ring
+ *   itself drops it at expiresAt, even if the store still returns it (DynamoDB TTL can lag by up to
+ *   48 h) or reloads are failing.
+ * - Private keys are stored AES-GCM encrypted with a key derived from jwt.secret.
+ * - Everything is reloaded every refresh-seconds off the request path; an unknown kid triggers at
+ *   most one extra reload per MIN_RELOAD_INTERVAL_MS.
+ * - jwt.signing.algorithm=HS256 turns the ring off: JwtUtils signs with jwt.secret as before.
+ */
+@Component
+public class SigningKeyRing {
+
+    public static final String ES256 = "ES256";
+    public static final String HS256 = "HS256";
+
+    private static final long MIN_RELOAD_INTERVAL_MS = 10_000;
+    private static final long EXPIRY_MARGIN_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final int GCM_IV_BYTES = 12;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /** A key this node can sign with. */
+    public record Signer(String kid, PrivateKey privateKey, long activatesAtMillis) {}
+
+    /** Serialized JWKS document and its ETag. */
+    public record Jwks(byte[] json, String etag) {}
+
+    // Immutable view swapped on every reload; signers newest first. Rebuilt from keys at nextExpiryMillis
+    private record Snapshot(List<StoredKey> keys, Map<String, PublicKey> verificationKeys, List<Signer> signers,
+                            Jwks jwks, long nextExpiryMillis) {}
+
+    private final SigningKeyStore store;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final SecretKey keyEncryptionKey;
+    private final long rotationMs;
+    private final long prePublishMs;
+    private final long tokenLifetimeMs;
+    private final ScheduledExecutorService rotator;
+    private final LongSupplier clockMillis;
+    // Not synchronized: avoids pinning carriers during the store call if virtual threads are enabled
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile Snapshot snapshot;
+    private volatile long lastLoadAttemptMillis;
+    private volatile boolean refreshFailing;
+
+    @Autowired
+    public SigningKeyRing(SigningKeyStore store, ObjectMapper objectMapper,
+                          @Value("${jwt.secret}") String secret,
+                          @Value("${jwt.signing.algorithm:ES256}") String algorithm,
+                          @Value("${jwt.expirationMs:900000}") long tokenLifetimeMs,
+                          @Value("${jwt.signing.rotation-hours:168}") long rotationHours,
+                          @Value("${jwt.signing.pre-publish-minutes:60}") long prePublishMinutes,
+                          @Value("${jwt.signing.refresh-seconds:60}") long refreshSeconds) {
+        this(store, objectMapper, secret, algorithm, tokenLifetimeMs, rotationHours, prePublishMinutes,
+                Math.max(1, refreshSeconds), System::currentTimeMillis);
+    }
+
+    /**
+     * Package-private for tests: clockMillis replaces the wall clock for rotation periods, expiry and
+     * reloads, and refreshSeconds &lt;= 0 leaves every reload to the caller (no background refresh).
+     */
+    SigningKeyRing(SigningKeyStore store, ObjectMapper objectMapper, String secret, String algorithm,
+                   long tokenLifetimeMs, long rotationHours, long prePublishMinutes, long refreshSeconds,
+                   LongSupplier clockMillis) {
+        if (!ES256.equalsIgnoreCase(algorithm) && !HS256.equalsIgnoreCase(algorithm)) {
+            throw new IllegalArgumentException("Unsupported jwt.signing.algorithm: " + algorithm + " (ES256 or HS256)");
+        }
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.clockMillis = clockMillis;
+        this.enabled = ES256.equalsIgnoreCase(algorithm);
+        this.keyEncryptionKey = new SecretKeySpec(sha256("jwt-signing-key:" + secret), "AES");
+        this.rotationMs = TimeUnit.HOURS.toMillis(Math.max(1, rotationHours));
+        this.prePublishMs = Math.min(TimeUnit.MINUTES.toMillis(prePublishMinutes), rotationMs / 2);
+        this.tokenLifetimeMs = tokenLifetimeMs;
+        this.snapshot = new Snapshot(List.of(), Map.of(), List.of(), jwks(List.of(), List.of()), Long.MAX_VALUE);
+        this.rotator = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "jwt-key-rotation");
+            t.setDaemon(true);
+            return t;
+        });
+        if (enabled && refreshSeconds > 0) {
+            // Off the startup path: the first signer() call loads synchronously if this has not run yet
+            rotator.scheduleWithFixedDelay(this::refresh, 0, refreshSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** The newest active key; throws BackendUnavailableException when none can be loaded. */
+    public Signer signer() {
+        Signer signer = activeSigner(current(), clockMillis.getAsLong());
+        if (signer == null && reloadAllowed()) {
+            refresh();
+            signer = activeSigner(current(), clockMillis.getAsLong());
+        }
+        if (signer == null) {
+            throw new BackendUnavailableException("No JWT signing key available", null);
+        }
+        return signer;
+    }
+
+    /** Public key for kid, or null if the ring does not know it (unknown, expired or forged). */
+    public PublicKey verificationKey(String kid) {
+        PublicKey key = current().verificationKeys().get(kid);
+        if (key == null && reloadAllowed()) {
+            // A key another node created moments ago, or the ring has not loaded yet
+            refresh();
+            key = current().verificationKeys().get(kid);
+        }
+        return key;
+    }
+
+    public Jwks getJwks() {
+        if (current().verificationKeys().isEmpty() && reloadAllowed()) {
+            refresh();
+        }
+        return current().jwks();
+    }
+
+    public int getKeyCount() {
+        return current().verificationKeys().size();
+    }
+
+    // The snapshot without keys that expired since it was built; no store call
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (clockMillis.getAsLong() < current.nextExpiryMillis()) {
+            return current;
+        }
+        if (!refreshLock.tryLock()) {
+            // A reload is talking to the store; do not wait for it
+            return build(current.keys());
+        }
+        try {
+            if (snapshot == current) {
+                snapshot = build(current.keys());
+            }
+            return snapshot;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    void refresh() {
+        refreshLock.lock();
+        try {
+            load();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private void load() {
+        long now = clockMillis.getAsLong();
+        lastLoadAttemptMillis = now;
+        try {
+            List<StoredKey> keys = store.findAll();
+            Snapshot loaded = build(keys);
+            if (ensureKeys(keys, loaded, now)) {
+                loaded = build(store.findAll());
+            }
+            snapshot = loaded;
+            if (refreshFailing) {
+                refreshFailing = false;
+                System.out.println("✅ JWT signing key refresh recovered");
+            }
+        } catch (RuntimeException e) {
+            if (rotator.isShutdown()) {
+                return; // interrupted by shutdown()
+            }
+            if (!refreshFailing) {
+                refreshFailing = true;
+                System.err.println("❌ JWT signing key refresh failed (retrying every interval): " + e.getMessage());
+            }
+        }
+    }
+
+    private boolean reloadAllowed() {
+        return enabled && clockMillis.getAsLong() - lastLoadAttemptMillis >= MIN_RELOAD_INTERVAL_MS;
+    }
+
+    // Creates the current period's key, the next one once it is due for pre-publishing, and a fresh key
+    // when none of the active ones can be decrypted (jwt.secret changed). True if anything was attempted.
+    private boolean ensureKeys(List<StoredKey> keys, Snapshot loaded, long now) {
+        Set<String> kids = new HashSet<>();
+        for (StoredKey key : keys) {
+            kids.add(key.kid());
+        }
+        long currentPeriod = Math.floorDiv(now, rotationMs) * rotationMs;
+        long nextPeriod = currentPeriod + rotationMs;
+        boolean attempted = false;
+        if (!kids.contains(kid(currentPeriod))) {
+            create(currentPeriod);
+            attempted = true;
+        }
+        if (now >= nextPeriod - prePublishMs && !kids.contains(kid(nextPeriod))) {
+            create(nextPeriod);
+            attempted = true;
+        }
+        if (!attempted && activeSigner(loaded, now) == null) {
+            System.err.println("⚠️ No decryptable JWT signing key (was jwt.secret changed?), creating one");
+            create(now);
+            attempted = true;
+        }
+        return attempted;
+    }
+
+    private void create(long activatesAtMillis) {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            KeyPair pair = generator.generateKeyPair();
+            String kid = kid(activatesAtMillis);
+            StoredKey key = new StoredKey(kid, ES256,
+                    Base64.getEncoder().encodeToString(pair.getPublic().getEncoded()),
+                    encrypt(kid, pair.getPrivate().getEncoded()),
+                    activatesAtMillis,
+                    (activatesAtMillis + rotationMs + tokenLifetimeMs + EXPIRY_MARGIN_MS) / 1000);
+            if (store.createIfAbsent(key)) {
+                System.out.println("🔑 Created JWT signing key " + kid + " (signs from "
+                        + Instant.ofEpochMilli(activatesAtMillis) + ")");
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot generate an ES256 key", e);
+        }
+    }
+
+    private Snapshot build(List<StoredKey> keys) {
+        long now = clockMillis.getAsLong();
+        long nextExpiryMillis = Long.MAX_VALUE;
+        List<StoredKey> live = new ArrayList<>();
+        Map<String, PublicKey> verificationKeys = new HashMap<>();
+        List<Signer> signers = new ArrayList<>();
+        List<StoredKey> published = new ArrayList<>();
+        for (StoredKey key : keys) {
+            long expiresAtMillis = TimeUnit.SECONDS.toMillis(key.expiresAtEpochSeconds());
+            if (!ES256.equals(key.algorithm()) || expiresAtMillis <= now) {
+                continue;
+            }
+            live.add(key);
+            nextExpiryMillis = Math.min(nextExpiryMillis, expiresAtMillis);
+            try {
+                KeyFactory factory = KeyFactory.getInstance("EC");
+                verificationKeys.put(key.kid(), factory.generatePublic(
+                        new X509EncodedKeySpec(Base64.getDecoder().decode(key.publicKey()))));
+                published.add(key);
+            } catch (GeneralSecurityException | IllegalArgumentException e) {
+                System.err.println("❌ Unreadable JWT public key " + key.kid() + ": " + e.getMessage());
+                continue;
+            }
+            try {
+                PrivateKey privateKey = KeyFactory.getInstance("EC").generatePrivate(
+                        new PKCS8EncodedKeySpec(decrypt(key.kid(), key.encryptedPrivateKey())));
+                signers.add(new Signer(key.kid(), privateKey, key.activatesAtMillis()));
+            } catch (GeneralSecurityException | IllegalArgumentException e) {
+                // Verification still works; ensureKeys replaces it as a signer if it was the only one
+            }
+        }
+        signers.sort(Comparator.comparingLong(Signer::activatesAtMillis).reversed());
+        published.sort(Comparator.comparingLong(StoredKey::activatesAtMillis));
+        List<PublicKey> publicKeys = new ArrayList<>();
+        List<String> kids = new ArrayList<>();
+        for (StoredKey key : published) {
+            kids.add(key.kid());
+            publicKeys.add(verificationKeys.get(key.kid()));
+        }
+        return new Snapshot(List.copyOf(live), Map.copyOf(verificationKeys), List.copyOf(signers),
+                jwks(kids, publicKeys), nextExpiryMillis);
+    }
+
+    private static Signer activeSigner(Snapshot snapshot, long now) {
+        for (Signer signer : snapshot.signers()) {
+            if (signer.activatesAtMillis() <= now) {
+                return signer;
+            }
+        }
+        return null;
+    }
+
+    private Jwks jwks(List<String> kids, List<PublicKey> publicKeys) {
+        List<Map<String, String>> jwkList = new ArrayList<>();
+        for (int i = 0; i < publicKeys.size(); i++) {
+            ECPublicKey ec = (ECPublicKey) publicKeys.get(i);
+            Map<String, String> jwk = new LinkedHashMap<>();
+            jwk.put("kty", "EC");
+            jwk.put("crv", "P-256");
+            jwk.put("kid", kids.get(i));
+            jwk.put("use", "sig");
+            jwk.put("alg", ES256);
+            jwk.put("x", coordinate(ec.getW().getAffineX()));
+            jwk.put("y", coordinate(ec.getW().getAffineY()));
+            jwkList.add(jwk);
+        }
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(Map.of("keys", jwkList));
+            String etag = "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(sha256(json)).substring(0, 22) + "\"";
+            return new Jwks(json, etag);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize JWKS", e);
+        }
+    }
+
+    // Unsigned big-endian, left-padded to the 32 bytes of a P-256 coordinate (RFC 7518 6.2.1.2)
+    private static String coordinate(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        byte[] fixed = new byte[32];
+        int length = Math.min(bytes.length, 32);
+        System.arraycopy(bytes, bytes.length - length, fixed, 32 - length, length);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(fixed);
+    }
+
+    private static String kid(long activatesAtMillis) {
+        return "es256-" + activatesAtMillis / 1000;
+    }
+
+    private String encrypt(String kid, byte[] plaintext) throws GeneralSecurityException {
+        byte[] iv = new byte[GCM_IV_BYTES];
+        RANDOM.nextBytes(iv);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, keyEncryptionKey, new GCMParameterSpec(128, iv));
+        cipher.updateAAD(kid.getBytes(StandardCharsets.UTF_8));
+        byte[] ciphertext = cipher.doFinal(plaintext);
+        byte[] out = new byte[iv.length + ciphertext.length];
+        System.arraycopy(iv, 0, out, 0, iv.length);
+        System.arraycopy(ciphertext, 0, out, iv.length, ciphertext.length);
+        return Base64.getEncoder().encodeToString(out);
+    }
+
+    private byte[] decrypt(String kid, String encrypted) throws GeneralSecurityException {
+        byte[] in = Base64.getDecoder().decode(encrypted);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, keyEncryptionKey, new GCMParameterSpec(128, in, 0, GCM_IV_BYTES));
+        cipher.updateAAD(kid.getBytes(StandardCharsets.UTF_8));
+        return cipher.doFinal(in, GCM_IV_BYTES, in.length - GCM_IV_BYTES);
+    }
+
+    private static byte[] sha256(String value) {
+        return sha256(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] sha256(byte[] value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rotator.shutdownNow();
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.demo.security;
+
+import com.example.demo.repository.RevocationStore;
+import com.example.demo.repository.RevocationStore.Revocation;
+import com.example.demo.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Revoked tokens (logout) and subjects (password reset, admin kill), checked per request in memory.
+ * - Revocations are written to the RevocationStore; every node polls it for new entries every
+ *   refresh-seconds, so a revocation reaches all nodes within about one interval.
+ * - On startup a node reads the log back one access-token lifetime only (older jti entries have
+ *   expired) plus the store's one-per-subject cutoff snapshot, since those last as long as refresh families.
+ * - isRevoked never does I/O: one map lookup on the jti and one on the subject.
+ * - Entries are dropped once the tokens they cover have expired.
+ * - A failed store write keeps the revocation local and is retried on the next refresh.
+ */
+@Component
+public class TokenDenylist {
+
+    private final RevocationStore store;
+    private final boolean enabled;
+    private final long accessTokenLifetimeMs;
+    private final long maxTokenLifetimeMs;
+    private final long clockSkewMs;
+
+    // jti -> token expiry (epoch millis)
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    // normalized subject -> revokedAt (epoch millis); tokens issued at or before it are revoked
+    private final Map<String, Long> subjectCutoffs = new ConcurrentHashMap<>();
+    private final Queue<Revocation> pendingWrites = new ConcurrentLinkedQueue<>();
+    // Start of the last successful refresh; the next one reads from here (minus clock skew)
+    private volatile long cursorMillis;
+    private volatile boolean subjectCutoffsLoaded;
+    private volatile boolean refreshFailing;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong refreshFailureCount = new AtomicLong();
+    private final ScheduledExecutorService refresher;
+
+    public TokenDenylist(RevocationStore store, JwtUtils jwtUtils,
+                         @Value("${jwt.refresh.ttl-seconds:1209600}") long refreshTtlSeconds,
+                         @Value("${app.revocation.enabled:true}") boolean enabled,
+                         @Value("${app.revocation.refresh-seconds:5}") long refreshSeconds,
+                         @Value("${app.revocation.clock-skew-seconds:30}") long clockSkewSeconds) {
+        this.store = store;
+        this.enabled = enabled;
+        this.accessTokenLifetimeMs = jwtUtils.getExpirationMs();
+        // Subject revocations must outlive every access token and refresh family issued before them
+        this.maxTokenLifetimeMs = Math.max(jwtUtils.getExpirationMs(), refreshTtlSeconds * 1000);
+        this.clockSkewMs = clockSkewSeconds * 1000;
+        // First refresh loads every token revocation that can still matter; subject cutoffs come from their snapshot
+        this.cursorMillis = System.currentTimeMillis() - accessTokenLifetimeMs;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "token-denylist-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        if (enabled) {
+            // Off the startup path: until the first load completes only local revocations are known
+            refresher.scheduleWithFixedDelay(this::refresh, 0, Math.max(1, refreshSeconds), TimeUnit.SECONDS);
+        }
+    }
+
+    /** True when the verified token has been revoked. In-memory only. */
+    public boolean isRevoked(Claims claims) {
+        if (!enabled) {
+            return false;
+        }
+        String jti = claims.getId();
+        if (jti != null && revokedTokens.containsKey(jti)) {
+            rejectedCount.incrementAndGet();
+            return true;
+        }
+        if (isSubjectRevoked(claims.getSubject(), issuedAtMillis(claims))) {
+            rejectedCount.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Issue time in milliseconds from the iat_ms claim. Tokens issued before it existed only have iat
+     * (seconds) and count as issued at the start of that second: one from the same second as a
+     * revocation is revoked rather than risk keeping a token that predates it.
+     */
+    static long issuedAtMillis(Claims claims) {
+        Number issuedAtMs = claims.get(JwtUtils.CLAIM_ISSUED_AT_MS, Number.class);
+        if (issuedAtMs != null) {
+            return issuedAtMs.longValue();
+        }
+        Date issuedAt = claims.getIssuedAt();
+        return issuedAt != null ? issuedAt.getTime() : 0;
+    }
+
+    /** True when everything subject was issued at issuedAtMillis has been revoked (also refresh families). */
+    public boolean isSubjectRevoked(String subject, long issuedAtMillis) {
+        if (!enabled || subjectCutoffs.isEmpty() || subject == null) {
+            return false;
+        }
+        Long cutoff = subjectCutoffs.get(UserRepository.normalizeEmail(subject));
+        return cutoff != null && issuedAtMillis <= cutoff;
+    }
+
+    /**
+     * Revokes one token (logout). Returns false for tokens without a jti (issued before revocation
+     * existed), which can only be revoked through their subject.
+     */
+    public boolean revokeToken(Claims claims) {
+        if (!enabled || claims.getId() == null || claims.getExpiration() == null) {
+            return false;
+        }
+        record(new Revocation(RevocationStore.KIND_TOKEN, claims.getId(), System.currentTimeMillis(),
+                claims.getExpiration().getTime() / 1000));
+        return true;
+    }
+
+    /** Revokes every token and refresh family issued to subject so far (password reset, admin kill). */
+    public void revokeSubject(String subject) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        record(new Revocation(RevocationStore.KIND_SUBJECT, UserRepository.normalizeEmail(subject), now,
+                (now + maxTokenLifetimeMs) / 1000 + 1));
+    }
+
+    private void record(Revocation revocation) {
+        apply(revocation);
+        try {
+            store.add(revocation);
+        } catch (RuntimeException e) {
+            System.err.println("⚠️ Revocation write failed, retrying on next refresh: " + e.getMessage());
+            pendingWrites.add(revocation);
+        }
+    }
+
+    private void apply(Revocation revocation) {
+        if (RevocationStore.KIND_TOKEN.equals(revocation.kind())) {
+            revokedTokens.put(revocation.value(), revocation.expiresAtEpochSeconds() * 1000);
+        } else if (RevocationStore.KIND_SUBJECT.equals(revocation.kind())) {
+            subjectCutoffs.merge(revocation.value(), revocation.revokedAtMillis(), Math::max);
+        }
+    }
+
+    // Package-private so it can be driven without waiting for the scheduler
+    void refresh() {
+        long started = System.currentTimeMillis();
+        try {
+            Revocation pending;
+            while ((pending = pendingWrites.peek()) != null) {
+                store.add(pending);
+                pendingWrites.poll();
+            }
+            if (!subjectCutoffsLoaded) {
+                for (Revocation revocation : store.subjectCutoffs()) {
+                    apply(revocation);
+                }
+                subjectCutoffsLoaded = true;
+            }
+            List<Revocation> revocations = store.since(cursorMillis - clockSkewMs);
+            for (Revocation revocation : revocations) {
+                apply(revocation);
+            }
+            cursorMillis = started;
+            if (refreshFailing) {
+                refreshFailing = false;
+                System.out.println("✅ Revocation refresh recovered");
+            }
+        } catch (RuntimeException e) {
+            if (refresher.isShutdown()) {
+                return; // interrupted by shutdown()
+            }
+            refreshFailureCount.incrementAndGet();
+            if (!refreshFailing) {
+                refreshFailing = true;
+                System.err.println("❌ Revocation refresh failed (retrying every interval): " + e.getMessage());
+            }
+        }
+        prune(started);
+    }
+
+    private void prune(long now) {
+        revokedTokens.values().removeIf(expiresAt -> expiresAt <= now);
+        subjectCutoffs.values().removeIf(revokedAt -> revokedAt + maxTokenLifetimeMs <= now);
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public int getRevokedTokenCount() { return revokedTokens.size(); }
+    public int getRevokedSubjectCount() { return subjectCutoffs.size(); }
+    public int getPendingWriteCount() { return pendingWrites.size(); }
+    public long getRejectedCount() { return rejectedCount.get(); }
+    public long getRefreshFailureCount() { return refreshFailureCount.get(); }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+}
@@ -1,43 +1,98 @@
 package com.example.demo.security;
 
 import com.example.demo.service.CustomUserDetailsService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity
 public class WebSecurityConfig {
 
+    // permitAll routes; AuthTokenFilter skips token parsing and verification on these too
+    static final List<String> PUBLIC_PATHS = List.of("/api/auth/**", "/actuator/health", "/.well-known/jwks.json");
+
     private final CustomUserDetailsService userDetailsService;
     private final JwtUtils jwtUtils;
+    private final TokenDenylist tokenDenylist;
+    private final PasswordEncoder passwordEncoder;
+    private final ObjectMapper objectMapper;
+
+    // Build the Authentication from verified token claims instead of a DynamoDB lookup per request
+    @Value("${jwt.stateless.enabled:true}")
+    private boolean statelessAuth;
+
+    // 0 disables periodic "still exists / role unchanged" checks in stateless mode
+    @Value("${jwt.stateless.revalidate-seconds:300}")
+    private long revalidateSeconds;
+
+    // Bearer token Prometheus sends to /actuator/prometheus; blank leaves the endpoint to ADMIN tokens only
+    @Value("${app.metrics.scrape-token:}")
+    private String metricsScrapeToken;
+
+    @Value("${app.rate-limit.enabled:true}")
+    private boolean rateLimitEnabled;
+
+    @Value("${app.rate-limit.rules:/api/auth/login=20:5,/api/auth/register=10:3,/api/auth/forgot-password=10:3,/api/auth/reset-password=20:5,/api/auth/refresh=60:0}")
+    private String rateLimitRules;
 
-    public WebSecurityConfig(CustomUserDetailsService userDetailsService, JwtUtils jwtUtils) {
+    // Only safe behind a single proxy that appends X-Forwarded-For; otherwise clients can pick their own key
+    @Value("${app.rate-limit.trust-forwarded-for:false}")
+    private boolean trustForwardedFor;
+
+    @Value("${app.rate-limit.max-buckets:100000}")
+    private int rateLimitMaxBuckets;
+
+    @Value("${app.rate-limit.sweep-seconds:60}")
+    private long rateLimitSweepSeconds;
+
+    public WebSecurityConfig(CustomUserDetailsService userDetailsService, JwtUtils jwtUtils,
+                             TokenDenylist tokenDenylist, PasswordEncoder passwordEncoder,
+                             ObjectMapper objectMapper) {
         this.userDetailsService = userDetailsService;
         this.jwtUtils = jwtUtils;
+        this.tokenDenylist = tokenDenylist;
+        this.passwordEncoder = passwordEncoder;
+        this.objectMapper = objectMapper;
     }
 
     @Bean
     public AuthTokenFilter authenticationJwtTokenFilter() {
-        return new AuthTokenFilter(jwtUtils, userDetailsService);
+        return new AuthTokenFilter(jwtUtils, userDetailsService, tokenDenylist, statelessAuth, revalidateSeconds * 1000,
+                PUBLIC_PATHS, objectMapper);
+    }
+
+    @Bean
+    public RateLimitFilter rateLimitFilter() {
+        return new RateLimitFilter(objectMapper, rateLimitEnabled, rateLimitRules, trustForwardedFor,
+                rateLimitMaxBuckets, rateLimitSweepSeconds);
     }
 
     @Bean
     public DaoAuthenticationProvider authenticationProvider() {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
         return authProvider;
     }
 
@@ -46,9 +101,17 @@ public class WebSecurityConfig {
         return authConfig.getAuthenticationManager();
     }
 
-    @Bean
-    public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    // Scrape token (constant-time comparison) or an ADMIN access token
+    private AuthorizationManager<RequestAuthorizationContext> metricsScrapeAccess() {
+        byte[] expected = ("Bearer " + metricsScrapeToken).getBytes(StandardCharsets.UTF_8);
+        return (authentication, context) -> {
+            String header = context.getRequest().getHeader("Authorization");
+            boolean scraper = !metricsScrapeToken.isBlank() && header != null
+                    && MessageDigest.isEqual(expected, header.getBytes(StandardCharsets.UTF_8));
+            boolean admin = authentication.get() != null && authentication.get().getAuthorities().stream()
+                    .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+            return new AuthorizationDecision(scraper || admin);
+        };
     }
 
     @Bean
@@ -58,10 +121,14 @@ public class WebSecurityConfig {
             .csrf(csrf -> csrf.disable())
             .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
-                .requestMatchers("/api/auth/**").permitAll()
+                .requestMatchers(PUBLIC_PATHS.toArray(String[]::new)).permitAll()
+                .requestMatchers("/actuator/prometheus").access(metricsScrapeAccess())
+                .requestMatchers("/api/admin/**").hasRole("ADMIN")
                 .anyRequest().authenticated()
             );
 
+        // Rate limiting runs first so throttled requests never reach DynamoDB or BCrypt
+        http.addFilterBefore(rateLimitFilter(), UsernamePasswordAuthenticationFilter.class);
         http.addFilterBefore(authenticationJwtTokenFilter(), UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
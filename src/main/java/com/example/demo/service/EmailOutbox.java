@@ -0,0 +1,314 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMailMessage;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory outbox between request threads and the SMTP relay.
+ * - enqueue() returns immediately; a small worker pool drains the queue in batches of up to batchSize.
+ * - Each worker keeps its own connected SMTP Transport across batches, so a lone OTP does not pay
+ *   for a new SMTP session (TCP + TLS + AUTH). A connection idle for a few seconds is checked with
+ *   NOOP before use, a broken one is reopened, and one idle for idleTimeoutMs is closed.
+ * - Failures are per message: a rejected recipient does not fail the rest of the batch. Failed
+ *   messages are retried with exponential backoff + jitter up to maxAttempts.
+ * - A JavaMailSender that is not a JavaMailSenderImpl gets whole batches via send(messages[]).
+ * Messages still queued at shutdown get one last best-effort send.
+ */
+@Component
+public class EmailOutbox {
+
+    private final JavaMailSender mailSender;
+    private final BlockingQueue<OutboundMessage> queue;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService retryScheduler;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long initialBackoffMs;
+    private final long idleTimeoutMs;
+    private volatile boolean running = true;
+    private final Timer batchTimer;
+
+    private final AtomicLong enqueuedCount = new AtomicLong();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong retriedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicInteger pendingRetries = new AtomicInteger();
+    private final AtomicLong connectionCount = new AtomicLong();
+
+    public EmailOutbox(JavaMailSender mailSender,
+                       @Value("${app.mail.outbox.capacity:1000}") int capacity,
+                       @Value("${app.mail.outbox.workers:2}") int workerCount,
+                       @Value("${app.mail.outbox.batch-size:20}") int batchSize,
+                       @Value("${app.mail.outbox.max-attempts:5}") int maxAttempts,
+                       @Value("${app.mail.outbox.initial-backoff-ms:1000}") long initialBackoffMs,
+                       @Value("${app.mail.outbox.idle-timeout-ms:30000}") long idleTimeoutMs,
+                       @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                       MeterRegistry meterRegistry) {
+        this.mailSender = mailSender;
+        this.batchTimer = Timer.builder("mail.outbox.batch").register(meterRegistry);
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, capacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMs = initialBackoffMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+
+        // Workers spend nearly all their time blocked on SMTP I/O, so they follow the virtual-thread switch
+        AtomicInteger threadIndex = new AtomicInteger();
+        ThreadFactory workerFactory = virtualThreads
+                ? Thread.ofVirtual().name("email-outbox-", 1).factory()
+                : r -> {
+                    Thread t = new Thread(r, "email-outbox-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                };
+        this.workers = Executors.newFixedThreadPool(Math.max(1, workerCount), workerFactory);
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "email-outbox-retry");
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < Math.max(1, workerCount); i++) {
+            workers.submit(this::drainLoop);
+        }
+    }
+
+    /** @return false when the outbox is full (caller decides how to surface it) */
+    public boolean enqueue(SimpleMailMessage message) {
+        if (!running || !queue.offer(new OutboundMessage(message, 0))) {
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+        enqueuedCount.incrementAndGet();
+        return true;
+    }
+
+    private void drainLoop() {
+        List<OutboundMessage> batch = new ArrayList<>(batchSize);
+        SmtpConnection connection = mailSender instanceof JavaMailSenderImpl impl ? new SmtpConnection(impl) : null;
+        try {
+            while (running || !queue.isEmpty()) {
+                try {
+                    OutboundMessage first = queue.poll(1, TimeUnit.SECONDS);
+                    if (first == null) {
+                        if (connection != null) {
+                            connection.closeIfIdle();
+                        }
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    if (connection != null) {
+                        sendBatch(batch, connection);
+                    } else {
+                        sendBatch(batch);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    System.err.println("EmailOutbox: unexpected worker error: " + e.getMessage());
+                } finally {
+                    batch.clear();
+                }
+            }
+        } finally {
+            if (connection != null) {
+                connection.close();
+            }
+        }
+    }
+
+    // Over this worker's own transport, one message at a time so failures stay per message
+    private void sendBatch(List<OutboundMessage> batch, SmtpConnection connection) {
+        long start = System.nanoTime();
+        try {
+            for (OutboundMessage outbound : batch) {
+                try {
+                    connection.send(outbound.message());
+                    sentCount.incrementAndGet();
+                } catch (Exception e) {
+                    retryOrDrop(outbound, e);
+                    connection.closeIfBroken();
+                }
+            }
+        } finally {
+            batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void sendBatch(List<OutboundMessage> batch) {
+        SimpleMailMessage[] messages = new SimpleMailMessage[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            messages[i] = batch.get(i).message();
+        }
+        long start = System.nanoTime();
+        try {
+            mailSender.send(messages);
+            sentCount.addAndGet(batch.size());
+        } catch (MailSendException e) {
+            // Per-message failures are keyed by the original SimpleMailMessage
+            Map<Object, Exception> failed = e.getFailedMessages();
+            int failures = 0;
+            for (OutboundMessage outbound : batch) {
+                if (failed.isEmpty() || failed.containsKey(outbound.message())) {
+                    failures++;
+                    retryOrDrop(outbound, e);
+                }
+            }
+            sentCount.addAndGet(batch.size() - failures);
+        } catch (Exception e) {
+            // Connection/authentication problems: nothing in the batch was delivered
+            for (OutboundMessage outbound : batch) {
+                retryOrDrop(outbound, e);
+            }
+        } finally {
+            batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void retryOrDrop(OutboundMessage outbound, Exception cause) {
+        int attempt = outbound.attempts() + 1;
+        if (attempt >= maxAttempts || !running) {
+            failedCount.incrementAndGet();
+            System.err.println("EmailOutbox: giving up on message to "
+                    + String.join(",", outbound.message().getTo()) + " after " + attempt + " attempts: " + cause.getMessage());
+            return;
+        }
+        long backoff = initialBackoffMs * (1L << Math.min(attempt - 1, 16));
+        long delay = backoff + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        retriedCount.incrementAndGet();
+        pendingRetries.incrementAndGet();
+        retryScheduler.schedule(() -> {
+            pendingRetries.decrementAndGet();
+            if (!queue.offer(new OutboundMessage(outbound.message(), attempt))) {
+                failedCount.incrementAndGet();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    public int getQueueDepth() { return queue.size(); }
+    public int getPendingRetries() { return pendingRetries.get(); }
+    public long getEnqueuedCount() { return enqueuedCount.get(); }
+    public long getSentCount() { return sentCount.get(); }
+    public long getRetriedCount() { return retriedCount.get(); }
+    public long getFailedCount() { return failedCount.get(); }
+    public long getRejectedCount() { return rejectedCount.get(); }
+    /** SMTP connections opened by the workers so far. */
+    public long getConnectionCount() { return connectionCount.get(); }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        retryScheduler.shutdownNow();
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private record OutboundMessage(SimpleMailMessage message, int attempts) {}
+
+    /** One worker's SMTP session; only ever used by that worker's thread. */
+    private final class SmtpConnection {
+        // Reused without a NOOP check when the last command was this recent
+        private static final long TRUSTED_FOR_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+        private final JavaMailSenderImpl sender;
+        private Transport transport;
+        private long lastUsedNanos;
+
+        SmtpConnection(JavaMailSenderImpl sender) {
+            this.sender = sender;
+        }
+
+        void send(SimpleMailMessage message) throws MessagingException {
+            MimeMessage mime = sender.createMimeMessage();
+            message.copyTo(new MimeMailMessage(mime));
+            if (mime.getSentDate() == null) {
+                mime.setSentDate(new Date());
+            }
+            mime.saveChanges();
+            boolean reused = transport != null;
+            Transport current = open();
+            try {
+                current.sendMessage(mime, mime.getAllRecipients());
+            } catch (MessagingException e) {
+                // The server may have dropped a reused session (idle timeout): reconnect once, now
+                if (!reused || current.isConnected()) {
+                    throw e;
+                }
+                close();
+                open().sendMessage(mime, mime.getAllRecipients());
+            } finally {
+                lastUsedNanos = System.nanoTime();
+            }
+        }
+
+        private Transport open() throws MessagingException {
+            if (transport != null && (System.nanoTime() - lastUsedNanos < TRUSTED_FOR_NANOS || transport.isConnected())) {
+                return transport;
+            }
+            close();
+            // Same protocol resolution as JavaMailSenderImpl.getTransport
+            String protocol = sender.getProtocol();
+            if (protocol == null) {
+                protocol = sender.getSession().getProperty("mail.transport.protocol");
+            }
+            Transport fresh = sender.getSession().getTransport(protocol != null ? protocol : JavaMailSenderImpl.DEFAULT_PROTOCOL);
+            fresh.connect(sender.getHost(), sender.getPort(), sender.getUsername(), sender.getPassword());
+            transport = fresh;
+            lastUsedNanos = System.nanoTime();
+            connectionCount.incrementAndGet();
+            return fresh;
+        }
+
+        // After a failure: a rejected recipient leaves the session usable, a dropped connection does not
+        void closeIfBroken() {
+            if (transport != null && !transport.isConnected()) {
+                close();
+            }
+        }
+
+        void closeIfIdle() {
+            if (transport != null && System.nanoTime() - lastUsedNanos >= TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs)) {
+                close();
+            }
+        }
+
+        void close() {
+            if (transport != null) {
+                try {
+                    transport.close();
+                } catch (MessagingException e) {
+                    // already gone
+                }
+                transport = null;
+            }
+        }
+    }
+}
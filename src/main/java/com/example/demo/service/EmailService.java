@@ -1,5 +1,8 @@
 package com.example.demo.service;
 
+import com.example.demo.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
@@ -8,20 +11,40 @@ import org.springframework.stereotype.Service;
 @Service
 public class EmailService {
     private final JavaMailSender mailSender;
+    private final EmailOutbox outbox;
+    // Time forgot-password spends on the email: an enqueue, or the SMTP round trip when the outbox is off
+    private final Timer sendOtpTimer;
 
     @Value("${smtp.from}")
     private String from;
 
-    public EmailService(JavaMailSender mailSender) {
+    // When false, sendOtp talks to SMTP on the calling thread (old behavior)
+    @Value("${app.mail.outbox.enabled:true}")
+    private boolean outboxEnabled;
+
+    public EmailService(JavaMailSender mailSender, EmailOutbox outbox, MeterRegistry meterRegistry) {
         this.mailSender = mailSender;
+        this.outbox = outbox;
+        this.sendOtpTimer = Timer.builder("mail.otp.send").register(meterRegistry);
     }
 
     public void sendOtp(String to, String otp) {
+        sendOtpTimer.record(() -> doSendOtp(to, otp));
+    }
+
+    private void doSendOtp(String to, String otp) {
         SimpleMailMessage message = new SimpleMailMessage();
         message.setFrom(from);
         message.setTo(to);
         message.setSubject("Your OTP Code");
         message.setText("Your OTP is: " + otp + "\nThis code expires in 10 minutes.");
-        mailSender.send(message);
+
+        if (!outboxEnabled) {
+            mailSender.send(message);
+            return;
+        }
+        if (!outbox.enqueue(message)) {
+            throw new TooManyRequestsException("Email queue is full, please retry", 5);
+        }
     }
 }
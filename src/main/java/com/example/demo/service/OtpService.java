@@ -0,0 +1,57 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.OtpStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.time.Instant;
+
+/**
+ * Issues and checks password-reset OTPs.
+ * - One shared SecureRandom (thread-safe) instead of seeding a new one per code.
+ * - Codes live in OtpStore, never on the user item.
+ */
+@Service
+public class OtpService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final OtpStore otpStore;
+    private final long ttlSeconds;
+    private final int maxAttempts;
+
+    public OtpService(OtpStore otpStore,
+                      @Value("${app.otp.ttl-seconds:600}") long ttlSeconds,
+                      @Value("${app.otp.max-attempts:5}") int maxAttempts) {
+        this.otpStore = otpStore;
+        this.ttlSeconds = ttlSeconds;
+        this.maxAttempts = maxAttempts;
+    }
+
+    public String issue(String email) {
+        String otp = String.valueOf(RANDOM.nextInt(900000) + 100000); // ensures 100000-999999
+        otpStore.put(email, otp, Instant.now().getEpochSecond() + ttlSeconds);
+        return otp;
+    }
+
+    /**
+     * Puts back a code that verify() consumed when the reset it authorized did not complete
+     * (hashing pool full, backend error), so the user can retry without a new email.
+     * The code gets a fresh TTL and attempt counter.
+     */
+    public void restore(String email, String otp) {
+        otpStore.put(email, otp, Instant.now().getEpochSecond() + ttlSeconds);
+    }
+
+    /** Throws with the user-facing reason unless the code is valid; a valid code is consumed. */
+    public void verify(String email, String otp) {
+        switch (otpStore.verifyAndConsume(email, otp, maxAttempts)) {
+            case OK -> { }
+            case NOT_FOUND -> throw new RuntimeException("No OTP requested");
+            case INVALID -> throw new RuntimeException("Invalid OTP");
+            case EXPIRED -> throw new RuntimeException("OTP expired");
+            case TOO_MANY_ATTEMPTS -> throw new RuntimeException("Too many attempts, request a new OTP");
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.RefreshTokenStore;
+import com.example.demo.repository.RefreshTokenStore.Family;
+import com.example.demo.security.TokenDenylist;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque refresh tokens "familyId.secret", rotated on every use (POST /api/auth/refresh).
+ * - Login starts a family; each refresh swaps the secret, so a refresh token works exactly once.
+ * - Presenting a secret that was already rotated away means it was copied: the whole family is
+ *   revoked and the legitimate client has to log in again too. The secret replaced less than
+ *   reuse-grace-seconds ago is only refused, so a client retrying a lost response is not logged out.
+ * - A refresh costs one key lookup and one conditional write, no BCrypt and no email index query.
+ * - Families end ttl-seconds after login, on logout, or when TokenDenylist revokes the user.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Base64.Encoder TOKEN_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    /** The family after rotation and the refresh token to hand back to the client. */
+    public record Rotation(Family family, String refreshToken) {}
+
+    private final RefreshTokenStore store;
+    private final TokenDenylist tokenDenylist;
+    private final long ttlMs;
+    private final long reuseGraceMs;
+    private final Counter rotated;
+    private final Counter rejected;
+    private final Counter reuseDetected;
+
+    public RefreshTokenService(RefreshTokenStore store, TokenDenylist tokenDenylist,
+                               @Value("${jwt.refresh.ttl-seconds:1209600}") long ttlSeconds,
+                               @Value("${jwt.refresh.reuse-grace-seconds:10}") long reuseGraceSeconds,
+                               MeterRegistry meterRegistry) {
+        this.store = store;
+        this.tokenDenylist = tokenDenylist;
+        this.ttlMs = ttlSeconds * 1000;
+        this.reuseGraceMs = reuseGraceSeconds * 1000;
+        this.rotated = refreshCounter(meterRegistry, "rotated");
+        this.rejected = refreshCounter(meterRegistry, "rejected");
+        this.reuseDetected = refreshCounter(meterRegistry, "reuse_detected");
+    }
+
+    /** Starts a new family at login and returns its first refresh token. */
+    public String issue(String userId, String email, String role) {
+        String familyId = UUID.randomUUID().toString();
+        String secret = newSecret();
+        long now = System.currentTimeMillis();
+        store.create(new Family(familyId, userId, email, role, hash(secret), null, now, now,
+                (now + ttlMs) / 1000, false));
+        return familyId + "." + secret;
+    }
+
+    /** Rotates a valid refresh token; throws RuntimeException for anything that must log in again. */
+    public Rotation rotate(String refreshToken) {
+        String[] parts = split(refreshToken);
+        if (parts == null) {
+            rejected.increment();
+            throw new RuntimeException("Invalid refresh token");
+        }
+        Family family = store.find(parts[0]).orElse(null);
+        long now = System.currentTimeMillis();
+        if (family == null || family.revoked() || family.expiresAtEpochSeconds() * 1000 <= now
+                || tokenDenylist.isSubjectRevoked(family.email(), family.createdAtMillis())) {
+            rejected.increment();
+            throw new RuntimeException("Invalid refresh token");
+        }
+
+        String presented = hash(parts[1]);
+        if (presented.equals(family.tokenHash())) {
+            String secret = newSecret();
+            if (store.rotate(family.familyId(), presented, hash(secret), now)) {
+                rotated.increment();
+                return new Rotation(family, family.familyId() + "." + secret);
+            }
+            // A concurrent refresh with the same token rotated it first
+            rejected.increment();
+            throw new RuntimeException("Refresh token already used");
+        }
+        if (presented.equals(family.previousHash()) && now - family.rotatedAtMillis() <= reuseGraceMs) {
+            rejected.increment();
+            throw new RuntimeException("Refresh token already used");
+        }
+
+        store.revoke(family.familyId());
+        reuseDetected.increment();
+        System.err.println("⚠️ Refresh token reuse detected, family revoked for user " + family.userId());
+        throw new RuntimeException("Invalid refresh token");
+    }
+
+    /** Ends the family of refreshToken (logout); unknown or malformed tokens are ignored. */
+    public void revoke(String refreshToken) {
+        String[] parts = split(refreshToken);
+        if (parts == null) {
+            return;
+        }
+        store.find(parts[0])
+                .filter(family -> hash(parts[1]).equals(family.tokenHash()))
+                .ifPresent(family -> store.revoke(family.familyId()));
+    }
+
+    public long getTtlSeconds() {
+        return ttlMs / 1000;
+    }
+
+    // [familyId, secret], or null when the token is not in "familyId.secret" form
+    private static String[] split(String refreshToken) {
+        if (refreshToken == null) {
+            return null;
+        }
+        int dot = refreshToken.indexOf('.');
+        if (dot <= 0 || dot == refreshToken.length() - 1) {
+            return null;
+        }
+        return new String[] { refreshToken.substring(0, dot), refreshToken.substring(dot + 1) };
+    }
+
+    private static String newSecret() {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        return TOKEN_ENCODER.encodeToString(bytes);
+    }
+
+    private static String hash(String secret) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(secret.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static Counter refreshCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("auth.refresh")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.demo.service;
+
+import com.example.demo.model.User;
+import com.example.demo.repository.UserStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Admin export of all users as NDJSON (GET /api/admin/users/export).
+ * - workers threads read the segments of a parallel Scan (UserStore.scanSegment), one segment
+ *   at a time, and hand each page to the request thread through a bounded queue.
+ * - The request thread writes pages to the response. A slow client blocks it, the queue fills up and
+ *   the workers block too (backpressure): at most queue-pages + workers pages are held in memory.
+ * - Only EXPORT_FIELDS can be exported (never passwordHash); the Scan projects just the requested ones.
+ * - The last line is {"summary": {...}}, or {"error": "..."} if a segment failed mid-stream.
+ */
+@Service
+public class UserExportService {
+
+    public static final List<String> EXPORT_FIELDS = List.of("userId", "email", "username", "role",
+            "firstName", "lastName", "phone", "dateOfBirth", "riskAppetite", "experience", "investmentGoal",
+            "createdAt", "updatedAt", "version");
+
+    // Marks that every worker is done
+    private static final List<User> END = List.of();
+
+    private final UserStore userStore;
+    private final ObjectMapper objectMapper;
+    private final int defaultSegments;
+    private final int defaultWorkers;
+    private final int maxWorkers;
+    private final int queuePages;
+
+    public UserExportService(UserStore userStore, ObjectMapper objectMapper,
+                             @Value("${app.export.segments:16}") int defaultSegments,
+                             @Value("${app.export.workers:4}") int defaultWorkers,
+                             @Value("${app.export.max-workers:32}") int maxWorkers,
+                             @Value("${app.export.queue-pages:8}") int queuePages) {
+        this.userStore = userStore;
+        this.objectMapper = objectMapper;
+        this.defaultSegments = defaultSegments;
+        this.defaultWorkers = defaultWorkers;
+        this.maxWorkers = maxWorkers;
+        this.queuePages = Math.max(1, queuePages);
+    }
+
+    /** Null or blank means all EXPORT_FIELDS; throws IllegalArgumentException for anything else. */
+    public List<String> parseFields(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return EXPORT_FIELDS;
+        }
+        List<String> parsed = new ArrayList<>();
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (!EXPORT_FIELDS.contains(name)) {
+                throw new IllegalArgumentException("Unknown export field: " + name + " (allowed: "
+                        + String.join(",", EXPORT_FIELDS) + ")");
+            }
+            if (!parsed.contains(name)) {
+                parsed.add(name);
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Streams every user to out. segments and workers fall back to app.export.* when null.
+     * Returns the number of users written.
+     */
+    public long export(List<String> fields, Integer segments, Integer workers, OutputStream out) throws IOException {
+        int totalSegments = Math.max(1, Math.min(segments != null ? segments : defaultSegments, 1_000_000));
+        int workerCount = Math.max(1, Math.min(Math.min(workers != null ? workers : defaultWorkers, maxWorkers), totalSegments));
+        long started = System.currentTimeMillis();
+
+        BlockingQueue<List<User>> pages = new ArrayBlockingQueue<>(queuePages);
+        AtomicInteger nextSegment = new AtomicInteger();
+        AtomicInteger running = new AtomicInteger(workerCount);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        // Scans wait on DynamoDB, so virtual threads; the pool size is capped by workerCount anyway
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        for (int w = 0; w < workerCount; w++) {
+            executor.execute(() -> {
+                try {
+                    int segment;
+                    while ((segment = nextSegment.getAndIncrement()) < totalSegments && failure.get() == null) {
+                        userStore.scanSegment(segment, totalSegments, fields, page -> put(pages, page));
+                    }
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    if (running.decrementAndGet() == 0) {
+                        put(pages, END);
+                    }
+                }
+            });
+        }
+
+        long count = 0;
+        try {
+            List<User> page;
+            while ((page = pages.take()) != END) {
+                for (User user : page) {
+                    writeLine(out, project(user, fields));
+                }
+                count += page.size();
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        } finally {
+            // Client gone or failure: interrupt workers blocked on the full queue
+            executor.shutdownNow();
+        }
+
+        Exception error = failure.get();
+        if (error != null) {
+            System.err.println("❌ User export failed after " + count + " users: " + error.getMessage());
+            writeLine(out, Map.of("error", "Export incomplete after " + count + " users, please retry"));
+        } else {
+            long durationMs = System.currentTimeMillis() - started;
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("users", count);
+            summary.put("segments", totalSegments);
+            summary.put("workers", workerCount);
+            summary.put("durationMs", durationMs);
+            writeLine(out, Map.of("summary", summary));
+            System.out.println("📤 User export: " + count + " users, " + totalSegments + " segments, "
+                    + workerCount + " workers in " + durationMs + " ms");
+        }
+        out.flush();
+        return count;
+    }
+
+    private static void put(BlockingQueue<List<User>> pages, List<User> page) {
+        try {
+            pages.put(page);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Export cancelled", e);
+        }
+    }
+
+    private static Map<String, Object> project(User user, List<String> fields) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String field : fields) {
+            row.put(field, switch (field) {
+                case "userId" -> user.getUserId();
+                case "email" -> user.getEmail();
+                case "username" -> user.getUsername();
+                case "role" -> user.getRole();
+                case "firstName" -> user.getFirstName();
+                case "lastName" -> user.getLastName();
+                case "phone" -> user.getPhone();
+                case "dateOfBirth" -> user.getDateOfBirth();
+                case "riskAppetite" -> user.getRiskAppetite();
+                case "experience" -> user.getExperience();
+                case "investmentGoal" -> user.getInvestmentGoal();
+                case "createdAt" -> user.getCreatedAt();
+                case "updatedAt" -> user.getUpdatedAt();
+                case "version" -> user.getVersion();
+                default -> throw new IllegalArgumentException("Unknown export field: " + field);
+            });
+        }
+        return row;
+    }
+
+    private void writeLine(OutputStream out, Object value) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(value));
+        out.write('\n');
+    }
+}
@@ -0,0 +1,293 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.ImportResult;
+import com.example.demo.dto.ImportSummary;
+import com.example.demo.dto.RegisterRequest;
+import com.example.demo.exception.DuplicateUserException;
+import com.example.demo.model.User;
+import com.example.demo.repository.UserStore;
+import com.example.demo.security.PasswordHasher;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bulk user import for partner onboarding (POST /api/admin/users/import).
+ * - Input is NDJSON (one RegisterRequest per line) or CSV (header row with CSV_COLUMNS),
+ *   read line by line: the upload is never buffered as a whole.
+ * - Each record is validated like /register; invalid records are reported right away.
+ * - Valid records are processed in chunks: passwords are hashed in parallel on the PasswordHasher
+ *   pool, then written with UserStore.createAll (BatchWriteItem on DynamoDB).
+ * - The response is NDJSON: one ImportResult per record, flushed after each chunk,
+ *   then {"summary": ImportSummary}.
+ */
+@Service
+public class UserImportService {
+
+    public static final List<String> CSV_COLUMNS = List.of("email", "firstName", "lastName", "phone",
+            "dateOfBirth", "username", "password", "riskAppetite", "experience", "investmentGoal");
+
+    private final UserService userService;
+    private final UserStore userStore;
+    private final PasswordHasher passwordHasher;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final long maxRecords;
+
+    public UserImportService(UserService userService, UserStore userStore, PasswordHasher passwordHasher,
+                             Validator validator, ObjectMapper objectMapper,
+                             @Value("${app.import.chunk-size:200}") int chunkSize,
+                             @Value("${app.import.max-records:100000}") long maxRecords) {
+        this.userService = userService;
+        this.userStore = userStore;
+        this.passwordHasher = passwordHasher;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxRecords = maxRecords;
+    }
+
+    /** Throws BackendUnavailableException (503) while the store cannot take new users; call before streaming. */
+    public void checkReady() {
+        userStore.checkAcceptingNewUsers();
+    }
+
+    public ImportSummary importUsers(InputStream in, boolean csv, OutputStream out) throws IOException {
+        long started = System.currentTimeMillis();
+        Run run = new Run(out);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        Map<String, Integer> columns = null;
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (csv && columns == null) {
+                columns = csvHeader(line);
+                if (columns == null) {
+                    writeLine(out, new ImportResult(lineNumber, ImportResult.REJECTED, null, null,
+                            "CSV header must contain " + String.join(",", CSV_COLUMNS)));
+                    break;
+                }
+                continue;
+            }
+            if (run.records >= maxRecords) {
+                writeLine(out, new ImportResult(lineNumber, ImportResult.REJECTED, null, null,
+                        "Import limit of " + maxRecords + " records reached; nothing after this line was read"));
+                break;
+            }
+            run.records++;
+
+            RegisterRequest request;
+            try {
+                request = csv ? fromCsv(parseCsvLine(line), columns) : objectMapper.readValue(line, RegisterRequest.class);
+                if (request == null) {
+                    throw new IllegalArgumentException("null record");
+                }
+            } catch (JsonProcessingException | IllegalArgumentException e) {
+                run.result(new ImportResult(lineNumber, ImportResult.REJECTED, null, null, "Malformed record"));
+                continue;
+            }
+            String violation = firstViolation(request);
+            if (violation != null) {
+                run.result(new ImportResult(lineNumber, ImportResult.REJECTED, emailOf(request), null, violation));
+                continue;
+            }
+            run.pending.add(new Pending(lineNumber, request));
+            if (run.pending.size() >= chunkSize) {
+                writeChunk(run);
+            }
+        }
+        writeChunk(run);
+
+        ImportSummary summary = new ImportSummary(run.records, run.created, run.rejected, run.failed,
+                System.currentTimeMillis() - started);
+        writeLine(out, Map.of("summary", summary));
+        out.flush();
+        System.out.println("📥 User import: " + run.records + " records, " + run.created + " created, "
+                + run.rejected + " rejected, " + run.failed + " failed in " + summary.getDurationMs() + " ms");
+        return summary;
+    }
+
+    private void writeChunk(Run run) throws IOException {
+        if (run.pending.isEmpty()) {
+            return;
+        }
+        List<Pending> chunk = run.pending;
+        run.pending = new ArrayList<>(chunkSize);
+
+        List<RuntimeException> errors;
+        List<User> users = new ArrayList<>(chunk.size());
+        try {
+            List<String> passwords = new ArrayList<>(chunk.size());
+            chunk.forEach(p -> passwords.add(p.request.getAccount().getPassword()));
+            List<String> hashes = passwordHasher.encodeAll(passwords);
+            for (int i = 0; i < chunk.size(); i++) {
+                users.add(userService.newUser(chunk.get(i).request, hashes.get(i)));
+            }
+            errors = userStore.createAll(users);
+        } catch (RuntimeException e) {
+            System.err.println("❌ User import chunk failed: " + e.getMessage());
+            for (Pending p : chunk) {
+                run.result(new ImportResult(p.line, ImportResult.FAILED, emailOf(p.request), null,
+                        "Not imported, please retry"));
+            }
+            run.out.flush();
+            return;
+        }
+
+        for (int i = 0; i < chunk.size(); i++) {
+            Pending p = chunk.get(i);
+            RuntimeException error = errors.get(i);
+            if (error == null) {
+                run.result(new ImportResult(p.line, ImportResult.CREATED, emailOf(p.request), users.get(i).getUserId(), null));
+            } else {
+                String status = error instanceof DuplicateUserException ? ImportResult.REJECTED : ImportResult.FAILED;
+                run.result(new ImportResult(p.line, status, emailOf(p.request), null, error.getMessage()));
+            }
+        }
+        run.out.flush();
+    }
+
+    // ---------- VALIDATION ----------
+
+    private String firstViolation(RegisterRequest request) {
+        Set<ConstraintViolation<RegisterRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        ConstraintViolation<RegisterRequest> first = violations.iterator().next();
+        return first.getPropertyPath() + " " + first.getMessage();
+    }
+
+    private static String emailOf(RegisterRequest request) {
+        return request.getPersonalInfo() == null ? null : request.getPersonalInfo().getEmail();
+    }
+
+    // ---------- CSV ----------
+
+    // Column name -> index, or null if a required column is missing
+    private static Map<String, Integer> csvHeader(String line) {
+        List<String> names = parseCsvLine(line);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim(), i);
+        }
+        return columns.keySet().containsAll(CSV_COLUMNS) ? columns : null;
+    }
+
+    private static RegisterRequest fromCsv(List<String> fields, Map<String, Integer> columns) {
+        RegisterRequest.PersonalInfo personalInfo = new RegisterRequest.PersonalInfo();
+        personalInfo.setEmail(field(fields, columns, "email"));
+        personalInfo.setFirstName(field(fields, columns, "firstName"));
+        personalInfo.setLastName(field(fields, columns, "lastName"));
+        personalInfo.setPhone(field(fields, columns, "phone"));
+        personalInfo.setDateOfBirth(field(fields, columns, "dateOfBirth"));
+
+        RegisterRequest.AccountInfo account = new RegisterRequest.AccountInfo();
+        account.setUsername(field(fields, columns, "username"));
+        account.setPassword(field(fields, columns, "password"));
+
+        RegisterRequest.InvestmentProfile investmentProfile = new RegisterRequest.InvestmentProfile();
+        investmentProfile.setRiskAppetite(field(fields, columns, "riskAppetite"));
+        investmentProfile.setExperience(field(fields, columns, "experience"));
+        investmentProfile.setInvestmentGoal(field(fields, columns, "investmentGoal"));
+
+        RegisterRequest request = new RegisterRequest();
+        request.setPersonalInfo(personalInfo);
+        request.setAccount(account);
+        request.setInvestmentProfile(investmentProfile);
+        return request;
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        int index = columns.get(name);
+        return index < fields.size() ? fields.get(index) : null;
+    }
+
+    /**
+     * RFC 4180 fields within one line: commas separate, double quotes enclose, "" is a quote.
+     * Quoted fields spanning lines are not supported (the record is rejected).
+     */
+    private static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // ---------- OUTPUT ----------
+
+    private void writeLine(OutputStream out, Object value) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(value));
+        out.write('\n');
+    }
+
+    private record Pending(long line, RegisterRequest request) {}
+
+    // Per-import state: counters, the chunk being filled and the response stream
+    private final class Run {
+        final OutputStream out;
+        List<Pending> pending = new ArrayList<>();
+        long records;
+        long created;
+        long rejected;
+        long failed;
+
+        Run(OutputStream out) {
+            this.out = out;
+        }
+
+        void result(ImportResult result) throws IOException {
+            switch (result.getStatus()) {
+                case ImportResult.CREATED -> created++;
+                case ImportResult.REJECTED -> rejected++;
+                default -> failed++;
+            }
+            writeLine(out, result);
+        }
+    }
+}
@@ -4,51 +4,78 @@ import com.example.demo.dto.JwtResponse;  // ✅ ADD THIS IMPORT
 import com.example.demo.dto.LoginRequest;
 import com.example.demo.dto.RegisterRequest;
 import com.example.demo.dto.RegisterResponse;
+import com.example.demo.exception.ConcurrentUpdateException;
 import com.example.demo.model.User;
-import com.example.demo.repository.UserRepository;
+import com.example.demo.model.UserCredentials;
+import com.example.demo.repository.RefreshTokenStore.Family;
+import com.example.demo.repository.UserStore;
 import com.example.demo.security.JwtUtils;
+import com.example.demo.security.PasswordHasher;
+import com.example.demo.security.TokenDenylist;
+import io.jsonwebtoken.Claims;
 
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
-import java.security.SecureRandom;
 import java.util.UUID;
 
 @Service
 public class UserService {
 
-    private final UserRepository userRepository;
-    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+    private final UserStore userStore;
+    private final PasswordHasher passwordHasher;
     private final JwtUtils jwtUtils;
+    private final TokenDenylist tokenDenylist;
+    private final RefreshTokenService refreshTokenService;
     private final EmailService emailService;
+    private final OtpService otpService;
+    private final Counter unknownUserFailures;
+    private final Counter badPasswordFailures;
+    private final Counter otpFailures;
+
+    private static final int PASSWORD_UPDATE_ATTEMPTS = 3;
 
     private static final DateTimeFormatter ISO_FORMATTER =
             DateTimeFormatter.ISO_INSTANT.withZone(ZoneOffset.UTC);
 
-    public UserService(UserRepository userRepository, JwtUtils jwtUtils, EmailService emailService) {
-        this.userRepository = userRepository;
+    public UserService(UserStore userStore, PasswordHasher passwordHasher,
+                       JwtUtils jwtUtils, TokenDenylist tokenDenylist, RefreshTokenService refreshTokenService,
+                       EmailService emailService, OtpService otpService, MeterRegistry meterRegistry) {
+        this.userStore = userStore;
+        this.passwordHasher = passwordHasher;
         this.jwtUtils = jwtUtils;
+        this.tokenDenylist = tokenDenylist;
+        this.refreshTokenService = refreshTokenService;
         this.emailService = emailService;
+        this.otpService = otpService;
+        this.unknownUserFailures = authFailureCounter(meterRegistry, "unknown_user");
+        this.badPasswordFailures = authFailureCounter(meterRegistry, "bad_password");
+        this.otpFailures = authFailureCounter(meterRegistry, "otp_rejected");
     }
 
     // Add to UserService class
     public User getUserByEmail(String email) {
-        return userRepository.findByEmail(email).orElseThrow(() -> new RuntimeException("User not found"));
+        return userStore.findByEmail(email).orElseThrow(() -> new RuntimeException("User not found"));
     }
 
     public RegisterResponse register(RegisterRequest request) {
+        User user = newUser(request, passwordHasher.encode(request.getAccount().getPassword()));
 
-        // Duplicate checks
-        if (userRepository.existsByEmail(request.getPersonalInfo().getEmail())) {
-            throw new IllegalArgumentException("Email already exists");
-        }
-        if (userRepository.existsByUsername(request.getAccount().getUsername())) {
-            throw new IllegalArgumentException("Username already exists");
-        }
+        // Single conditional write; duplicates surface as "Email/Username already exists"
+        userStore.create(user);
+
+        return new RegisterResponse(
+                user.getUserId(),
+                "User registered successfully"
+        );
+    }
 
+    // A new user from a registration request; also used by the bulk import (UserImportService)
+    public User newUser(RegisterRequest request, String passwordHash) {
         String now = ISO_FORMATTER.format(Instant.now());
 
         User user = new User();
@@ -63,7 +90,7 @@ public class UserService {
 
         // --- ACCOUNT INFO ---
         user.setUsername(request.getAccount().getUsername());
-        user.setPasswordHash(passwordEncoder.encode(request.getAccount().getPassword()));
+        user.setPasswordHash(passwordHash);
 
         // --- INVESTMENT INFO ---
         user.setRiskAppetite(request.getInvestmentProfile().getRiskAppetite());
@@ -73,42 +100,86 @@ public class UserService {
         // --- META INFO ---
         user.setCreatedAt(now);
         user.setUpdatedAt(now);
+        user.setVersion(1);
 
-        userRepository.save(user);
-
-        return new RegisterResponse(
-                user.getUserId(),
-                "User registered successfully"
-        );
+        return user;
     }
 
     // ✅ FIXED: login() NOW RETURNS JwtResponse WITH userId
     public JwtResponse login(LoginRequest loginRequest) {
-        User user = userRepository.findByEmail(loginRequest.getEmail())
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        if (!passwordEncoder.matches(loginRequest.getPassword(), user.getPasswordHash())) {
+        UserCredentials user = userStore.findCredentialsByEmail(loginRequest.getEmail())
+                .orElseThrow(() -> {
+                    unknownUserFailures.increment();
+                    return new RuntimeException("User not found");
+                });
+
+        if (!passwordHasher.matches(loginRequest.getPassword(), user.getPasswordHash())) {
+            badPasswordFailures.increment();
             throw new RuntimeException("Invalid credentials");
         }
 
-        String jwt = jwtUtils.generateJwtToken(user.getEmail());
+        // Transparent upgrade of hashes made with an older algorithm/strength; the version comes from
+        // the store, and a password changed meanwhile (different hash) is left alone
+        if (passwordHasher.upgradeEncoding(user.getPasswordHash())) {
+            passwordHasher.rehashInBackground(loginRequest.getPassword(),
+                    newHash -> userStore.findCredentialsByUserId(user.getUserId())
+                            .filter(current -> current.getPasswordHash().equals(user.getPasswordHash()))
+                            .ifPresent(current -> userStore.updatePasswordHash(current, newHash)));
+        }
+
+        String jwt = jwtUtils.generateJwtToken(user.getEmail(), user.getUserId(), user.getRole());
+        String refreshToken = refreshTokenService.issue(user.getUserId(), user.getEmail(), user.getRole());
         
         // ✅ RETURN COMPLETE JwtResponse WITH userId
-        return new JwtResponse(jwt, user.getEmail(), user.getRole(), user.getUserId());
+        return new JwtResponse(jwt, refreshToken, jwtUtils.getExpirationMs() / 1000,
+                user.getEmail(), user.getRole(), user.getUserId());
+    }
+
+    /**
+     * New access token for a valid refresh token (rotated); no password check and no email index query.
+     * Role and email are read by key (one GetItem), not taken from the family, so a demotion applies
+     * at the next refresh; a deleted user's family is revoked.
+     */
+    public JwtResponse refresh(String refreshToken) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshToken);
+        Family family = rotation.family();
+        UserCredentials user = userStore.findCredentialsByUserId(family.userId()).orElse(null);
+        if (user == null) {
+            refreshTokenService.revoke(rotation.refreshToken());
+            throw new RuntimeException("User not found");
+        }
+        String jwt = jwtUtils.generateJwtToken(user.getEmail(), user.getUserId(), user.getRole());
+        return new JwtResponse(jwt, rotation.refreshToken(), jwtUtils.getExpirationMs() / 1000,
+                user.getEmail(), user.getRole(), user.getUserId());
+    }
+
+    public long getRefreshTokenTtlSeconds() {
+        return refreshTokenService.getTtlSeconds();
+    }
+
+    // Revokes the presented tokens if they are still valid; missing or invalid tokens need no revocation
+    public void logout(String token, String refreshToken) {
+        Claims claims = token != null ? jwtUtils.verifyJwtToken(token) : null;
+        if (claims != null) {
+            tokenDenylist.revokeToken(claims);
+        }
+        refreshTokenService.revoke(refreshToken);
+    }
+
+    // Admin kill: every token issued to the user so far stops working
+    public void revokeSessions(String email) {
+        User user = userStore.findByEmail(email)
+                .orElseThrow(() -> new IllegalArgumentException("User not found"));
+        tokenDenylist.revokeSubject(user.getEmail());
     }
 
     // ---------------- OTP PASSWORD RESET ----------------
 
     public String forgotPassword(String email) {
-        User user = userRepository.findByEmail(email)
+        userStore.findCredentialsByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        String otp = generateOtp();
-        String expiry = ISO_FORMATTER.format(Instant.now().plusSeconds(10 * 60)); // 10 minutes
-        user.setOtp(otp);
-        user.setOtpExpiry(expiry);
-        user.setUpdatedAt(ISO_FORMATTER.format(Instant.now()));
-        userRepository.save(user);
+        String otp = otpService.issue(email);
 
         // Send email via SMTP
         emailService.sendOtp(email, otp);
@@ -117,34 +188,52 @@ public class UserService {
     }
 
     public String resetPassword(String email, String otp, String newPassword) {
-        User user = userRepository.findByEmail(email)
+        UserCredentials user = userStore.findCredentialsByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
-        if (user.getOtp() == null || user.getOtp().isBlank()) {
-            throw new RuntimeException("No OTP requested");
-        }
-        if (!user.getOtp().equals(otp)) {
-            throw new RuntimeException("Invalid OTP");
-        }
-        if (user.getOtpExpiry() == null || user.getOtpExpiry().isBlank()) {
-            throw new RuntimeException("OTP expired");
-        }
-        Instant expiryInstant = Instant.parse(user.getOtpExpiry());
-        if (Instant.now().isAfter(expiryInstant)) {
-            throw new RuntimeException("OTP expired");
+        try {
+            otpService.verify(email, otp);
+        } catch (RuntimeException e) {
+            otpFailures.increment();
+            throw e;
         }
 
-        user.setPasswordHash(passwordEncoder.encode(newPassword));
-        user.setOtp("");
-        user.setOtpExpiry("");
-        user.setUpdatedAt(ISO_FORMATTER.format(Instant.now()));
-        userRepository.save(user);
+        // The code is spent from here on; if the change does not land, give it back
+        try {
+            String passwordHash = passwordHasher.encode(newPassword);
+            updatePasswordHashWithRetry(user.getUserId(), passwordHash);
+        } catch (RuntimeException e) {
+            otpService.restore(email, otp);
+            throw e;
+        }
+        // Sessions opened with the old password end here
+        tokenDenylist.revokeSubject(user.getEmail());
         return "Password changed successfully!";
     }
 
-    private String generateOtp() {
-        SecureRandom random = new SecureRandom();
-        int value = random.nextInt(900000) + 100000; // ensures 100000-999999
-        return String.valueOf(value);
+    /**
+     * The OTP already proved the caller may set this password, so a concurrent change (rehash on
+     * login, another node) is not a reason to fail: re-read the version from the store and retry.
+     */
+    private void updatePasswordHashWithRetry(String userId, String passwordHash) {
+        for (int attempt = 1; ; attempt++) {
+            // Version from the store, not the cache: a cached one may predate another node's write
+            UserCredentials current = userStore.findCredentialsByUserId(userId)
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+            try {
+                userStore.updatePasswordHash(current, passwordHash);
+                return;
+            } catch (ConcurrentUpdateException e) {
+                if (attempt >= PASSWORD_UPDATE_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static Counter authFailureCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("auth.failures")
+                .tag("reason", reason)
+                .register(meterRegistry);
     }
 }
\ No newline at end of file
@@ -0,0 +1,217 @@
+package com.example.demo.repository;
+
+import com.example.demo.exception.DuplicateUserException;
+import com.example.demo.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmbeddedUserStoreTest {
+
+    // Must match EmbeddedUserStore's file layout: 8-byte file header, then [int length][int crc32][payload]
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    @TempDir
+    Path dir;
+
+    private EmbeddedUserStore store;
+
+    @AfterEach
+    void closeStore() throws IOException {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    @Test
+    void replaysEveryWriteAfterRestart() throws IOException {
+        store = open();
+        store.create(user("u1", "alice@example.com", "alice"));
+        store.create(user("u2", "bob@example.com", "bob"));
+        store.updatePasswordHash(store.findCredentialsByUserId("u1").orElseThrow(), "hash-2");
+
+        reopen();
+
+        assertThat(store.getUserCount()).isEqualTo(2);
+        assertThat(store.findCredentialsByEmail("ALICE@example.com").orElseThrow().getPasswordHash()).isEqualTo("hash-2");
+        assertThat(store.findCredentialsByUserId("u1").orElseThrow().getVersion()).isEqualTo(2);
+        assertThat(store.existsByUsername("Bob")).isTrue();
+    }
+
+    @Test
+    void discardsATornTailAndKeepsAppendingAfterIt() throws IOException {
+        store = open();
+        store.create(user("u1", "alice@example.com", "alice"));
+        long recordStart = HEADER_SIZE + store.getLogBytes();
+        store.create(user("u2", "bob@example.com", "bob"));
+        long recordEnd = HEADER_SIZE + store.getLogBytes();
+        store.close();
+        store = null;
+
+        // Crash mid-write: the record header reached the disk, the second half of the payload did not
+        long payloadStart = recordStart + RECORD_HEADER_SIZE;
+        long tornFrom = payloadStart + (recordEnd - payloadStart) / 2;
+        overwrite(tornFrom, new byte[(int) (recordEnd - tornFrom)]);
+
+        store = open();
+        assertThat(store.getUserCount()).isEqualTo(1);
+        assertThat(store.existsByEmail("alice@example.com")).isTrue();
+        assertThat(store.existsByEmail("bob@example.com")).isFalse();
+        assertThat(store.getLogBytes()).isEqualTo(recordStart - HEADER_SIZE);
+
+        // The discarded bytes are zeroed, so a new record written over them replays cleanly
+        store.create(user("u3", "carol@example.com", "carol"));
+        reopen();
+        assertThat(store.getUserCount()).isEqualTo(2);
+        assertThat(store.existsByEmail("carol@example.com")).isTrue();
+    }
+
+    @Test
+    void discardsARecordWhoseChecksumDoesNotMatch() throws IOException {
+        store = open();
+        store.create(user("u1", "alice@example.com", "alice"));
+        store.updatePasswordHash(store.findCredentialsByUserId("u1").orElseThrow(), "hash-2");
+        long recordStart = HEADER_SIZE + store.getLogBytes();
+        store.updatePasswordHash(store.findCredentialsByUserId("u1").orElseThrow(), "hash-3");
+        store.close();
+        store = null;
+
+        // A complete record with one flipped bit in its payload
+        long target = recordStart + RECORD_HEADER_SIZE + 10;
+        byte[] original = read(target, 1);
+        overwrite(target, new byte[]{(byte) (original[0] ^ 0x01)});
+
+        store = open();
+        // The last good version wins
+        assertThat(store.findCredentialsByUserId("u1").orElseThrow().getPasswordHash()).isEqualTo("hash-2");
+        assertThat(store.findCredentialsByUserId("u1").orElseThrow().getVersion()).isEqualTo(2);
+        assertThat(store.getLogBytes()).isEqualTo(recordStart - HEADER_SIZE);
+    }
+
+    @Test
+    void aCrashMidCompactionLeavesTheLogIntact() throws IOException {
+        store = open();
+        store.create(user("u1", "alice@example.com", "alice"));
+        store.create(user("u2", "bob@example.com", "bob"));
+        for (int i = 0; i < 5; i++) {
+            store.touchUpdatedAt(user("u1", null, null));
+        }
+        long logBytes = store.getLogBytes();
+        store.close();
+        store = null;
+
+        // Compaction died while writing its temp file, before the rename over the log
+        Path temp = dir.resolve("users.log.compact");
+        Files.write(temp, new byte[]{0x55, 0x53, 0x4C, 0x47, 0, 0, 0, 1, 42, 42, 42});
+
+        store = open();
+        assertThat(temp).doesNotExist();
+        assertThat(store.getUserCount()).isEqualTo(2);
+        assertThat(store.findCredentialsByUserId("u1").orElseThrow().getVersion()).isEqualTo(6);
+        assertThat(store.getLogBytes()).isEqualTo(logBytes);
+    }
+
+    @Test
+    void replaysWritesMadeAfterACompaction() throws IOException {
+        store = open();
+        store.create(user("u1", "alice@example.com", "alice"));
+        store.create(user("u2", "bob@example.com", "bob"));
+        for (int i = 0; i < 5; i++) {
+            store.touchUpdatedAt(user("u2", null, null));
+        }
+        long before = store.getLogBytes();
+
+        store.compact();
+        assertThat(store.getLogBytes()).isLessThan(before).isEqualTo(store.getLiveBytes());
+
+        store.create(user("u3", "carol@example.com", "carol"));
+        store.updatePasswordHash(store.findCredentialsByUserId("u1").orElseThrow(), "hash-2");
+        long after = store.getLogBytes();
+
+        reopen();
+        assertThat(store.getUserCount()).isEqualTo(3);
+        assertThat(store.getLogBytes()).isEqualTo(after);
+        assertThat(store.findCredentialsByUserId("u1").orElseThrow().getPasswordHash()).isEqualTo("hash-2");
+        assertThat(store.findCredentialsByUserId("u2").orElseThrow().getVersion()).isEqualTo(6);
+        assertThat(store.existsByUsername("carol")).isTrue();
+    }
+
+    @Test
+    void saveRefusesAnotherUsersEmailOrUsername() throws IOException {
+        store = open();
+        store.create(user("u1", "alice@example.com", "alice"));
+        store.create(user("u2", "bob@example.com", "bob"));
+
+        assertThatThrownBy(() -> store.save(user("u2", "ALICE@example.com", "bob")))
+                .isInstanceOf(DuplicateUserException.class);
+        assertThatThrownBy(() -> store.save(user("u2", "bob@example.com", "Alice")))
+                .isInstanceOf(DuplicateUserException.class);
+
+        assertThat(store.findByEmail("alice@example.com").orElseThrow().getUserId()).isEqualTo("u1");
+        assertThat(store.findByEmail("bob@example.com").orElseThrow().getUserId()).isEqualTo("u2");
+
+        reopen();
+        assertThat(store.findByEmail("alice@example.com").orElseThrow().getUserId()).isEqualTo("u1");
+        assertThat(store.findByEmail("bob@example.com").orElseThrow().getUserId()).isEqualTo("u2");
+    }
+
+    @Test
+    void saveMayChangeTheUsersOwnEmail() throws IOException {
+        store = open();
+        store.create(user("u1", "alice@example.com", "alice"));
+
+        store.save(user("u1", "Alice@Example.com", "alice"));
+        store.save(user("u1", "alice@new.example.com", "alice"));
+
+        reopen();
+        assertThat(store.existsByEmail("alice@example.com")).isFalse();
+        assertThat(store.findByEmail("alice@new.example.com").orElseThrow().getUserId()).isEqualTo("u1");
+        assertThat(store.getUserCount()).isEqualTo(1);
+    }
+
+    private EmbeddedUserStore open() {
+        return new EmbeddedUserStore(dir.resolve("users.log").toString(), 1, true, 0, 0.5, 1);
+    }
+
+    private void reopen() throws IOException {
+        store.close();
+        store = open();
+    }
+
+    private void overwrite(long position, byte[] bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(dir.resolve("users.log"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes), position);
+        }
+    }
+
+    private byte[] read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        try (FileChannel channel = FileChannel.open(dir.resolve("users.log"), StandardOpenOption.READ)) {
+            channel.read(buffer, position);
+        }
+        return buffer.array();
+    }
+
+    private static User user(String userId, String email, String username) {
+        User user = new User();
+        user.setUserId(userId);
+        user.setEmail(email);
+        user.setUsername(username);
+        user.setPasswordHash("hash-1");
+        user.setCreatedAt("2026-01-01T00:00:00Z");
+        user.setUpdatedAt("2026-01-01T00:00:00Z");
+        user.setVersion(1);
+        return user;
+    }
+}
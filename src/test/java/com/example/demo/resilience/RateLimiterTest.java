@@ -0,0 +1,164 @@
+package com.example.demo.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000);
+
+    @Test
+    void allowsBurstUpToCapacityThenReportsWait() {
+        RateLimiter limiter = new RateLimiter("test", 100, clock::get);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire("k", 5, 60)).isZero();
+        }
+        // 60/min = one token per second
+        assertThat(limiter.tryAcquire("k", 5, 60)).isEqualTo(1000);
+        assertThat(limiter.getAllowedCount()).isEqualTo(5);
+        assertThat(limiter.getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void refillsProportionallyToElapsedTime() {
+        RateLimiter limiter = new RateLimiter("test", 100, clock::get);
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("k", 3, 60);
+        }
+
+        clock.addAndGet(400);
+        assertThat(limiter.tryAcquire("k", 3, 60)).isEqualTo(600);
+
+        // Sub-token remainders accumulate across calls
+        clock.addAndGet(600);
+        assertThat(limiter.tryAcquire("k", 3, 60)).isZero();
+        assertThat(limiter.tryAcquire("k", 3, 60)).isPositive();
+
+        // Never refills beyond capacity
+        clock.addAndGet(60_000);
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire("k", 3, 60)).isZero();
+        }
+        assertThat(limiter.tryAcquire("k", 3, 60)).isPositive();
+    }
+
+    @Test
+    void keysAreIndependent() {
+        RateLimiter limiter = new RateLimiter("test", 100, clock::get);
+
+        assertThat(limiter.tryAcquire("a", 1, 1)).isZero();
+        assertThat(limiter.tryAcquire("a", 1, 1)).isPositive();
+        assertThat(limiter.tryAcquire("b", 1, 1)).isZero();
+    }
+
+    @Test
+    void concurrentAcquiresNeverExceedCapacity() throws Exception {
+        RateLimiter limiter = new RateLimiter("test", 100, clock::get);
+        int threads = 16;
+        int attemptsPerThread = 1_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    int allowed = 0;
+                    for (int i = 0; i < attemptsPerThread; i++) {
+                        if (limiter.tryAcquire("shared", 500, 1) == 0) {
+                            allowed++;
+                        }
+                    }
+                    return allowed;
+                }));
+            }
+            start.countDown();
+            int allowed = 0;
+            for (Future<Integer> result : results) {
+                allowed += result.get();
+            }
+            // The clock does not move, so exactly the burst is granted and no CAS update is lost
+            assertThat(allowed).isEqualTo(500);
+            assertThat(limiter.getAllowedCount()).isEqualTo(500);
+            assertThat(limiter.getRejectedCount()).isEqualTo((long) threads * attemptsPerThread - 500);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void sweepDropsOnlyRefilledBuckets() {
+        RateLimiter limiter = new RateLimiter("test", 100, clock::get);
+        limiter.tryAcquire("slow", 1, 1);   // empty for a minute
+        limiter.tryAcquire("fast", 1, 60);  // full again after a second
+
+        clock.addAndGet(1_000);
+        assertThat(limiter.sweep()).isEqualTo(1);
+        assertThat(limiter.getBucketCount()).isEqualTo(1);
+
+        // The remaining bucket is still empty: sweeping it must not reset the limit
+        assertThat(limiter.tryAcquire("slow", 1, 1)).isPositive();
+
+        clock.addAndGet(60_000);
+        assertThat(limiter.sweep()).isEqualTo(1);
+        assertThat(limiter.getBucketCount()).isZero();
+        assertThat(limiter.getEvictedCount()).isEqualTo(2);
+    }
+
+    @Test
+    void overflowEvictsLeastRecentlyUsedInsteadOfSharingABucket() {
+        RateLimiter limiter = new RateLimiter("test", 10, clock::get);
+        for (int i = 0; i < 10; i++) {
+            limiter.tryAcquire("old-" + i, 1, 1);
+            clock.incrementAndGet();
+        }
+        // Touch old-0 again so old-1 becomes the least recently used
+        clock.incrementAndGet();
+        limiter.tryAcquire("old-0", 1, 1);
+
+        // A flood of new keys: each gets its own bucket, none is rejected because of the others
+        for (int i = 0; i < 50; i++) {
+            clock.incrementAndGet();
+            assertThat(limiter.tryAcquire("new-" + i, 1, 1)).isZero();
+        }
+        assertThat(limiter.getBucketCount()).isLessThanOrEqualTo(10);
+        assertThat(limiter.getLruEvictedCount()).isPositive();
+
+        // The most recent key keeps its state: its single token is spent
+        assertThat(limiter.tryAcquire("new-49", 1, 1)).isPositive();
+    }
+
+    @Test
+    void evictionPrefersRefilledBuckets() {
+        RateLimiter limiter = new RateLimiter("test", 2, clock::get);
+        limiter.tryAcquire("idle", 1, 60);
+        limiter.tryAcquire("busy", 1, 1);
+
+        clock.addAndGet(1_000); // "idle" is full again, "busy" is not
+        limiter.tryAcquire("new", 1, 1);
+
+        assertThat(limiter.getLruEvictedCount()).isZero();
+        assertThat(limiter.tryAcquire("busy", 1, 1)).isPositive();
+    }
+
+    @Test
+    void rejectsOutOfRangeLimits() {
+        RateLimiter limiter = new RateLimiter("test", 10, clock::get);
+
+        assertThatThrownBy(() -> limiter.tryAcquire("k", 0, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> limiter.tryAcquire("k", RateLimiter.MAX_CAPACITY + 1, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> limiter.tryAcquire("k", 1, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
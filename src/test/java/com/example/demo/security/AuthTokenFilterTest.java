@@ -0,0 +1,38 @@
+package com.example.demo.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuthTokenFilterTest {
+
+    @Test
+    void findsACookieAnywhereInTheHeader() {
+        assertThat(AuthTokenFilter.cookieValue("jwtToken=abc", "jwtToken")).isEqualTo("abc");
+        assertThat(AuthTokenFilter.cookieValue("a=1; jwtToken=abc; b=2", "jwtToken")).isEqualTo("abc");
+        assertThat(AuthTokenFilter.cookieValue("a=1; refreshToken=fam.secret", "refreshToken")).isEqualTo("fam.secret");
+    }
+
+    @Test
+    void matchesTheWholeCookieName() {
+        assertThat(AuthTokenFilter.cookieValue("oldjwtToken=stale", "jwtToken")).isNull();
+        assertThat(AuthTokenFilter.cookieValue("oldjwtToken=stale; jwtToken=abc", "jwtToken")).isEqualTo("abc");
+        assertThat(AuthTokenFilter.cookieValue("jwtTokenX=stale; jwtToken", "jwtToken")).isNull();
+    }
+
+    @Test
+    void skipsSpacesAndTabsAroundPairs() {
+        assertThat(AuthTokenFilter.cookieValue("a=1;\t jwtToken=abc  ; b=2", "jwtToken")).isEqualTo("abc");
+        assertThat(AuthTokenFilter.cookieValue("  jwtToken=abc", "jwtToken")).isEqualTo("abc");
+    }
+
+    @Test
+    void anEmptyOrMissingCookieIsNull() {
+        assertThat(AuthTokenFilter.cookieValue((String) null, "jwtToken")).isNull();
+        assertThat(AuthTokenFilter.cookieValue("", "jwtToken")).isNull();
+        assertThat(AuthTokenFilter.cookieValue("jwtToken=; b=2", "jwtToken")).isNull();
+        assertThat(AuthTokenFilter.cookieValue("jwtToken=", "jwtToken")).isNull();
+        assertThat(AuthTokenFilter.cookieValue("a=1; b=2", "jwtToken")).isNull();
+        assertThat(AuthTokenFilter.cookieValue("a=1;", "jwtToken")).isNull();
+    }
+}
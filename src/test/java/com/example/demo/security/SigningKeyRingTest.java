@@ -0,0 +1,138 @@
+package com.example.demo.security;
+
+import com.example.demo.repository.InMemorySigningKeyStore;
+import com.example.demo.repository.SigningKeyStore.StoredKey;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SigningKeyRingTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret-42";
+    private static final long HOUR_MS = TimeUnit.HOURS.toMillis(1);
+    private static final long TOKEN_LIFETIME_MS = TimeUnit.MINUTES.toMillis(15);
+    private static final long PRE_PUBLISH_MINUTES = 10;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CountingStore store = new CountingStore();
+    // One-hour rotation periods; the clock starts five minutes into the current one. Real time, because
+    // InMemorySigningKeyStore prunes by the wall clock
+    private final long periodStart = System.currentTimeMillis() / HOUR_MS * HOUR_MS;
+    private final AtomicLong clock = new AtomicLong(periodStart + TimeUnit.MINUTES.toMillis(5));
+    private final List<SigningKeyRing> nodes = new ArrayList<>();
+
+    @AfterEach
+    void stopNodes() {
+        nodes.forEach(SigningKeyRing::shutdown);
+    }
+
+    @Test
+    void createsThePeriodKeyAndSignsWithIt() throws IOException {
+        SigningKeyRing ring = node();
+
+        SigningKeyRing.Signer signer = ring.signer();
+
+        assertThat(signer.kid()).isEqualTo(kid(periodStart));
+        assertThat(ring.verificationKey(signer.kid())).isNotNull();
+        assertThat(jwksKids(ring)).containsExactly(kid(periodStart));
+    }
+
+    @Test
+    void rotatesToThePrePublishedKeyWhenItsPeriodStarts() throws IOException {
+        SigningKeyRing ring = node();
+        ring.refresh();
+        long nextPeriod = periodStart + HOUR_MS;
+
+        // Inside the pre-publish window the next key is in the JWKS but does not sign yet
+        clock.set(nextPeriod - TimeUnit.MINUTES.toMillis(PRE_PUBLISH_MINUTES - 1));
+        ring.refresh();
+        assertThat(jwksKids(ring)).containsExactly(kid(periodStart), kid(nextPeriod));
+        assertThat(ring.signer().kid()).isEqualTo(kid(periodStart));
+
+        // Once its period starts it signs, with no reload needed; the old key still verifies
+        clock.set(nextPeriod + 1000);
+        assertThat(ring.signer().kid()).isEqualTo(kid(nextPeriod));
+        assertThat(ring.verificationKey(kid(periodStart))).isNotNull();
+    }
+
+    @Test
+    void dropsAKeyAtItsExpiryEvenIfTheStoreStillReturnsIt() {
+        SigningKeyRing ring = node();
+        ring.refresh();
+        String oldKid = kid(periodStart);
+        StoredKey old = store.findAll().get(0);
+
+        clock.set(TimeUnit.SECONDS.toMillis(old.expiresAtEpochSeconds()) + 1000);
+
+        assertThat(ring.verificationKey(oldKid)).isNull();
+        assertThat(store.findAll()).extracting(StoredKey::kid).contains(oldKid);
+        assertThat(ring.getKeyCount()).isPositive();
+    }
+
+    @Test
+    void anUnknownKidReloadsTheRingAtMostOncePerInterval() {
+        // Only the other node pre-publishes, so this one learns the next key from the store alone
+        SigningKeyRing ring = node(0);
+        SigningKeyRing other = node(PRE_PUBLISH_MINUTES);
+        long nextPeriod = periodStart + HOUR_MS;
+        clock.set(nextPeriod - TimeUnit.MINUTES.toMillis(PRE_PUBLISH_MINUTES - 1));
+        ring.refresh();
+        other.refresh();
+        int loads = store.findAllCalls.get();
+
+        // Within the reload interval an unknown kid (new or forged) does not reach the store
+        assertThat(ring.verificationKey(kid(nextPeriod))).isNull();
+        assertThat(ring.verificationKey("es256-forged")).isNull();
+        assertThat(store.findAllCalls.get()).isEqualTo(loads);
+
+        clock.addAndGet(TimeUnit.SECONDS.toMillis(10));
+        assertThat(ring.verificationKey(kid(nextPeriod))).isNotNull();
+        assertThat(ring.verificationKey("es256-forged")).isNull();
+        assertThat(store.findAllCalls.get()).isEqualTo(loads + 1);
+    }
+
+    private SigningKeyRing node() {
+        return node(PRE_PUBLISH_MINUTES);
+    }
+
+    private SigningKeyRing node(long prePublishMinutes) {
+        // No background refresh: the tests drive refresh() and the clock themselves
+        SigningKeyRing ring = new SigningKeyRing(store, objectMapper, SECRET, SigningKeyRing.ES256, TOKEN_LIFETIME_MS,
+                1, prePublishMinutes, 0, clock::get);
+        nodes.add(ring);
+        return ring;
+    }
+
+    private List<String> jwksKids(SigningKeyRing ring) throws IOException {
+        List<String> kids = new ArrayList<>();
+        for (JsonNode key : objectMapper.readTree(ring.getJwks().json()).path("keys")) {
+            kids.add(key.path("kid").asText());
+        }
+        return kids;
+    }
+
+    private static String kid(long activatesAtMillis) {
+        return "es256-" + activatesAtMillis / 1000;
+    }
+
+    /** InMemorySigningKeyStore that counts loads. */
+    private static final class CountingStore extends InMemorySigningKeyStore {
+        final AtomicInteger findAllCalls = new AtomicInteger();
+
+        @Override
+        public List<StoredKey> findAll() {
+            findAllCalls.incrementAndGet();
+            return super.findAll();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.demo.security;
+
+import com.example.demo.repository.InMemoryRevocationStore;
+import com.example.demo.repository.InMemorySigningKeyStore;
+import com.example.demo.repository.RevocationStore;
+import com.example.demo.repository.RevocationStore.Revocation;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenDenylistTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret-42";
+    private static final long ACCESS_TOKEN_MS = TimeUnit.MINUTES.toMillis(15);
+    private static final long REFRESH_TTL_SECONDS = TimeUnit.DAYS.toSeconds(14);
+
+    private final InMemoryRevocationStore store = new InMemoryRevocationStore();
+    private final List<TokenDenylist> nodes = new ArrayList<>();
+
+    @AfterEach
+    void stopNodes() {
+        nodes.forEach(TokenDenylist::shutdown);
+    }
+
+    @Test
+    void aRevokedJtiIsRejectedAndOtherTokensAreNot() {
+        TokenDenylist denylist = node(store);
+        long now = System.currentTimeMillis();
+        Claims loggedOut = token("alice@example.com", now);
+        Claims other = token("alice@example.com", now);
+
+        assertThat(denylist.revokeToken(loggedOut)).isTrue();
+
+        assertThat(denylist.isRevoked(loggedOut)).isTrue();
+        assertThat(denylist.isRevoked(other)).isFalse();
+        assertThat(denylist.getRevokedTokenCount()).isEqualTo(1);
+    }
+
+    @Test
+    void aTokenWithoutJtiCannotBeRevokedOnItsOwn() {
+        TokenDenylist denylist = node(store);
+        Claims legacy = token("alice@example.com", System.currentTimeMillis());
+        legacy.setId(null);
+
+        assertThat(denylist.revokeToken(legacy)).isFalse();
+        assertThat(denylist.isRevoked(legacy)).isFalse();
+    }
+
+    @Test
+    void aSubjectRevocationCoversEarlierTokensOnlyAndIgnoresEmailCase() {
+        TokenDenylist denylist = node(store);
+        long now = System.currentTimeMillis();
+        Claims earlier = token("Alice@Example.com", now - 1);
+
+        denylist.revokeSubject("alice@example.com");
+        Claims later = token("alice@example.com", System.currentTimeMillis() + 1);
+
+        assertThat(denylist.isRevoked(earlier)).isTrue();
+        assertThat(denylist.isRevoked(later)).isFalse();
+        assertThat(denylist.isRevoked(token("bob@example.com", now - 1))).isFalse();
+    }
+
+    @Test
+    void aLoginInTheSameSecondAsTheResetSurvivesIt() {
+        TokenDenylist denylist = node(store);
+        long resetAt = System.currentTimeMillis();
+        store.add(new Revocation(RevocationStore.KIND_SUBJECT, "alice@example.com", resetAt,
+                TimeUnit.MILLISECONDS.toSeconds(resetAt) + REFRESH_TTL_SECONDS));
+        denylist.refresh();
+
+        // Same iat second as the reset, but issued a few milliseconds after it
+        assertThat(denylist.isRevoked(token("alice@example.com", resetAt + 5))).isFalse();
+        assertThat(denylist.isRevoked(token("alice@example.com", resetAt - 5))).isTrue();
+    }
+
+    @Test
+    void aLegacyTokenWithoutMillisecondIssueTimeIsRevokedWhenUnsure() {
+        TokenDenylist denylist = node(store);
+        long resetAt = System.currentTimeMillis();
+        store.add(new Revocation(RevocationStore.KIND_SUBJECT, "alice@example.com", resetAt,
+                TimeUnit.MILLISECONDS.toSeconds(resetAt) + REFRESH_TTL_SECONDS));
+        denylist.refresh();
+
+        Claims legacy = token("alice@example.com", resetAt);
+        legacy.remove(JwtUtils.CLAIM_ISSUED_AT_MS);
+
+        assertThat(TokenDenylist.issuedAtMillis(legacy)).isEqualTo(resetAt / 1000 * 1000);
+        assertThat(denylist.isRevoked(legacy)).isTrue();
+    }
+
+    @Test
+    void revocationsReachOtherNodesThroughTheStore() {
+        TokenDenylist first = node(store);
+        TokenDenylist second = node(store);
+        second.refresh();
+        long now = System.currentTimeMillis();
+        Claims loggedOut = token("alice@example.com", now);
+        Claims bobs = token("bob@example.com", now - 1);
+
+        first.revokeToken(loggedOut);
+        first.revokeSubject("bob@example.com");
+
+        second.refresh();
+        assertThat(second.isRevoked(loggedOut)).isTrue();
+        assertThat(second.isRevoked(bobs)).isTrue();
+    }
+
+    @Test
+    void aNewNodeLoadsSubjectCutoffsOlderThanTheAccessTokenLifetime() {
+        long now = System.currentTimeMillis();
+        long twoDaysAgo = now - TimeUnit.DAYS.toMillis(2);
+        // Still matters: refresh families started before it are revoked for 14 days
+        store.add(new Revocation(RevocationStore.KIND_SUBJECT, "alice@example.com", twoDaysAgo,
+                TimeUnit.MILLISECONDS.toSeconds(twoDaysAgo) + REFRESH_TTL_SECONDS));
+
+        TokenDenylist denylist = node(store);
+        denylist.refresh();
+
+        assertThat(denylist.getRevokedSubjectCount()).isEqualTo(1);
+        assertThat(denylist.isSubjectRevoked("alice@example.com", twoDaysAgo - 1000)).isTrue();
+        assertThat(denylist.isSubjectRevoked("alice@example.com", now)).isFalse();
+    }
+
+    @Test
+    void expiredTokenRevocationsArePruned() {
+        TokenDenylist denylist = node(store);
+        Claims expired = token("alice@example.com", System.currentTimeMillis() - ACCESS_TOKEN_MS);
+        expired.setExpiration(new Date(System.currentTimeMillis() - 1000));
+        Claims live = token("alice@example.com", System.currentTimeMillis());
+
+        denylist.revokeToken(expired);
+        denylist.revokeToken(live);
+        denylist.refresh();
+
+        assertThat(denylist.getRevokedTokenCount()).isEqualTo(1);
+        assertThat(denylist.isRevoked(live)).isTrue();
+    }
+
+    @Test
+    void aFailedStoreWriteStaysLocalAndIsRetried() {
+        FlakyStore flaky = new FlakyStore();
+        TokenDenylist denylist = node(flaky);
+        Claims loggedOut = token("alice@example.com", System.currentTimeMillis());
+
+        flaky.failing = true;
+        denylist.revokeToken(loggedOut);
+        assertThat(denylist.isRevoked(loggedOut)).isTrue();
+        assertThat(denylist.getPendingWriteCount()).isEqualTo(1);
+
+        flaky.failing = false;
+        denylist.refresh();
+        assertThat(denylist.getPendingWriteCount()).isZero();
+        assertThat(flaky.since(0)).extracting(Revocation::value).containsOnly(loggedOut.getId());
+    }
+
+    private TokenDenylist node(RevocationStore revocationStore) {
+        // A long refresh interval: the tests drive refresh() themselves
+        TokenDenylist denylist = new TokenDenylist(revocationStore, jwtUtils(), REFRESH_TTL_SECONDS, true, 3600, 30);
+        nodes.add(denylist);
+        return denylist;
+    }
+
+    private static Claims token(String subject, long issuedAtMillis) {
+        Claims claims = Jwts.claims();
+        claims.setId(UUID.randomUUID().toString());
+        claims.setSubject(subject);
+        claims.setIssuedAt(new Date(issuedAtMillis));
+        claims.put(JwtUtils.CLAIM_ISSUED_AT_MS, issuedAtMillis);
+        claims.setExpiration(new Date(issuedAtMillis + ACCESS_TOKEN_MS));
+        return claims;
+    }
+
+    private static JwtUtils jwtUtils() {
+        SigningKeyRing keyRing = new SigningKeyRing(new InMemorySigningKeyStore(), new ObjectMapper(), SECRET,
+                SigningKeyRing.HS256, ACCESS_TOKEN_MS, 168, 60, 60);
+        return new JwtUtils(SECRET, ACCESS_TOKEN_MS, keyRing, true, 0, 0, new SimpleMeterRegistry());
+    }
+
+    /** InMemoryRevocationStore whose writes can be made to fail. */
+    private static final class FlakyStore extends InMemoryRevocationStore {
+        volatile boolean failing;
+
+        @Override
+        public void add(Revocation revocation) {
+            if (failing) {
+                throw new IllegalStateException("store unavailable");
+            }
+            super.add(revocation);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.demo.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmailOutboxTest {
+
+    private FakeSmtpServer smtp;
+    private EmailOutbox outbox;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        smtp = new FakeSmtpServer();
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        if (outbox != null) {
+            outbox.shutdown();
+        }
+        smtp.close();
+    }
+
+    @Test
+    void deliversBatchesOverOneReusedConnection() throws Exception {
+        outbox = newOutbox(4, 3, 10);
+        for (int i = 0; i < 10; i++) {
+            assertThat(outbox.enqueue(message("user" + i + "@example.com"))).isTrue();
+        }
+        awaitTrue(() -> smtp.delivered.size() == 10);
+
+        // A later batch goes over the same session instead of a new TCP/SMTP handshake
+        outbox.enqueue(message("late@example.com"));
+        awaitTrue(() -> smtp.delivered.size() == 11);
+
+        assertThat(smtp.connections.get()).isEqualTo(1);
+        assertThat(outbox.getConnectionCount()).isEqualTo(1);
+        assertThat(outbox.getSentCount()).isEqualTo(11);
+        assertThat(outbox.getRetriedCount()).isZero();
+    }
+
+    @Test
+    void reconnectsWhenTheServerDropsTheConnection() throws Exception {
+        outbox = newOutbox(4, 3, 10);
+        smtp.dropAfterMessages = 2;
+        outbox.enqueue(message("a@example.com"));
+        outbox.enqueue(message("b@example.com"));
+        awaitTrue(() -> smtp.delivered.size() == 2);
+
+        outbox.enqueue(message("c@example.com"));
+        outbox.enqueue(message("d@example.com"));
+        awaitTrue(() -> smtp.delivered.size() == 4);
+
+        assertThat(smtp.connections.get()).isEqualTo(2);
+        assertThat(outbox.getConnectionCount()).isEqualTo(2);
+        // The stale session is replaced on the spot, without spending a retry attempt
+        assertThat(outbox.getRetriedCount()).isZero();
+        assertThat(outbox.getFailedCount()).isZero();
+    }
+
+    @Test
+    void retriesTransientFailuresWithBackoff() throws Exception {
+        long initialBackoffMs = 50;
+        outbox = newOutbox(4, 5, initialBackoffMs);
+        smtp.transientDataFailures.set(2);
+
+        long start = System.nanoTime();
+        outbox.enqueue(message("otp@example.com"));
+        awaitTrue(() -> smtp.delivered.size() == 1);
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(outbox.getRetriedCount()).isEqualTo(2);
+        assertThat(outbox.getSentCount()).isEqualTo(1);
+        assertThat(outbox.getFailedCount()).isZero();
+        // Attempts are spaced by initialBackoff, then twice that
+        assertThat(elapsedMs).isGreaterThanOrEqualTo(initialBackoffMs + 2 * initialBackoffMs);
+    }
+
+    @Test
+    void aRejectedRecipientFailsOnlyItsOwnMessage() throws Exception {
+        outbox = newOutbox(10, 3, 10);
+        smtp.rejectedRecipient = "bad@example.com";
+        outbox.enqueue(message("good1@example.com"));
+        outbox.enqueue(message("bad@example.com"));
+        outbox.enqueue(message("good2@example.com"));
+
+        awaitTrue(() -> outbox.getFailedCount() == 1);
+        awaitTrue(() -> smtp.delivered.size() == 2);
+
+        assertThat(smtp.delivered).containsExactlyInAnyOrder("good1@example.com", "good2@example.com");
+        assertThat(outbox.getSentCount()).isEqualTo(2);
+        assertThat(outbox.getRetriedCount()).isEqualTo(2);
+        // A 550 on RCPT leaves the session usable
+        assertThat(smtp.connections.get()).isEqualTo(1);
+    }
+
+    private EmailOutbox newOutbox(int batchSize, int maxAttempts, long initialBackoffMs) {
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("127.0.0.1");
+        sender.setPort(smtp.port());
+        sender.getJavaMailProperties().put("mail.smtp.auth", "false");
+        sender.getJavaMailProperties().put("mail.smtp.timeout", "5000");
+        return new EmailOutbox(sender, 100, 1, batchSize, maxAttempts, initialBackoffMs, 60_000, false,
+                new SimpleMeterRegistry());
+    }
+
+    private static SimpleMailMessage message(String to) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("noreply@example.com");
+        message.setTo(to);
+        message.setSubject("Your code");
+        message.setText("123456");
+        return message;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /** Just enough SMTP for JavaMail, with knobs for the failure modes under test. */
+    private static final class FakeSmtpServer implements AutoCloseable {
+        final List<String> delivered = new CopyOnWriteArrayList<>();
+        final AtomicInteger connections = new AtomicInteger();
+        final AtomicInteger transientDataFailures = new AtomicInteger();
+        volatile String rejectedRecipient;
+        volatile int dropAfterMessages = Integer.MAX_VALUE;
+
+        private final ServerSocket server;
+        private final List<Socket> sockets = new CopyOnWriteArrayList<>();
+
+        FakeSmtpServer() throws IOException {
+            server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+            Thread acceptor = new Thread(this::acceptLoop, "fake-smtp");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int port() {
+            return server.getLocalPort();
+        }
+
+        private void acceptLoop() {
+            while (!server.isClosed()) {
+                try {
+                    Socket socket = server.accept();
+                    connections.incrementAndGet();
+                    sockets.add(socket);
+                    Thread session = new Thread(() -> serve(socket), "fake-smtp-session");
+                    session.setDaemon(true);
+                    session.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }
+
+        private void serve(Socket socket) {
+            try (socket;
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                 PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.US_ASCII)) {
+                reply(out, "220 fake ESMTP");
+                List<String> recipients = new ArrayList<>();
+                int deliveredHere = 0;
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String command = line.toUpperCase();
+                    if (command.startsWith("EHLO")) {
+                        reply(out, "250-fake\r\n250 OK");
+                    } else if (command.startsWith("HELO") || command.startsWith("NOOP")) {
+                        reply(out, "250 OK");
+                    } else if (command.startsWith("MAIL FROM") || command.startsWith("RSET")) {
+                        recipients.clear();
+                        reply(out, "250 OK");
+                    } else if (command.startsWith("RCPT TO")) {
+                        String address = line.substring(line.indexOf('<') + 1, line.indexOf('>'));
+                        if (address.equalsIgnoreCase(rejectedRecipient)) {
+                            reply(out, "550 No such user");
+                        } else {
+                            recipients.add(address);
+                            reply(out, "250 OK");
+                        }
+                    } else if (command.equals("DATA")) {
+                        if (transientDataFailures.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                            reply(out, "451 Try again later");
+                            continue;
+                        }
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // message body is not inspected
+                        }
+                        delivered.addAll(recipients);
+                        recipients.clear();
+                        reply(out, "250 OK queued");
+                        if (++deliveredHere >= dropAfterMessages) {
+                            return;
+                        }
+                    } else if (command.startsWith("QUIT")) {
+                        reply(out, "221 Bye");
+                        return;
+                    } else {
+                        reply(out, "502 Not implemented");
+                    }
+                }
+            } catch (IOException e) {
+                // client went away
+            }
+        }
+
+        private static void reply(PrintWriter out, String response) {
+            out.print(response + "\r\n");
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+}
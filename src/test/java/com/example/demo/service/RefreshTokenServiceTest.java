@@ -0,0 +1,134 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.InMemoryRefreshTokenStore;
+import com.example.demo.repository.InMemoryRevocationStore;
+import com.example.demo.repository.InMemorySigningKeyStore;
+import com.example.demo.repository.RefreshTokenStore.Family;
+import com.example.demo.security.JwtUtils;
+import com.example.demo.security.SigningKeyRing;
+import com.example.demo.security.TokenDenylist;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RefreshTokenServiceTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret-42";
+    private static final long TTL_SECONDS = 3600;
+
+    private final InMemoryRefreshTokenStore store = new InMemoryRefreshTokenStore();
+    private final TokenDenylist denylist = new TokenDenylist(new InMemoryRevocationStore(), jwtUtils(),
+            TTL_SECONDS, true, 3600, 30);
+
+    @AfterEach
+    void stopDenylist() {
+        denylist.shutdown();
+    }
+
+    @Test
+    void everyRefreshRotatesTheToken() {
+        RefreshTokenService service = service(10);
+        String first = service.issue("u1", "alice@example.com", "USER");
+
+        RefreshTokenService.Rotation rotation = service.rotate(first);
+        String second = rotation.refreshToken();
+
+        assertThat(second).isNotEqualTo(first);
+        assertThat(second.substring(0, second.indexOf('.'))).isEqualTo(first.substring(0, first.indexOf('.')));
+        assertThat(rotation.family().userId()).isEqualTo("u1");
+        assertThat(service.rotate(second).refreshToken()).isNotEqualTo(second);
+    }
+
+    @Test
+    void aRetryWithinTheGraceWindowIsRefusedWithoutRevokingTheFamily() {
+        RefreshTokenService service = service(10);
+        String first = service.issue("u1", "alice@example.com", "USER");
+        String second = service.rotate(first).refreshToken();
+
+        // The client lost the response and retries with the token it still has
+        assertThatThrownBy(() -> service.rotate(first)).hasMessage("Refresh token already used");
+
+        assertThat(family(second).revoked()).isFalse();
+        assertThat(service.rotate(second).refreshToken()).isNotNull();
+    }
+
+    @Test
+    void reusingARotatedTokenRevokesTheWholeFamily() throws InterruptedException {
+        RefreshTokenService service = service(0);
+        String first = service.issue("u1", "alice@example.com", "USER");
+        String second = service.rotate(first).refreshToken();
+        Thread.sleep(2);
+
+        // A copy of the old token shows up after the (zero) grace window: the family is compromised
+        assertThatThrownBy(() -> service.rotate(first)).hasMessage("Invalid refresh token");
+
+        assertThat(family(second).revoked()).isTrue();
+        assertThatThrownBy(() -> service.rotate(second)).hasMessage("Invalid refresh token");
+    }
+
+    @Test
+    void anUnknownSecretForAKnownFamilyAlsoCountsAsReuse() {
+        RefreshTokenService service = service(10);
+        String token = service.issue("u1", "alice@example.com", "USER");
+        String familyId = token.substring(0, token.indexOf('.'));
+
+        assertThatThrownBy(() -> service.rotate(familyId + ".guessed")).hasMessage("Invalid refresh token");
+
+        assertThat(family(token).revoked()).isTrue();
+    }
+
+    @Test
+    void malformedAndUnknownTokensAreRejected() {
+        RefreshTokenService service = service(10);
+
+        assertThatThrownBy(() -> service.rotate(null)).hasMessage("Invalid refresh token");
+        assertThatThrownBy(() -> service.rotate("no-dot")).hasMessage("Invalid refresh token");
+        assertThatThrownBy(() -> service.rotate("family.")).hasMessage("Invalid refresh token");
+        assertThatThrownBy(() -> service.rotate("unknown-family.secret")).hasMessage("Invalid refresh token");
+    }
+
+    @Test
+    void logoutEndsTheFamilyButIgnoresAStaleToken() {
+        RefreshTokenService service = service(10);
+        String first = service.issue("u1", "alice@example.com", "USER");
+        String second = service.rotate(first).refreshToken();
+
+        service.revoke(first);
+        assertThat(family(second).revoked()).isFalse();
+
+        service.revoke(second);
+        assertThatThrownBy(() -> service.rotate(second)).hasMessage("Invalid refresh token");
+    }
+
+    @Test
+    void revokingTheSubjectEndsFamiliesStartedBeforeIt() throws InterruptedException {
+        RefreshTokenService service = service(10);
+        String before = service.issue("u1", "Alice@Example.com", "USER");
+
+        Thread.sleep(2);
+        denylist.revokeSubject("alice@example.com");
+        Thread.sleep(2);
+        String after = service.issue("u1", "alice@example.com", "USER");
+
+        assertThatThrownBy(() -> service.rotate(before)).hasMessage("Invalid refresh token");
+        assertThat(service.rotate(after).refreshToken()).isNotNull();
+    }
+
+    private RefreshTokenService service(long reuseGraceSeconds) {
+        return new RefreshTokenService(store, denylist, TTL_SECONDS, reuseGraceSeconds, new SimpleMeterRegistry());
+    }
+
+    private Family family(String token) {
+        return store.find(token.substring(0, token.indexOf('.'))).orElseThrow();
+    }
+
+    private static JwtUtils jwtUtils() {
+        SigningKeyRing keyRing = new SigningKeyRing(new InMemorySigningKeyStore(), new ObjectMapper(), SECRET,
+                SigningKeyRing.HS256, 900_000, 168, 60, 60);
+        return new JwtUtils(SECRET, 900_000, keyRing, true, 0, 0, new SimpleMeterRegistry());
+    }
+}